@@ -18,24 +18,56 @@ package net.kuujo.xync;
 import static net.kuujo.xync.util.Cluster.getHazelcastInstance;
 import static net.kuujo.xync.util.Cluster.isHazelcastCluster;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-
+import java.util.concurrent.Callable;
+
+import net.kuujo.xync.cluster.AsyncCollection;
+import net.kuujo.xync.cluster.AsyncCounter;
+import net.kuujo.xync.cluster.AsyncList;
+import net.kuujo.xync.cluster.AsyncMap;
+import net.kuujo.xync.cluster.AsyncQueue;
+import net.kuujo.xync.cluster.AsyncSet;
 import net.kuujo.xync.cluster.ClusterManager;
+import net.kuujo.xync.cluster.EntryProcessor;
+import net.kuujo.xync.cluster.MapEvent;
+import net.kuujo.xync.cluster.MapPolicy;
+import net.kuujo.xync.cluster.Page;
 import net.kuujo.xync.cluster.impl.HazelcastClusterManager;
 import net.kuujo.xync.cluster.impl.SharedDataClusterManager;
+import net.kuujo.xync.data.BinaryProtocol;
+import net.kuujo.xync.data.ComputeProcessor;
+import net.kuujo.xync.data.DataHandler;
+import net.kuujo.xync.data.DataRegistry;
+import net.kuujo.xync.data.DataType;
+import net.kuujo.xync.data.VersionedValue;
 import net.kuujo.xync.platform.PlatformManager;
 import net.kuujo.xync.platform.PlatformManagerFactory;
 import net.kuujo.xync.platform.impl.DefaultPlatformManagerFactory;
+import net.kuujo.xync.util.CounterBuffer;
+import net.kuujo.xync.util.DataExecutor;
+import net.kuujo.xync.util.HandleCache;
+import net.kuujo.xync.util.NearCache;
 
 import org.vertx.java.core.AsyncResult;
 import org.vertx.java.core.Future;
+import org.vertx.java.core.Context;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
+import org.vertx.java.core.buffer.Buffer;
 import org.vertx.java.core.eventbus.Message;
 import org.vertx.java.core.eventbus.ReplyException;
+import org.vertx.java.core.eventbus.ReplyFailure;
+import org.vertx.java.core.impl.DefaultFutureResult;
 import org.vertx.java.core.json.JsonArray;
 import org.vertx.java.core.json.JsonObject;
 import org.vertx.java.platform.Container;
@@ -49,22 +81,69 @@ import org.vertx.java.platform.Verticle;
  * which the cluster can be accessed. <code>group</code> indicates the
  * deployment group to which this verticle belongs. And <code>address</code>
  * indicates the absolute event bus address of this specific verticle.
+ * <code>executor</code> indicates where shared data operations are run,
+ * either <code>event-loop</code> or <code>worker</code>.
+ * <code>counterFlushInterval</code> and <code>counterFlushThreshold</code>
+ * indicate how often buffered counter updates are flushed to the cluster.
+ * <code>nearCache</code> configures node-local near caches for maps by name.
+ * <code>maps</code> configures capacity policies for maps by name.
+ * <code>dataTypes</code> lists the class names of additional {@link DataType}s.
+ * <code>processors</code> maps names to the class names of {@link ComputeProcessor}s.
+ * <code>handleCacheSize</code> indicates the maximum number of structure
+ * handles open on this node. <code>forwardToOwner</code> indicates whether
+ * single key operations received at the cluster address are forwarded to
+ * the node that owns the key. <code>watchWindow</code> indicates the default
+ * time in milliseconds over which watch events are coalesced.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class Xync extends Verticle {
   private static final String DEFAULT_CLUSTER_ADDRESS = "cluster";
   private static final String DEFAULT_GROUP = "__DEFAULT__";
+  private static final int DEFAULT_EXECUTOR_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+  private static final int DEFAULT_EXECUTOR_QUEUE_SIZE = 1024;
+  private static final long DEFAULT_COUNTER_FLUSH_INTERVAL = 1000;
+  private static final long DEFAULT_COUNTER_FLUSH_THRESHOLD = 1000;
+  private static final int DEFAULT_NEAR_CACHE_SIZE = 10000;
+  private static final int DEFAULT_PAGE_SIZE = 1000;
+  private static final int DEFAULT_CHUNK_SIZE = 100;
+  private static final long DEFAULT_STREAM_TIMEOUT = 30000;
+  private static final int DEFAULT_HANDLE_CACHE_SIZE = 1024;
+  private static final long DEFAULT_FORWARD_TIMEOUT = 30000;
+  private static final long DEFAULT_WATCH_WINDOW = 100;
+  private static final long DEFAULT_TAKE_TIMEOUT = 30000;
+  private static final int DEFAULT_DRAIN_SIZE = 100;
+  private static final int DEFAULT_SUBSCRIBE_CREDITS = 100;
+  private static final int DEFAULT_SUBSCRIBE_BATCH = 10;
+  private static final long DEFAULT_SUBSCRIBE_TIMEOUT = 30000;
+  private static final long SUBSCRIPTION_WAIT = 5000;
+  private static final long WATCH_REPLY_TIMEOUT = 1000;
   protected String cluster;
   protected String group;
   protected String address;
   protected ClusterManager manager;
   protected PlatformManager platform;
-
-  private final Handler<Message<JsonObject>> clusterHandler = new Handler<Message<JsonObject>>() {
+  protected DataExecutor executor;
+  protected CounterBuffer counters;
+  protected final Map<String, NearCache<Object, Object>> nearCaches = new HashMap<>();
+  protected final DataRegistry registry = new DataRegistry();
+  protected HandleCache<Object> handles;
+  protected boolean forwardToOwner;
+  private long forwarded;
+  protected long watchWindow;
+  private final Map<String, Watch> watches = new HashMap<>();
+  private final Map<String, Subscription> subscriptions = new HashMap<>();
+  private boolean stopped;
+
+  private final Handler<Message<Object>> clusterHandler = new Handler<Message<Object>>() {
     @Override
-    public void handle(Message<JsonObject> message) {
-      handleClusterMessage(message);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void handle(Message<Object> message) {
+      if (message.body() instanceof Buffer) {
+        handleBinaryMessage((Message) message);
+      } else {
+        handleClusterMessage((Message) message);
+      }
     }
   };
 
@@ -75,10 +154,15 @@ public class Xync extends Verticle {
     }
   };
 
-  private final Handler<Message<JsonObject>> internalHandler = new Handler<Message<JsonObject>>() {
+  private final Handler<Message<Object>> internalHandler = new Handler<Message<Object>>() {
     @Override
-    public void handle(Message<JsonObject> message) {
-      handleNodeMessage(message);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void handle(Message<Object> message) {
+      if (message.body() instanceof Buffer) {
+        handleBinaryMessage((Message) message);
+      } else {
+        handleNodeMessage((Message) message);
+      }
     }
   };
 
@@ -89,21 +173,136 @@ public class Xync extends Verticle {
     }
   };
 
+  private final Handler<Message<JsonObject>> dataHandler = new Handler<Message<JsonObject>>() {
+    @Override
+    public void handle(Message<JsonObject> message) {
+      handleDataMessage(message.body(), createReplyHandler(message));
+    }
+  };
+
   @Override
   public void start(final Future<Void> future) {
+    String executorMode = container.config().getString("executor", DataExecutor.EVENT_LOOP);
+    switch (executorMode) {
+      case DataExecutor.EVENT_LOOP:
+        executor = new DataExecutor(vertx);
+        break;
+      case DataExecutor.WORKER:
+        executor = new DataExecutor(vertx, container.config().getInteger("executorThreads", DEFAULT_EXECUTOR_THREADS),
+            container.config().getInteger("executorQueueSize", DEFAULT_EXECUTOR_QUEUE_SIZE));
+        break;
+      default:
+        future.setFailure(new IllegalArgumentException("Invalid executor mode " + executorMode));
+        return;
+    }
+
     boolean isHazelcast = isHazelcastCluster();
     if (isHazelcast) {
-      manager = new HazelcastClusterManager(getHazelcastInstance());
+      manager = new HazelcastClusterManager(vertx, getHazelcastInstance(), executor);
     } else {
-      manager = new SharedDataClusterManager(vertx.sharedData());
+      manager = new SharedDataClusterManager(vertx, executor);
     }
 
+    counters = new CounterBuffer(vertx, manager, container.config().getLong("counterFlushInterval", DEFAULT_COUNTER_FLUSH_INTERVAL),
+        container.config().getLong("counterFlushThreshold", DEFAULT_COUNTER_FLUSH_THRESHOLD));
+    counters.start();
+
     cluster = container.config().getString("cluster", DEFAULT_CLUSTER_ADDRESS);
     group = container.config().getString("group", DEFAULT_GROUP);
     address = container.config().getString("address", String.format("node-%s", UUID.randomUUID().toString()));
+    forwardToOwner = container.config().getBoolean("forwardToOwner", false);
+    watchWindow = container.config().getLong("watchWindow", DEFAULT_WATCH_WINDOW);
+
+    final Context context = vertx.currentContext();
+    manager.leaveHandler(new Handler<String>() {
+      @Override
+      public void handle(final String node) {
+        context.runOnContext(new Handler<Void>() {
+          @Override
+          public void handle(Void v) {
+            handleNodeLeave(node);
+          }
+        });
+      }
+    });
+
+    JsonObject nearCacheConfig = container.config().getObject("nearCache");
+    if (nearCacheConfig != null) {
+      for (String name : nearCacheConfig.getFieldNames()) {
+        JsonObject config = nearCacheConfig.getObject(name);
+        NearCache<Object, Object> cache;
+        try {
+          cache = new NearCache<>(config.getInteger("maxSize", DEFAULT_NEAR_CACHE_SIZE),
+              config.getString("eviction", NearCache.LRU), config.getLong("ttl", 0));
+        } catch (IllegalArgumentException e) {
+          future.setFailure(e);
+          return;
+        }
+        manager.setNearCache(formatKey(name), cache);
+        nearCaches.put(name, cache);
+      }
+    }
+
+    JsonObject mapConfig = container.config().getObject("maps");
+    if (mapConfig != null) {
+      for (String name : mapConfig.getFieldNames()) {
+        try {
+          manager.setMapPolicy(formatKey(name), MapPolicy.fromJson(mapConfig.getObject(name)));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+          future.setFailure(e);
+          return;
+        }
+      }
+    }
+
+    JsonObject listConfig = container.config().getObject("lists");
+    if (listConfig != null) {
+      for (String name : listConfig.getFieldNames()) {
+        manager.setListIndex(formatKey(name), listConfig.getObject(name).getBoolean("index", false));
+      }
+    }
+
+    JsonObject queueConfig = container.config().getObject("queues");
+    if (queueConfig != null) {
+      for (String name : queueConfig.getFieldNames()) {
+        manager.setQueueIndex(formatKey(name), queueConfig.getObject(name).getBoolean("index", false));
+      }
+    }
+
+    try {
+      handles = new HandleCache<>(container.config().getInteger("handleCacheSize", DEFAULT_HANDLE_CACHE_SIZE));
+    } catch (IllegalArgumentException e) {
+      future.setFailure(e);
+      return;
+    }
 
     ClassLoader loader = Thread.currentThread().getContextClassLoader();
 
+    registerDataHandlers();
+    JsonArray dataTypes = container.config().getArray("dataTypes");
+    if (dataTypes != null) {
+      for (Object dataType : dataTypes) {
+        try {
+          ((DataType) loader.loadClass((String) dataType).newInstance()).register(registry, manager, cluster);
+        } catch (Exception e) {
+          future.setFailure(e);
+          return;
+        }
+      }
+    }
+
+    JsonObject processors = container.config().getObject("processors");
+    if (processors != null) {
+      for (String name : processors.getFieldNames()) {
+        try {
+          registry.registerProcessor(name, (ComputeProcessor) loader.loadClass(processors.getString(name)).newInstance());
+        } catch (Exception e) {
+          future.setFailure(e);
+          return;
+        }
+      }
+    }
+
     String sPlatformFactory = container.config().getString("platformFactory", DefaultPlatformManagerFactory.class.getName());
     try {
       Class<?> clazz = loader.loadClass(sPlatformFactory);
@@ -141,7 +340,17 @@ public class Xync extends Verticle {
                           if (result.failed()) {
                             future.setFailure(result.cause());
                           } else {
-                            Xync.super.start(future);
+                            vertx.eventBus().registerHandler(String.format("%s.%s.data", cluster, manager.getNodeId()), dataHandler, new Handler<AsyncResult<Void>>() {
+                              @Override
+                              public void handle(AsyncResult<Void> result) {
+                                if (result.failed()) {
+                                  future.setFailure(result.cause());
+                                } else {
+                                  Xync.super.start(future);
+                                  claimSubscriptions(null);
+                                }
+                              }
+                            });
                           }
                         }
                       });
@@ -158,11 +367,42 @@ public class Xync extends Verticle {
 
   @Override
   public void stop() {
+    stopped = true;
+    // Verticles cannot be stopped asynchronously, so the executor is closed
+    // first to run the final subscription and counter updates synchronously.
+    if (executor != null) {
+      executor.close();
+    }
+    for (Watch watch : watches.values()) {
+      watch.close();
+    }
+    watches.clear();
+    for (Subscription subscription : subscriptions.values()) {
+      subscription.release();
+    }
+    subscriptions.clear();
+    if (counters != null) {
+      counters.close();
+    }
+    if (manager != null) {
+      for (String name : nearCaches.keySet()) {
+        manager.setNearCache(formatKey(name), null);
+      }
+      manager.close();
+    }
     if (platform != null) {
       platform.stop();
     }
   }
 
+  /**
+   * Handles a node leaving the cluster.
+   */
+  protected void handleNodeLeave(String node) {
+    dropWatches(node);
+    rebalanceSubscriptions(node);
+  }
+
   /**
    * Handles a cluster message.
    */
@@ -182,170 +422,19 @@ public class Xync extends Verticle {
         case "undeploy":
           doClusterUndeploy(message);
           break;
+        case "stats":
+          doStats(message);
+          break;
+        case "batch":
+          doBatch(message.body(), createReplyHandler(message));
+          break;
+        case "rebalance":
+          claimSubscriptions(null);
+          break;
         default:
-          String type = message.body().getString("type");
-          if (type == null) {
-            message.reply(new JsonObject().putString("status", "error").putString("message", "No data type specified."));
-            return;
-          }
-
-          switch (type) {
-            case "key":
-              switch (action) {
-                case "get":
-                  doKeyGet(message);
-                  break;
-                case "set":
-                  doKeySet(message);
-                  break;
-                case "delete":
-                  doKeyDelete(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-            case "counter":
-              switch (action) {
-                case "increment":
-                  doCounterIncrement(message);
-                  break;
-                case "decrement":
-                  doCounterDecrement(message);
-                  break;
-                case "get":
-                  doCounterGet(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-            case "map":
-              switch (action) {
-                case "put":
-                  doMapPut(message);
-                  break;
-                case "get":
-                  doMapGet(message);
-                  break;
-                case "remove":
-                  doMapRemove(message);
-                  break;
-                case "contains":
-                  doMapContainsKey(message);
-                  break;
-                case "keys":
-                  doMapKeys(message);
-                  break;
-                case "values":
-                  doMapValues(message);
-                  break;
-                case "empty":
-                  doMapIsEmpty(message);
-                  break;
-                case "clear":
-                  doMapClear(message);
-                  break;
-                case "size":
-                  doMapSize(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-              break;
-            case "list":
-              switch (action) {
-                case "add":
-                  doListAdd(message);
-                  break;
-                case "get":
-                  doListGet(message);
-                  break;
-                case "remove":
-                  doListRemove(message);
-                  break;
-                case "contains":
-                  doListContains(message);
-                  break;
-                case "size":
-                  doListSize(message);
-                  break;
-                case "empty":
-                  doListIsEmpty(message);
-                  break;
-                case "clear":
-                  doListClear(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-              break;
-            case "set":
-              switch (action) {
-                case "add":
-                  doSetAdd(message);
-                  break;
-                case "remove":
-                  doSetRemove(message);
-                  break;
-                case "contains":
-                  doSetContains(message);
-                  break;
-                case "size":
-                  doSetSize(message);
-                  break;
-                case "empty":
-                  doSetIsEmpty(message);
-                  break;
-                case "clear":
-                  doSetClear(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-              break;
-            case "queue":
-              switch (action) {
-                case "add":
-                  doQueueAdd(message);
-                  break;
-                case "remove":
-                  doQueueRemove(message);
-                  break;
-                case "contains":
-                  doQueueContains(message);
-                  break;
-                case "empty":
-                  doQueueIsEmpty(message);
-                  break;
-                case "size":
-                  doQueueSize(message);
-                  break;
-                case "clear":
-                  doQueueClear(message);
-                  break;
-                case "offer":
-                  doQueueOffer(message);
-                  break;
-                case "element":
-                  doQueueElement(message);
-                  break;
-                case "poll":
-                  doQueuePoll(message);
-                  break;
-                case "peek":
-                  doQueuePeek(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-              break;
+          if (!forwardToOwner || !forwardToOwner(message)) {
+            handleDataMessage(message.body(), createReplyHandler(message));
           }
-          message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
           break;
       }
     }
@@ -390,1247 +479,3557 @@ public class Xync extends Verticle {
         case "undeploy":
           doInternalUndeploy(message);
           break;
+        case "stats":
+          doStats(message);
+          break;
+        case "batch":
+          doBatch(message.body(), createReplyHandler(message));
+          break;
         default:
-          String type = message.body().getString("type");
-          if (type == null) {
-            message.reply(new JsonObject().putString("status", "error").putString("message", "No data type specified."));
-            return;
-          }
-
-          switch (type) {
-            case "key":
-              switch (action) {
-                case "get":
-                  doKeyGet(message);
-                  break;
-                case "set":
-                  doKeySet(message);
-                  break;
-                case "delete":
-                  doKeyDelete(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-            case "counter":
-              switch (action) {
-                case "increment":
-                  doCounterIncrement(message);
-                  break;
-                case "decrement":
-                  doCounterDecrement(message);
-                  break;
-                case "get":
-                  doCounterGet(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-            case "map":
-              switch (action) {
-                case "put":
-                  doMapPut(message);
-                  break;
-                case "get":
-                  doMapGet(message);
-                  break;
-                case "remove":
-                  doMapRemove(message);
-                  break;
-                case "contains":
-                  doMapContainsKey(message);
-                  break;
-                case "keys":
-                  doMapKeys(message);
-                  break;
-                case "values":
-                  doMapValues(message);
-                  break;
-                case "empty":
-                  doMapIsEmpty(message);
-                  break;
-                case "clear":
-                  doMapClear(message);
-                  break;
-                case "size":
-                  doMapSize(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-              break;
-            case "list":
-              switch (action) {
-                case "add":
-                  doListAdd(message);
-                  break;
-                case "get":
-                  doListGet(message);
-                  break;
-                case "remove":
-                  doListRemove(message);
-                  break;
-                case "contains":
-                  doListContains(message);
-                  break;
-                case "size":
-                  doListSize(message);
-                  break;
-                case "empty":
-                  doListIsEmpty(message);
-                  break;
-                case "clear":
-                  doListClear(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-              break;
-            case "set":
-              switch (action) {
-                case "add":
-                  doSetAdd(message);
-                  break;
-                case "remove":
-                  doSetRemove(message);
-                  break;
-                case "contains":
-                  doSetContains(message);
-                  break;
-                case "size":
-                  doSetSize(message);
-                  break;
-                case "empty":
-                  doSetIsEmpty(message);
-                  break;
-                case "clear":
-                  doSetClear(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-              break;
-            case "queue":
-              switch (action) {
-                case "add":
-                  doQueueAdd(message);
-                  break;
-                case "remove":
-                  doQueueRemove(message);
-                  break;
-                case "contains":
-                  doQueueContains(message);
-                  break;
-                case "empty":
-                  doQueueIsEmpty(message);
-                  break;
-                case "size":
-                  doQueueSize(message);
-                  break;
-                case "clear":
-                  doQueueClear(message);
-                  break;
-                case "offer":
-                  doQueueOffer(message);
-                  break;
-                case "element":
-                  doQueueElement(message);
-                  break;
-                case "poll":
-                  doQueuePoll(message);
-                  break;
-                case "peek":
-                  doQueuePeek(message);
-                  break;
-                default:
-                  message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
-                  break;
-              }
-              break;
-          }
-          message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+          handleDataMessage(message.body(), createReplyHandler(message));
           break;
       }
     }
   }
 
   /**
-   * Formats a key for the cluster.
-   */
-  private String formatKey(String key) {
-    return String.format("%s.%s", cluster, key);
-  }
-
-  /**
-   * Gets deployment info for a deployment.
-   */
-  private void doClusterInfo(final Message<JsonObject> message) {
-    doInfo(message);
-  }
-
-  /**
-   * Checks whether a deployment is deployed.
+   * Handles a binary data message.
    */
-  private void doClusterCheck(final Message<JsonObject> message) {
-    doCheck(message);
-  }
-
-  /**
-   * Deploys a deployment.
-   */
-  private void doClusterDeploy(final Message<JsonObject> message) {
-    String group = message.body().getString("group");
-    if (group == null) {
-      doInternalDeploy(message);
-    } else {
-      vertx.eventBus().sendWithTimeout(String.format("%s.%s", cluster, group), message.body(), 30000, new Handler<AsyncResult<Message<JsonObject>>>() {
-        @Override
-        public void handle(AsyncResult<Message<JsonObject>> result) {
-          if (result.failed()) {
-              String replyMessage;
-              if(result.cause() instanceof ReplyException) {
-                  ReplyException replyException = (ReplyException) result.cause();
-                  switch (replyException.failureType()){
-                      case NO_HANDLERS:
-                          replyMessage = String.format("Invalid deployment group");
-                          break;
-                      default:
-                          replyMessage = String.format("%s: %s", replyException.failureType(), replyException.getMessage());
-                  }
-              } else {
-                  replyMessage = result.cause().getMessage();
-              }
-              message.reply(new JsonObject().putString("status", "error").putString("message", replyMessage));
+  protected void handleBinaryMessage(final Message<Buffer> message) {
+    BinaryProtocol.Reader reader = new BinaryProtocol.Reader(message.body());
+    try {
+      byte opcode = reader.readByte();
+      String name = reader.readShortString();
+      switch (opcode) {
+        case BinaryProtocol.KEY_GET:
+          manager.<String, Object>getAsyncMap(formatKey("keys")).get(name, new KeyValueHandler(new BinaryResultHandler<Object>(message)));
+          break;
+        case BinaryProtocol.KEY_SET:
+          manager.<String, Object>getAsyncMap(formatKey("keys")).put(name, VersionedValue.encode(reader.readValue(), VersionedValue.nextVersion()), new BinaryAckHandler<Object>(message));
+          break;
+        case BinaryProtocol.KEY_DELETE:
+          manager.<String, Object>getAsyncMap(formatKey("keys")).remove(name, new BinaryAckHandler<Object>(message));
+          break;
+        case BinaryProtocol.MAP_GET:
+          manager.<String, Object>getAsyncMap(formatKey(name)).get(reader.readShortString(), new BinaryResultHandler<Object>(message));
+          break;
+        case BinaryProtocol.MAP_PUT:
+          String key = reader.readShortString();
+          Object value = reader.readValue();
+          if (value == null) {
+            message.reply(BinaryProtocol.createError("No value specified."));
           } else {
-            message.reply(result.result().body());
+            manager.<String, Object>getAsyncMap(formatKey(name)).put(key, value, new BinaryResultHandler<Object>(message));
           }
-        }
-      });
+          break;
+        case BinaryProtocol.MAP_REMOVE:
+          manager.<String, Object>getAsyncMap(formatKey(name)).remove(reader.readShortString(), new BinaryResultHandler<Object>(message));
+          break;
+        case BinaryProtocol.MAP_CONTAINS:
+          manager.<String, Object>getAsyncMap(formatKey(name)).containsKey(reader.readShortString(), new BinaryResultHandler<Boolean>(message));
+          break;
+        case BinaryProtocol.COUNTER_GET:
+          manager.getAsyncCounter(formatKey(String.format("counters.%s", name))).get(new BinaryResultHandler<Long>(message));
+          break;
+        case BinaryProtocol.COUNTER_INCREMENT:
+          manager.getAsyncCounter(formatKey(String.format("counters.%s", name))).addAndGet(1, new BinaryResultHandler<Long>(message));
+          break;
+        case BinaryProtocol.COUNTER_DECREMENT:
+          manager.getAsyncCounter(formatKey(String.format("counters.%s", name))).addAndGet(-1, new BinaryResultHandler<Long>(message));
+          break;
+        case BinaryProtocol.COUNTER_ADD:
+          manager.getAsyncCounter(formatKey(String.format("counters.%s", name))).addAndGet(reader.readLong(), new BinaryResultHandler<Long>(message));
+          break;
+        default:
+          message.reply(BinaryProtocol.createError("Invalid opcode " + opcode));
+          break;
+      }
+    } catch (RuntimeException e) {
+      message.reply(BinaryProtocol.createError("Malformed request."));
     }
   }
 
   /**
-   * Undeploys a deployment.
+   * Handles a data message.
    */
-  private void doClusterUndeploy(final Message<JsonObject> message) {
-    String deploymentID = message.body().getString("id");
-    if (deploymentID == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment ID."));
+  protected void handleDataMessage(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    String action = request.getString("action");
+    if (action == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No action specified."));
       return;
     }
 
-    platform.getAssignment(deploymentID, new Handler<AsyncResult<String>>() {
-      @Override
-      public void handle(AsyncResult<String> result) {
-        if (result.failed()) {
-          message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
-        } else {
-          vertx.eventBus().sendWithTimeout(result.result(), message.body(), 30000, new Handler<AsyncResult<Message<JsonObject>>>() {
-            @Override
-            public void handle(AsyncResult<Message<JsonObject>> result) {
-              if (result.failed()) {
-                message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
-              } else {
-                message.reply(result.result().body());
-              }
-            }
-          });
-        }
-      }
-    });
-  }
-
-  /**
-   * Gets info for a deployment.
-   */
-  private void doInfo(final Message<JsonObject> message) {
-    String deploymentID = message.body().getString("id");
-    if (deploymentID == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment ID."));
+    String type = request.getString("type");
+    if (type == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No data type specified."));
       return;
     }
 
-    platform.getDeploymentInfo(deploymentID, new Handler<AsyncResult<JsonObject>>() {
-      @Override
-      public void handle(AsyncResult<JsonObject> result) {
-        if (result.failed()) {
-          message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
-        } else {
-          message.reply(new JsonObject().putString("status", "ok").putObject("result", result.result()));
-        }
-      }
-    });
+    DataHandler handler = registry.lookup(type, action);
+    if (handler != null) {
+      handler.handle(request, replyHandler);
+    } else if (registry.hasType(type)) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+    } else {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid data type " + type));
+    }
   }
 
   /**
-   * Checks whether a deployment is deployed.
+   * Forwards a single key data message to the node that owns the key.<p>
+   *
+   * The message is sent to the owner's data address, where the operation
+   * is run against the local partition. Operations on handles, on maps with
+   * near caches, on keys when the <code>keys</code> near cache is configured,
+   * and on keys owned by this node are not forwarded.
+   *
+   * @return Indicates whether the message was forwarded.
    */
-  private void doCheck(final Message<JsonObject> message) {
-    String deploymentID = message.body().getString("id");
-    if (deploymentID == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment ID."));
-      return;
+  private boolean forwardToOwner(final Message<JsonObject> message) {
+    JsonObject request = message.body();
+    String type = request.getString("type");
+    String action = request.getString("action");
+    if (type == null || request.containsField("handle") || "watch".equals(action) || "unwatch".equals(action)
+        || "subscribe".equals(action) || "unsubscribe".equals(action)) {
+      return false;
     }
 
-    platform.isDeployed(deploymentID, new Handler<AsyncResult<Boolean>>() {
-      @Override
-      public void handle(AsyncResult<Boolean> result) {
-        if (result.failed()) {
-          message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
-        } else {
-          message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result.result()));
-        }
-      }
-    });
-  }
-
-  /**
-   * Deploys a deployment.
-   */
-  private void doInternalDeploy(final Message<JsonObject> message) {
-    String type = message.body().getString("type");
+    Object key;
     switch (type) {
-      case "module":
-        doDeployModule(message);
+      case "key":
+        key = nearCaches.containsKey("keys") ? null : request.getString("name");
         break;
-      case "verticle":
-        doDeployVerticle(message);
+      case "map":
+        key = nearCaches.containsKey(request.getString("name")) ? null : request.getValue("key");
         break;
       default:
-        message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment type."));
+        key = null;
         break;
     }
-  }
-
-  /**
-   * Handles deployment of a module.
-   */
-  private void doDeployModule(final Message<JsonObject> message) {
-    final String deploymentID = message.body().getString("id");
-    if (deploymentID == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No deployment ID specified."));
-      return;
+    if (key == null) {
+      return false;
     }
 
-    String module = message.body().getString("module");
-    if (module == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No module name specified."));
-      return;
+    String owner = manager.getPartitionOwner(key);
+    if (owner == null || owner.equals(manager.getNodeId())) {
+      return false;
     }
 
-    JsonObject config = message.body().getObject("config");
-    int instances = message.body().getInteger("instances", 1);
-    boolean ha = message.body().getBoolean("ha", false);
-
-    platform.deployModuleAs(deploymentID, module, config, instances, ha, new Handler<AsyncResult<String>>() {
+    forwarded++;
+    vertx.eventBus().sendWithTimeout(String.format("%s.%s.data", cluster, owner), request, DEFAULT_FORWARD_TIMEOUT, new Handler<AsyncResult<Message<JsonObject>>>() {
       @Override
-      public void handle(AsyncResult<String> result) {
+      public void handle(AsyncResult<Message<JsonObject>> result) {
         if (result.failed()) {
-          message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          if (result.cause() instanceof ReplyException && ((ReplyException) result.cause()).failureType() == ReplyFailure.NO_HANDLERS) {
+            // The owner is not running Xync, so run the operation here instead.
+            handleDataMessage(message.body(), createReplyHandler(message));
+          } else {
+            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          }
         } else {
-          message.reply(new JsonObject().putString("status", "ok").putString("id", result.result()));
+          message.reply(result.result().body());
         }
       }
     });
+    return true;
   }
 
   /**
-   * Handles deployment of a verticle.
+   * Registers handlers for the built-in data types.
    */
-  private void doDeployVerticle(final Message<JsonObject> message) {
-    final String deploymentID = message.body().getString("id");
-    if (deploymentID == null) {
+  private void registerDataHandlers() {
+    for (String type : new String[]{"map", "list", "set", "queue", "counter"}) {
+      registry.register(type, "open", new DataHandler() {
+        @Override
+        public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+          doOpen(request, replyHandler);
+        }
+      });
+    }
+    for (String type : new String[]{"key", "map"}) {
+      registry.register(type, "watch", new DataHandler() {
+        @Override
+        public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+          doWatch(request, replyHandler);
+        }
+      });
+      registry.register(type, "unwatch", new DataHandler() {
+        @Override
+        public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+          doUnwatch(request, replyHandler);
+        }
+      });
+    }
+    registry.register("key", "get", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doKeyGet(request, replyHandler);
+      }
+    });
+    registry.register("key", "set", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doKeySet(request, replyHandler);
+      }
+    });
+    registry.register("key", "delete", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doKeyDelete(request, replyHandler);
+      }
+    });
+    registry.register("key", "cas", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doKeyCas(request, replyHandler);
+      }
+    });
+    registry.register("counter", "increment", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doCounterIncrement(request, replyHandler);
+      }
+    });
+    registry.register("counter", "decrement", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doCounterDecrement(request, replyHandler);
+      }
+    });
+    registry.register("counter", "get", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doCounterGet(request, replyHandler);
+      }
+    });
+    registry.register("counter", "add", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doCounterAdd(request, replyHandler);
+      }
+    });
+    registry.register("counter", "getAndAdd", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doCounterGetAndAdd(request, replyHandler);
+      }
+    });
+    registry.register("counter", "compareAndSet", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doCounterCompareAndSet(request, replyHandler);
+      }
+    });
+    registry.register("map", "put", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapPut(request, replyHandler);
+      }
+    });
+    registry.register("map", "get", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapGet(request, replyHandler);
+      }
+    });
+    registry.register("map", "remove", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapRemove(request, replyHandler);
+      }
+    });
+    registry.register("map", "putIfAbsent", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapPutIfAbsent(request, replyHandler);
+      }
+    });
+    registry.register("map", "replace", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapReplace(request, replyHandler);
+      }
+    });
+    registry.register("map", "replaceIfEquals", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapReplaceIfEquals(request, replyHandler);
+      }
+    });
+    registry.register("map", "removeIfEquals", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapRemoveIfEquals(request, replyHandler);
+      }
+    });
+    registry.register("map", "contains", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapContainsKey(request, replyHandler);
+      }
+    });
+    registry.register("map", "keys", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapKeys(request, replyHandler);
+      }
+    });
+    registry.register("map", "values", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapValues(request, replyHandler);
+      }
+    });
+    registry.register("map", "entries", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapPage(request, replyHandler);
+      }
+    });
+    registry.register("map", "empty", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapIsEmpty(request, replyHandler);
+      }
+    });
+    registry.register("map", "clear", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapClear(request, replyHandler);
+      }
+    });
+    registry.register("map", "stream", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapStream(request, replyHandler);
+      }
+    });
+    registry.register("map", "size", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapSize(request, replyHandler);
+      }
+    });
+    registry.register("map", "getAll", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapGetAll(request, replyHandler);
+      }
+    });
+    registry.register("map", "putAll", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapPutAll(request, replyHandler);
+      }
+    });
+    registry.register("map", "removeAll", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapRemoveAll(request, replyHandler);
+      }
+    });
+    registry.register("map", "containsAll", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapContainsAll(request, replyHandler);
+      }
+    });
+    registry.register("map", "compute", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapCompute(request, replyHandler);
+      }
+    });
+    registry.register("map", "configure", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doMapConfigure(request, replyHandler);
+      }
+    });
+    registry.register("list", "add", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListAdd(request, replyHandler);
+      }
+    });
+    registry.register("list", "get", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListGet(request, replyHandler);
+      }
+    });
+    registry.register("list", "range", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListRange(request, replyHandler);
+      }
+    });
+    registry.register("list", "slice", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListRange(request, replyHandler);
+      }
+    });
+    registry.register("list", "remove", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListRemove(request, replyHandler);
+      }
+    });
+    registry.register("list", "contains", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListContains(request, replyHandler);
+      }
+    });
+    registry.register("list", "size", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListSize(request, replyHandler);
+      }
+    });
+    registry.register("list", "empty", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListIsEmpty(request, replyHandler);
+      }
+    });
+    registry.register("list", "clear", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListClear(request, replyHandler);
+      }
+    });
+    registry.register("list", "stream", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doListStream(request, replyHandler);
+      }
+    });
+    registry.register("set", "add", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doSetAdd(request, replyHandler);
+      }
+    });
+    registry.register("set", "remove", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doSetRemove(request, replyHandler);
+      }
+    });
+    registry.register("set", "contains", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doSetContains(request, replyHandler);
+      }
+    });
+    registry.register("set", "size", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doSetSize(request, replyHandler);
+      }
+    });
+    registry.register("set", "empty", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doSetIsEmpty(request, replyHandler);
+      }
+    });
+    registry.register("set", "clear", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doSetClear(request, replyHandler);
+      }
+    });
+    registry.register("set", "stream", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doSetStream(request, replyHandler);
+      }
+    });
+    registry.register("queue", "add", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueAdd(request, replyHandler);
+      }
+    });
+    registry.register("queue", "remove", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueRemove(request, replyHandler);
+      }
+    });
+    registry.register("queue", "contains", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueContains(request, replyHandler);
+      }
+    });
+    registry.register("queue", "empty", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueIsEmpty(request, replyHandler);
+      }
+    });
+    registry.register("queue", "size", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueSize(request, replyHandler);
+      }
+    });
+    registry.register("queue", "clear", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueClear(request, replyHandler);
+      }
+    });
+    registry.register("queue", "stream", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueStream(request, replyHandler);
+      }
+    });
+    registry.register("queue", "offer", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueOffer(request, replyHandler);
+      }
+    });
+    registry.register("queue", "offerAll", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueOfferAll(request, replyHandler);
+      }
+    });
+    registry.register("queue", "element", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueElement(request, replyHandler);
+      }
+    });
+    registry.register("queue", "poll", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueuePoll(request, replyHandler);
+      }
+    });
+    registry.register("queue", "take", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueTake(request, replyHandler);
+      }
+    });
+    registry.register("queue", "drain", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueDrain(request, replyHandler);
+      }
+    });
+    registry.register("queue", "subscribe", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueSubscribe(request, replyHandler);
+      }
+    });
+    registry.register("queue", "unsubscribe", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueUnsubscribe(request, replyHandler);
+      }
+    });
+    registry.register("queue", "peek", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueuePeek(request, replyHandler);
+      }
+    });
+    registry.register("queue", "range", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueRange(request, replyHandler);
+      }
+    });
+    registry.register("queue", "slice", new DataHandler() {
+      @Override
+      public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+        doQueueRange(request, replyHandler);
+      }
+    });
+  }
+
+  /**
+   * Creates a handler that replies to a message.
+   */
+  private Handler<JsonObject> createReplyHandler(final Message<JsonObject> message) {
+    return new Handler<JsonObject>() {
+      @Override
+      public void handle(JsonObject reply) {
+        message.reply(reply);
+      }
+    };
+  }
+
+  /**
+   * Formats a key for the cluster.
+   */
+  private String formatKey(String key) {
+    return String.format("%s.%s", cluster, key);
+  }
+
+  /**
+   * Returns the name of a data structure, replying with an error
+   * if no name was specified.
+   */
+  private String getName(JsonObject request, Handler<JsonObject> replyHandler) {
+    String name = request.getString("name");
+    if (name == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+    }
+    return name;
+  }
+
+  /**
+   * Resolves the data structure to which a request's handle refers, replying
+   * with an error if the handle is not open or refers to another type.
+   */
+  private <T> T getHandle(JsonObject request, Class<T> type, Handler<JsonObject> replyHandler) {
+    Object structure = handles.get(request.getInteger("handle"));
+    if (!type.isInstance(structure)) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid handle " + request.getInteger("handle")));
+      return null;
+    }
+    return type.cast(structure);
+  }
+
+  /**
+   * Resolves the map for a request by handle or by name.
+   */
+  @SuppressWarnings("unchecked")
+  private AsyncMap<Object, Object> getMap(JsonObject request, Handler<JsonObject> replyHandler) {
+    if (request.containsField("handle")) {
+      return getHandle(request, AsyncMap.class, replyHandler);
+    }
+    String name = getName(request, replyHandler);
+    return name != null ? manager.<Object, Object>getAsyncMap(formatKey(name)) : null;
+  }
+
+  /**
+   * Resolves the list for a request by handle or by name.
+   */
+  @SuppressWarnings("unchecked")
+  private AsyncList<Object> getList(JsonObject request, Handler<JsonObject> replyHandler) {
+    if (request.containsField("handle")) {
+      return getHandle(request, AsyncList.class, replyHandler);
+    }
+    String name = getName(request, replyHandler);
+    return name != null ? manager.<Object>getAsyncList(formatKey(name)) : null;
+  }
+
+  /**
+   * Resolves the set for a request by handle or by name.
+   */
+  @SuppressWarnings("unchecked")
+  private AsyncSet<Object> getSet(JsonObject request, Handler<JsonObject> replyHandler) {
+    if (request.containsField("handle")) {
+      return getHandle(request, AsyncSet.class, replyHandler);
+    }
+    String name = getName(request, replyHandler);
+    return name != null ? manager.<Object>getAsyncSet(formatKey(name)) : null;
+  }
+
+  /**
+   * Resolves the queue for a request by handle or by name.
+   */
+  @SuppressWarnings("unchecked")
+  private AsyncQueue<Object> getQueue(JsonObject request, Handler<JsonObject> replyHandler) {
+    if (request.containsField("handle")) {
+      return getHandle(request, AsyncQueue.class, replyHandler);
+    }
+    String name = getName(request, replyHandler);
+    return name != null ? manager.<Object>getAsyncQueue(formatKey(name)) : null;
+  }
+
+  /**
+   * Resolves the counter for a request by handle or by name.
+   */
+  private AsyncCounter getCounter(JsonObject request, Handler<JsonObject> replyHandler) {
+    if (request.containsField("handle")) {
+      return getHandle(request, AsyncCounter.class, replyHandler);
+    }
+    String name = getName(request, replyHandler);
+    return name != null ? manager.getAsyncCounter(formatKey(String.format("counters.%s", name))) : null;
+  }
+
+  /**
+   * Handles opening a handle to a data structure.<p>
+   *
+   * Handles are only valid on the node that opened them, so the reply
+   * includes the node address to which requests using the handle should
+   * be sent.
+   */
+  private void doOpen(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String type = request.getString("type");
+    final String name = getName(request, replyHandler);
+    if (name == null) {
+      return;
+    }
+
+    String key = String.format("%s:%s", type, name);
+    Integer handle = handles.lookup(key);
+    if (handle == null) {
+      Object structure;
+      switch (type) {
+        case "map":
+          structure = manager.getAsyncMap(formatKey(name));
+          break;
+        case "list":
+          structure = manager.getAsyncList(formatKey(name));
+          break;
+        case "set":
+          structure = manager.getAsyncSet(formatKey(name));
+          break;
+        case "queue":
+          structure = manager.getAsyncQueue(formatKey(name));
+          break;
+        default:
+          structure = manager.getAsyncCounter(formatKey(String.format("counters.%s", name)));
+          break;
+      }
+      handle = handles.open(key, structure);
+    }
+    replyHandler.handle(new JsonObject().putString("status", "ok").putNumber("result", handle).putString("address", address));
+  }
+
+  /**
+   * Handles watching keys or map entries for changes.<p>
+   *
+   * Watches are held by this verticle, so the reply includes the address
+   * to which the <code>unwatch</code> request must be sent.
+   */
+  private void doWatch(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String address = request.getString("address");
+    if (address == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No address specified."));
+      return;
+    }
+
+    final Watch watch = new Watch();
+    watch.address = address;
+    watch.prefix = request.getString("prefix");
+    watch.window = request.getLong("window", watchWindow);
+    watch.node = request.getString("node");
+    Object key;
+    if (request.getString("type").equals("key")) {
+      key = request.getString("name");
+      if (key == null && watch.prefix == null) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No name or prefix specified."));
+        return;
+      }
+      watch.keys = true;
+      watch.map = formatKey("keys");
+    } else {
+      String name = getName(request, replyHandler);
+      if (name == null) {
+        return;
+      }
+      key = request.getValue("key");
+      watch.map = formatKey(name);
+    }
+
+    try {
+      watch.listener = manager.addMapListener(watch.map, key, new Handler<MapEvent<Object, Object>>() {
+        @Override
+        public void handle(MapEvent<Object, Object> event) {
+          watch.handle(event);
+        }
+      });
+    } catch (Exception e) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+      return;
+    }
+    watches.put(watch.id, watch);
+    replyHandler.handle(new JsonObject().putString("status", "ok").putString("result", watch.id).putString("address", this.address));
+  }
+
+  /**
+   * Handles cancelling a watch.
+   */
+  private void doUnwatch(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    String id = request.getString("watch");
+    if (id == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No watch specified."));
+      return;
+    }
+
+    Watch watch = watches.remove(id);
+    if (watch == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Unknown watch " + id));
+      return;
+    }
+    watch.close();
+    replyHandler.handle(new JsonObject().putString("status", "ok"));
+  }
+
+  /**
+   * Drops all watches whose subscriber was on a node that left the cluster.
+   */
+  private void dropWatches(String node) {
+    Iterator<Watch> iterator = watches.values().iterator();
+    while (iterator.hasNext()) {
+      Watch watch = iterator.next();
+      if (node.equals(watch.node)) {
+        iterator.remove();
+        watch.close();
+      }
+    }
+  }
+
+  /**
+   * Gets node statistics.
+   */
+  private void doStats(final Message<JsonObject> message) {
+    JsonObject stats = new JsonObject()
+        .putString("node", manager.getNodeId())
+        .putString("address", address)
+        .putObject("executor", executor.getStats())
+        .putObject("counters", counters.getStats());
+    JsonObject caches = new JsonObject();
+    for (Map.Entry<String, NearCache<Object, Object>> entry : nearCaches.entrySet()) {
+      caches.putObject(entry.getKey(), entry.getValue().getStats());
+    }
+    stats.putObject("nearCaches", caches);
+    JsonObject maps = new JsonObject();
+    String prefix = formatKey("");
+    for (Map.Entry<String, MapPolicy> entry : manager.getMapPolicies().entrySet()) {
+      if (entry.getKey().startsWith(prefix)) {
+        maps.putObject(entry.getKey().substring(prefix.length()), entry.getValue().toJson()
+            .putNumber("evictions", manager.getEvictions(entry.getKey())));
+      }
+    }
+    stats.putObject("maps", maps);
+    stats.putObject("handles", handles.getStats());
+    stats.putNumber("forwarded", forwarded);
+    stats.putNumber("watches", watches.size());
+    stats.putNumber("subscriptions", subscriptions.size());
+    message.reply(new JsonObject().putString("status", "ok").putObject("result", stats));
+  }
+
+  /**
+   * Gets deployment info for a deployment.
+   */
+  private void doClusterInfo(final Message<JsonObject> message) {
+    doInfo(message);
+  }
+
+  /**
+   * Checks whether a deployment is deployed.
+   */
+  private void doClusterCheck(final Message<JsonObject> message) {
+    doCheck(message);
+  }
+
+  /**
+   * Deploys a deployment.
+   */
+  private void doClusterDeploy(final Message<JsonObject> message) {
+    String group = message.body().getString("group");
+    if (group == null) {
+      doInternalDeploy(message);
+    } else {
+      vertx.eventBus().sendWithTimeout(String.format("%s.%s", cluster, group), message.body(), 30000, new Handler<AsyncResult<Message<JsonObject>>>() {
+        @Override
+        public void handle(AsyncResult<Message<JsonObject>> result) {
+          if (result.failed()) {
+              String replyMessage;
+              if(result.cause() instanceof ReplyException) {
+                  ReplyException replyException = (ReplyException) result.cause();
+                  switch (replyException.failureType()){
+                      case NO_HANDLERS:
+                          replyMessage = String.format("Invalid deployment group");
+                          break;
+                      default:
+                          replyMessage = String.format("%s: %s", replyException.failureType(), replyException.getMessage());
+                  }
+              } else {
+                  replyMessage = result.cause().getMessage();
+              }
+              message.reply(new JsonObject().putString("status", "error").putString("message", replyMessage));
+          } else {
+            message.reply(result.result().body());
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Undeploys a deployment.
+   */
+  private void doClusterUndeploy(final Message<JsonObject> message) {
+    String deploymentID = message.body().getString("id");
+    if (deploymentID == null) {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment ID."));
+      return;
+    }
+
+    platform.getAssignment(deploymentID, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        if (result.failed()) {
+          message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          vertx.eventBus().sendWithTimeout(result.result(), message.body(), 30000, new Handler<AsyncResult<Message<JsonObject>>>() {
+            @Override
+            public void handle(AsyncResult<Message<JsonObject>> result) {
+              if (result.failed()) {
+                message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+              } else {
+                message.reply(result.result().body());
+              }
+            }
+          });
+        }
+      }
+    });
+  }
+
+  /**
+   * Gets info for a deployment.
+   */
+  private void doInfo(final Message<JsonObject> message) {
+    String deploymentID = message.body().getString("id");
+    if (deploymentID == null) {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment ID."));
+      return;
+    }
+
+    platform.getDeploymentInfo(deploymentID, new Handler<AsyncResult<JsonObject>>() {
+      @Override
+      public void handle(AsyncResult<JsonObject> result) {
+        if (result.failed()) {
+          message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          message.reply(new JsonObject().putString("status", "ok").putObject("result", result.result()));
+        }
+      }
+    });
+  }
+
+  /**
+   * Checks whether a deployment is deployed.
+   */
+  private void doCheck(final Message<JsonObject> message) {
+    String deploymentID = message.body().getString("id");
+    if (deploymentID == null) {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment ID."));
+      return;
+    }
+
+    platform.isDeployed(deploymentID, new Handler<AsyncResult<Boolean>>() {
+      @Override
+      public void handle(AsyncResult<Boolean> result) {
+        if (result.failed()) {
+          message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result.result()));
+        }
+      }
+    });
+  }
+
+  /**
+   * Deploys a deployment.
+   */
+  private void doInternalDeploy(final Message<JsonObject> message) {
+    String type = message.body().getString("type");
+    switch (type) {
+      case "module":
+        doDeployModule(message);
+        break;
+      case "verticle":
+        doDeployVerticle(message);
+        break;
+      default:
+        message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment type."));
+        break;
+    }
+  }
+
+  /**
+   * Handles deployment of a module.
+   */
+  private void doDeployModule(final Message<JsonObject> message) {
+    final String deploymentID = message.body().getString("id");
+    if (deploymentID == null) {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "No deployment ID specified."));
+      return;
+    }
+
+    String module = message.body().getString("module");
+    if (module == null) {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "No module name specified."));
+      return;
+    }
+
+    JsonObject config = message.body().getObject("config");
+    int instances = message.body().getInteger("instances", 1);
+    boolean ha = message.body().getBoolean("ha", false);
+
+    platform.deployModuleAs(deploymentID, module, config, instances, ha, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        if (result.failed()) {
+          message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          message.reply(new JsonObject().putString("status", "ok").putString("id", result.result()));
+        }
+      }
+    });
+  }
+
+  /**
+   * Handles deployment of a verticle.
+   */
+  private void doDeployVerticle(final Message<JsonObject> message) {
+    final String deploymentID = message.body().getString("id");
+    if (deploymentID == null) {
       message.reply(new JsonObject().putString("status", "error").putString("message", "No deployment ID specified."));
       return;
     }
 
-    String main = message.body().getString("main");
-    if (main == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No verticle main specified."));
+    String main = message.body().getString("main");
+    if (main == null) {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "No verticle main specified."));
+      return;
+    }
+
+    JsonObject config = message.body().getObject("config");
+    int instances = message.body().getInteger("instances", 1);
+    boolean worker = message.body().getBoolean("worker", false);
+    boolean ha = message.body().getBoolean("ha", false);
+
+    if (worker) {
+      boolean multiThreaded = message.body().getBoolean("multi-threaded", false);
+      platform.deployWorkerVerticleAs(deploymentID, main, config, instances, multiThreaded, ha, new Handler<AsyncResult<String>>() {
+        @Override
+        public void handle(AsyncResult<String> result) {
+          if (result.failed()) {
+            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          } else {
+            message.reply(new JsonObject().putString("status", "ok").putString("id", result.result()));
+          }
+        }
+      });
+    } else {
+      platform.deployVerticleAs(deploymentID, main, config, instances, ha, new Handler<AsyncResult<String>>() {
+        @Override
+        public void handle(AsyncResult<String> result) {
+          if (result.failed()) {
+            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          } else {
+            message.reply(new JsonObject().putString("status", "ok").putString("id", result.result()));
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Undeploys a deployment.
+   */
+  private void doInternalUndeploy(final Message<JsonObject> message) {
+    String type = message.body().getString("type");
+    if (type == null) {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment type."));
+      return;
+    }
+
+    String deploymentID = message.body().getString("id");
+    if (deploymentID == null) {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment ID."));
+      return;
+    }
+
+    if (type.equals("module")) {
+      platform.undeployModuleAs(deploymentID, new Handler<AsyncResult<Void>>() {
+        @Override
+        public void handle(AsyncResult<Void> result) {
+          if (result.failed()) {
+            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          } else {
+            message.reply(new JsonObject().putString("status", "ok"));
+          }
+        }
+      });
+    } else if (type.equals("verticle")) {
+      platform.undeployVerticleAs(deploymentID, new Handler<AsyncResult<Void>>() {
+        @Override
+        public void handle(AsyncResult<Void> result) {
+          if (result.failed()) {
+            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          } else {
+            message.reply(new JsonObject().putString("status", "ok"));
+          }
+        }
+      });
+    } else {
+      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment type."));
+    }
+  }
+
+  /**
+   * Handles a batch of data operations.
+   */
+  private void doBatch(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    JsonArray operations = request.getArray("operations");
+    if (operations == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No operations specified."));
+      return;
+    }
+    new Batch(operations, request.getBoolean("stopOnError", false), replyHandler).next();
+  }
+
+  /**
+   * Handles streaming a cluster map.
+   */
+  private void doMapStream(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final String read = request.getString("read", "entries");
+    if (!read.equals("keys") && !read.equals("values") && !read.equals("entries")) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid read " + read));
+      return;
+    }
+
+    doStream(request, new Stream() {
+      @Override
+      protected void read(String cursor, int limit, final Handler<AsyncResult<Page<Object>>> resultHandler) {
+        map.keyPage(cursor, limit, new Handler<AsyncResult<Page<Object>>>() {
+          @Override
+          public void handle(AsyncResult<Page<Object>> result) {
+            if (result.failed() || read.equals("keys")) {
+              resultHandler.handle(result);
+              return;
+            }
+
+            final Page<Object> page = result.result();
+            map.getAll(new LinkedHashSet<>(page.items()), new Handler<AsyncResult<Map<Object, Object>>>() {
+              @Override
+              public void handle(AsyncResult<Map<Object, Object>> result) {
+                if (result.failed()) {
+                  new DefaultFutureResult<Page<Object>>(result.cause()).setHandler(resultHandler);
+                  return;
+                }
+
+                List<Object> items = new ArrayList<>(page.items().size());
+                for (Object key : page.items()) {
+                  Object value = result.result().get(key);
+                  if (value != null) {
+                    items.add(read.equals("values") ? value : new JsonObject().putValue("key", key).putValue("value", value));
+                  }
+                }
+                new DefaultFutureResult<Page<Object>>(new Page<Object>(items, page.cursor())).setHandler(resultHandler);
+              }
+            });
+          }
+        });
+      }
+    }, replyHandler);
+  }
+
+  /**
+   * Handles streaming a cluster list.
+   */
+  private void doListStream(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
+    }
+    doCollectionStream(request, list, replyHandler);
+  }
+
+  /**
+   * Handles streaming a cluster set.
+   */
+  private void doSetStream(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    if (manager instanceof HazelcastClusterManager) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Hazelcast sets cannot be streamed."));
+      return;
+    }
+
+    final AsyncSet<Object> set = getSet(request, replyHandler);
+    if (set == null) {
+      return;
+    }
+    doCollectionStream(request, set, replyHandler);
+  }
+
+  /**
+   * Handles streaming a cluster queue.
+   */
+  private void doQueueStream(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    if (manager instanceof HazelcastClusterManager) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Hazelcast queues cannot be streamed."));
+      return;
+    }
+
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
+      return;
+    }
+    doCollectionStream(request, queue, replyHandler);
+  }
+
+  /**
+   * Streams the items in a collection.
+   */
+  private void doCollectionStream(final JsonObject request, final AsyncCollection<Object> collection, final Handler<JsonObject> replyHandler) {
+    doStream(request, new Stream() {
+      @Override
+      protected void read(String cursor, int limit, Handler<AsyncResult<Page<Object>>> resultHandler) {
+        collection.page(cursor, limit, resultHandler);
+      }
+    }, replyHandler);
+  }
+
+  /**
+   * Starts a stream to the requested address.
+   */
+  private void doStream(final JsonObject request, final Stream stream, final Handler<JsonObject> replyHandler) {
+    String address = request.getString("address");
+    if (address == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No address specified."));
+      return;
+    }
+
+    int chunkSize = request.getInteger("chunkSize", DEFAULT_CHUNK_SIZE);
+    if (chunkSize <= 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid chunk size."));
+      return;
+    }
+
+    int credits = request.getInteger("credits", 1);
+    if (credits <= 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid credits."));
+      return;
+    }
+
+    stream.address = address;
+    stream.chunkSize = chunkSize;
+    stream.credits = credits;
+    stream.timeout = request.getLong("timeout", DEFAULT_STREAM_TIMEOUT);
+    replyHandler.handle(new JsonObject().putString("status", "ok").putString("result", stream.id));
+    stream.next();
+  }
+
+  /**
+   * Handles setting a key.
+   */
+  private void doKeySet(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String key = request.getString("name");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    final Object value = request.getValue("value");
+    final long version = VersionedValue.nextVersion();
+
+    manager.getAsyncMap(formatKey("keys")).put(key, VersionedValue.encode(value, version), request.getLong("ttl", 0), request.getLong("maxIdle", 0), new Handler<AsyncResult<Object>>() {
+      @Override
+      public void handle(AsyncResult<Object> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          replyHandler.handle(new JsonObject().putString("status", "ok").putNumber("version", version));
+        }
+      }
+    });
+  }
+
+  /**
+   * Handles getting a key.
+   */
+  private void doKeyGet(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String key = request.getString("name");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    manager.getAsyncMap(formatKey("keys")).get(key, new Handler<AsyncResult<Object>>() {
+      @Override
+      public void handle(AsyncResult<Object> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          VersionedValue value = VersionedValue.decode(result.result());
+          replyHandler.handle(new JsonObject().putString("status", "ok")
+              .putValue("result", value.value())
+              .putNumber("version", value.version()));
+        }
+      }
+    });
+  }
+
+  /**
+   * Handles deleting a key.
+   */
+  private void doKeyDelete(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String key = request.getString("name");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    manager.getAsyncMap(formatKey("keys")).remove(key, new AckHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Handles a key compare-and-set.
+   */
+  private void doKeyCas(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String key = request.getString("name");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    final Number version = request.getNumber("version");
+    if (version == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No version specified."));
+      return;
+    }
+
+    final Object value = request.getValue("value");
+
+    manager.getAsyncMap(formatKey("keys")).executeOnKey(key, new KeyCasProcessor(version.longValue(), value, VersionedValue.nextVersion()), new Handler<AsyncResult<Object>>() {
+      @Override
+      public void handle(AsyncResult<Object> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          replyHandler.handle(((JsonObject) result.result()).putString("status", "ok"));
+        }
+      }
+    });
+  }
+
+  /**
+   * Handles getting a counter.
+   */
+  private void doCounterGet(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncCounter counter = getCounter(request, replyHandler);
+    if (counter == null) {
+      return;
+    }
+
+    final boolean buffered = request.getBoolean("buffered", false);
+    counter.get(new Handler<AsyncResult<Long>>() {
+      @Override
+      public void handle(AsyncResult<Long> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          long pending = counters.pending(counter.name());
+          replyHandler.handle(new JsonObject().putString("status", "ok")
+              .putNumber("result", buffered ? result.result() + pending : result.result())
+              .putBoolean("buffered", buffered)
+              .putNumber("pending", pending));
+        }
+      }
+    });
+  }
+
+  /**
+   * Handles incrementing a counter.
+   */
+  private void doCounterIncrement(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncCounter counter = getCounter(request, replyHandler);
+    if (counter == null) {
+      return;
+    }
+
+    if (request.getBoolean("buffered", false)) {
+      counters.add(counter.name(), 1);
+      replyHandler.handle(new JsonObject().putString("status", "ok").putBoolean("buffered", true));
+      return;
+    }
+
+    counter.addAndGet(1, new ResultHandler<Long>(replyHandler));
+  }
+
+  /**
+   * Handles decrementing a counter.
+   */
+  private void doCounterDecrement(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncCounter counter = getCounter(request, replyHandler);
+    if (counter == null) {
+      return;
+    }
+
+    if (request.getBoolean("buffered", false)) {
+      counters.add(counter.name(), -1);
+      replyHandler.handle(new JsonObject().putString("status", "ok").putBoolean("buffered", true));
+      return;
+    }
+
+    counter.addAndGet(-1, new ResultHandler<Long>(replyHandler));
+  }
+
+  /**
+   * Handles adding to a counter.
+   */
+  private void doCounterAdd(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncCounter counter = getCounter(request, replyHandler);
+    if (counter == null) {
+      return;
+    }
+
+    final Long delta = request.getLong("delta");
+    if (delta == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No delta specified."));
+      return;
+    }
+
+    if (request.getBoolean("buffered", false)) {
+      counters.add(counter.name(), delta);
+      replyHandler.handle(new JsonObject().putString("status", "ok").putBoolean("buffered", true));
+      return;
+    }
+
+    counter.addAndGet(delta, new ResultHandler<Long>(replyHandler));
+  }
+
+  /**
+   * Handles adding to a counter and returning the previous value.
+   */
+  private void doCounterGetAndAdd(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncCounter counter = getCounter(request, replyHandler);
+    if (counter == null) {
+      return;
+    }
+
+    final Long delta = request.getLong("delta");
+    if (delta == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No delta specified."));
+      return;
+    }
+
+    counter.getAndAdd(delta, new ResultHandler<Long>(replyHandler));
+  }
+
+  /**
+   * Handles setting a counter if it equals an expected value.
+   */
+  private void doCounterCompareAndSet(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncCounter counter = getCounter(request, replyHandler);
+    if (counter == null) {
+      return;
+    }
+
+    final Long expect = request.getLong("expect");
+    if (expect == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No expected value specified."));
+      return;
+    }
+
+    final Long update = request.getLong("update");
+    if (update == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No update value specified."));
+      return;
+    }
+
+    counter.compareAndSet(expect, update, new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map put command.
+   */
+  private void doMapPut(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final Object key = request.getValue("key");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
+    }
+
+    map.put(key, value, request.getLong("ttl", 0), request.getLong("maxIdle", 0), new ResultHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map get command.
+   */
+  private void doMapGet(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final String key = request.getString("key");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    map.get(key, new ResultHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map remove command.
+   */
+  private void doMapRemove(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final String key = request.getString("key");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    map.remove(key, new ResultHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map put if absent command.
+   */
+  private void doMapPutIfAbsent(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final Object key = request.getValue("key");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
+    }
+
+    map.putIfAbsent(key, value, new ResultHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map replace command.
+   */
+  private void doMapReplace(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final Object key = request.getValue("key");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
+    }
+
+    map.replace(key, value, new ResultHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map replace if equals command.
+   */
+  private void doMapReplaceIfEquals(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final Object key = request.getValue("key");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    final Object expect = request.getValue("expect");
+    if (expect == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No expected value specified."));
+      return;
+    }
+
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
+    }
+
+    map.replace(key, expect, value, new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map remove if equals command.
+   */
+  private void doMapRemoveIfEquals(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final Object key = request.getValue("key");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
+    }
+
+    map.remove(key, value, new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster exists command.
+   */
+  private void doMapContainsKey(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final String key = request.getString("key");
+    if (key == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+      return;
+    }
+
+    map.containsKey(key, new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map configure command.
+   */
+  private void doMapConfigure(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String name = getName(request, replyHandler);
+    if (name == null) {
+      return;
+    }
+
+    final MapPolicy policy;
+    try {
+      policy = MapPolicy.fromJson(request);
+    } catch (IllegalArgumentException e) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+      return;
+    }
+
+    executor.execute(new Callable<Void>() {
+      @Override
+      public Void call() {
+        manager.setMapPolicy(formatKey(name), policy);
+        return null;
+      }
+    }, new Handler<AsyncResult<Void>>() {
+      @Override
+      public void handle(AsyncResult<Void> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          replyHandler.handle(new JsonObject().putString("status", "ok").putObject("result", policy.toJson()));
+        }
+      }
+    });
+  }
+
+  /**
+   * Handles a cluster map compute command.
+   */
+  private void doMapCompute(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final String name = request.getString("processor");
+    if (name == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No processor specified."));
+      return;
+    }
+
+    final ComputeProcessor processor = registry.lookupProcessor(name);
+    if (processor == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid processor " + name));
+      return;
+    }
+
+    final ComputeEntryProcessor entryProcessor = new ComputeEntryProcessor(processor, request.getObject("args", new JsonObject()));
+    if (request.containsField("keys")) {
+      map.executeOnKeys(createKeySet(request.getArray("keys")), entryProcessor, new EntriesHandler<Object>(replyHandler));
+    } else {
+      final Object key = request.getValue("key");
+      if (key == null) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+        return;
+      }
+      map.executeOnKey(key, entryProcessor, new ResultHandler<Object>(replyHandler));
+    }
+  }
+
+  /**
+   * Handles a cluster map get all command.
+   */
+  private void doMapGetAll(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final JsonArray keys = request.getArray("keys");
+    if (keys == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No keys specified."));
       return;
     }
 
-    JsonObject config = message.body().getObject("config");
-    int instances = message.body().getInteger("instances", 1);
-    boolean worker = message.body().getBoolean("worker", false);
-    boolean ha = message.body().getBoolean("ha", false);
+    map.getAll(createKeySet(keys), new EntriesHandler<Object>(replyHandler));
+  }
 
-    if (worker) {
-      boolean multiThreaded = message.body().getBoolean("multi-threaded", false);
-      platform.deployWorkerVerticleAs(deploymentID, main, config, instances, multiThreaded, ha, new Handler<AsyncResult<String>>() {
-        @Override
-        public void handle(AsyncResult<String> result) {
-          if (result.failed()) {
-            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
-          } else {
-            message.reply(new JsonObject().putString("status", "ok").putString("id", result.result()));
-          }
-        }
-      });
-    } else {
-      platform.deployVerticleAs(deploymentID, main, config, instances, ha, new Handler<AsyncResult<String>>() {
-        @Override
-        public void handle(AsyncResult<String> result) {
-          if (result.failed()) {
-            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
-          } else {
-            message.reply(new JsonObject().putString("status", "ok").putString("id", result.result()));
-          }
+  /**
+   * Handles a cluster map put all command.
+   */
+  private void doMapPutAll(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final JsonObject entries = request.getObject("entries");
+    if (entries == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No entries specified."));
+      return;
+    }
+
+    Map<Object, Object> values = new HashMap<>(entries.size());
+    for (String key : entries.getFieldNames()) {
+      Object value = entries.getValue(key);
+      if (value == null) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified for key " + key));
+        return;
+      }
+      values.put(key, value);
+    }
+
+    map.putAll(values, new AckHandler<Void>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map remove all command.
+   */
+  private void doMapRemoveAll(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final JsonArray keys = request.getArray("keys");
+    if (keys == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No keys specified."));
+      return;
+    }
+
+    map.removeAll(createKeySet(keys), new EntriesHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Handles a cluster map contains all command.
+   */
+  private void doMapContainsAll(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    final JsonArray keys = request.getArray("keys");
+    if (keys == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No keys specified."));
+      return;
+    }
+
+    map.containsKeys(createKeySet(keys), new EntriesHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Creates a set of map keys from a JSON array.
+   */
+  private Set<Object> createKeySet(JsonArray keys) {
+    Set<Object> set = new HashSet<>(keys.size());
+    for (Object key : keys) {
+      set.add(key);
+    }
+    return set;
+  }
+
+  /**
+   * Handles map keys command.
+   */
+  private void doMapKeys(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    if (request.containsField("cursor") || request.containsField("limit")) {
+      doMapPage(request, replyHandler);
+      return;
+    }
+
+    map.keySet(new Handler<AsyncResult<Set<Object>>>() {
+      @Override
+      public void handle(AsyncResult<Set<Object>> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          replyHandler.handle(new JsonObject().putString("status", "ok").putArray("result", new JsonArray(result.result().toArray())));
         }
-      });
+      }
+    });
+  }
+
+  /**
+   * Handles map values command.
+   */
+  private void doMapValues(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
     }
+
+    if (request.containsField("cursor") || request.containsField("limit")) {
+      doMapPage(request, replyHandler);
+      return;
+    }
+
+    map.values(new Handler<AsyncResult<Collection<Object>>>() {
+      @Override
+      public void handle(AsyncResult<Collection<Object>> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          replyHandler.handle(new JsonObject().putString("status", "ok").putArray("result", new JsonArray(result.result().toArray())));
+        }
+      }
+    });
   }
 
   /**
-   * Undeploys a deployment.
+   * Handles a paged cluster map keys, values or entries command.
    */
-  private void doInternalUndeploy(final Message<JsonObject> message) {
-    String type = message.body().getString("type");
-    if (type == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment type."));
+  private void doMapPage(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
       return;
     }
 
-    String deploymentID = message.body().getString("id");
-    if (deploymentID == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment ID."));
+    final int limit = request.getInteger("limit", DEFAULT_PAGE_SIZE);
+    if (limit <= 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid limit."));
       return;
     }
 
-    if (type.equals("module")) {
-      platform.undeployModuleAs(deploymentID, new Handler<AsyncResult<Void>>() {
-        @Override
-        public void handle(AsyncResult<Void> result) {
-          if (result.failed()) {
-            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
-          } else {
-            message.reply(new JsonObject().putString("status", "ok"));
-          }
+    final String action = request.getString("action");
+    map.keyPage(request.getString("cursor"), limit, new Handler<AsyncResult<Page<Object>>>() {
+      @Override
+      public void handle(AsyncResult<Page<Object>> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          return;
         }
-      });
-    } else if (type.equals("verticle")) {
-      platform.undeployVerticleAs(deploymentID, new Handler<AsyncResult<Void>>() {
-        @Override
-        public void handle(AsyncResult<Void> result) {
-          if (result.failed()) {
-            message.reply(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
-          } else {
-            message.reply(new JsonObject().putString("status", "ok"));
-          }
+
+        final Page<Object> page = result.result();
+        if (action.equals("keys")) {
+          replyHandler.handle(createPageReply(page.cursor()).putArray("result", new JsonArray(page.items().toArray())));
+          return;
         }
-      });
+
+        // Values are only read for the keys in the page, and keys that were
+        // removed since the page was read are skipped.
+        map.getAll(new LinkedHashSet<>(page.items()), new Handler<AsyncResult<Map<Object, Object>>>() {
+          @Override
+          public void handle(AsyncResult<Map<Object, Object>> result) {
+            if (result.failed()) {
+              replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+            } else if (action.equals("values")) {
+              JsonArray values = new JsonArray();
+              for (Object key : page.items()) {
+                Object value = result.result().get(key);
+                if (value != null) {
+                  values.add(value);
+                }
+              }
+              replyHandler.handle(createPageReply(page.cursor()).putArray("result", values));
+            } else {
+              JsonObject entries = new JsonObject();
+              for (Object key : page.items()) {
+                Object value = result.result().get(key);
+                if (value != null) {
+                  entries.putValue(String.valueOf(key), value);
+                }
+              }
+              replyHandler.handle(createPageReply(page.cursor()).putObject("result", entries));
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Creates a successful page reply.
+   */
+  private JsonObject createPageReply(String cursor) {
+    JsonObject reply = new JsonObject().putString("status", "ok");
+    if (cursor != null) {
+      reply.putString("cursor", cursor);
+    }
+    return reply;
+  }
+
+  /**
+   * Handles cluster map is empty command.
+   */
+  private void doMapIsEmpty(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    map.isEmpty(new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Counts the number of items in a map.
+   */
+  private void doMapSize(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    map.size(new ResultHandler<Integer>(replyHandler));
+  }
+
+  /**
+   * Clears all items in a map.
+   */
+  private void doMapClear(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncMap<Object, Object> map = getMap(request, replyHandler);
+    if (map == null) {
+      return;
+    }
+
+    map.clear(new AckHandler<Void>(replyHandler));
+  }
+
+  /**
+   * Handles a list addition.
+   */
+  private void doListAdd(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
+    }
+
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
+    }
+
+    list.add(value, new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Handles a list get.
+   */
+  private void doListGet(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
+    }
+
+    final Integer index = request.getInteger("index");
+    if (index == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No index specified."));
+      return;
+    }
+
+    list.get(index, new ResultHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Handles a list range or slice command.
+   */
+  private void doListRange(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
+    }
+
+    int[] range = getRange(request, replyHandler);
+    if (range == null) {
+      return;
+    }
+
+    list.range(range[0], range[1], new ArrayResultHandler<Object>(replyHandler));
+  }
+
+  /**
+   * Reads the range of a range or slice command, replying with an error if
+   * the range is invalid. A <code>range</code> is given by <code>from</code>
+   * and <code>to</code> indexes, and a <code>slice</code> by an <code>offset</code>
+   * and a <code>limit</code>.
+   *
+   * @return The first index and the index after the last, or <code>null</code>
+   *         if the range is invalid.
+   */
+  private int[] getRange(JsonObject request, Handler<JsonObject> replyHandler) {
+    int from;
+    long to;
+    if (request.getString("action").equals("slice")) {
+      from = request.getInteger("offset", 0);
+      int limit = request.getInteger("limit", DEFAULT_PAGE_SIZE);
+      if (limit <= 0) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid limit " + limit));
+        return null;
+      }
+      to = (long) from + limit;
     } else {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "Invalid deployment type."));
+      from = request.getInteger("from", 0);
+      to = request.getLong("to", (long) from + DEFAULT_PAGE_SIZE);
+    }
+
+    if (from < 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid index " + from));
+      return null;
+    }
+    if (to < from) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid range " + from + " to " + to));
+      return null;
+    }
+    return new int[]{from, (int) Math.min(to, Integer.MAX_VALUE)};
+  }
+
+  /**
+   * Handles a list removal.
+   */
+  private void doListRemove(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
+    }
+
+    if (request.containsField("index")) {
+      final int index = request.getInteger("index");
+      list.remove(index, new ResultHandler<Object>(replyHandler));
+    } else {
+      final Object value = request.getValue("value");
+      if (value == null) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      } else {
+        list.remove(value, new ResultHandler<Boolean>(replyHandler));
+      }
+    }
+  }
+
+  /**
+   * Checks whether a list contains a value.
+   */
+  private void doListContains(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
+    }
+
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
+    }
+
+    list.contains(value, new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Handles cluster list is empty command.
+   */
+  private void doListIsEmpty(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
+    }
+
+    list.isEmpty(new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Counts the number of items in a list.
+   */
+  private void doListSize(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
+    }
+
+    list.size(new ResultHandler<Integer>(replyHandler));
+  }
+
+  /**
+   * Clears all items in a list.
+   */
+  private void doListClear(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncList<Object> list = getList(request, replyHandler);
+    if (list == null) {
+      return;
     }
+
+    list.clear(new AckHandler<Void>(replyHandler));
   }
 
   /**
-   * Handles setting a key.
+   * Handles a set addition.
    */
-  private void doKeySet(final Message<JsonObject> message) {
-    final String key = message.body().getString("name");
-    if (key == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+  private void doSetAdd(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncSet<Object> set = getSet(request, replyHandler);
+    if (set == null) {
       return;
     }
 
-    final Object value = message.body().getValue("value");
-
-    try {
-      manager.getMap(formatKey("keys")).put(key, value);
-      message.reply(new JsonObject().putString("status", "ok"));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
     }
+
+    set.add(value, new ResultHandler<Boolean>(replyHandler));
   }
 
   /**
-   * Handles getting a key.
+   * Handles a set removal.
    */
-  private void doKeyGet(final Message<JsonObject> message) {
-    final String key = message.body().getString("name");
-    if (key == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+  private void doSetRemove(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncSet<Object> set = getSet(request, replyHandler);
+    if (set == null) {
       return;
     }
 
-    try {
-      Object value = manager.getMap(formatKey("keys")).get(key);
-      message.reply(new JsonObject().putString("status", "ok").putValue("result", value));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+    } else {
+      set.remove(value, new ResultHandler<Boolean>(replyHandler));
     }
   }
 
   /**
-   * Handles deleting a key.
+   * Checks whether a set contains a value.
    */
-  private void doKeyDelete(final Message<JsonObject> message) {
-    final String key = message.body().getString("name");
-    if (key == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+  private void doSetContains(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncSet<Object> set = getSet(request, replyHandler);
+    if (set == null) {
       return;
     }
 
-    try {
-      manager.getMap(formatKey("keys")).remove(key);
-      message.reply(new JsonObject().putString("status", "ok"));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
     }
+
+    set.contains(value, new ResultHandler<Boolean>(replyHandler));
   }
 
   /**
-   * Handles getting a counter.
+   * Handles cluster set is empty command.
    */
-  private void doCounterGet(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doSetIsEmpty(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncSet<Object> set = getSet(request, replyHandler);
+    if (set == null) {
       return;
     }
 
-    try {
-      Map<Object, Long> counters = manager.getMap(formatKey("counters"));
-      Long value = counters.get(name);
-      if (value == null) {
-        value = 0L;
-      }
-      message.reply(new JsonObject().putString("status", "ok").putNumber("result", value));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
-    }
+    set.isEmpty(new ResultHandler<Boolean>(replyHandler));
   }
 
   /**
-   * Handles incrementing a counter.
+   * Counts the number of items in a set.
    */
-  private void doCounterIncrement(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doSetSize(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncSet<Object> set = getSet(request, replyHandler);
+    if (set == null) {
       return;
     }
 
-    try {
-      Map<Object, Long> counters = manager.getMap(formatKey("counters"));
-      Long value = counters.get(name);
-      if (value == null) {
-        value = 0L;
-      }
-      value++;
-      counters.put(name, value);
-      message.reply(new JsonObject().putString("status", "ok").putNumber("result", value));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
-    }
+    set.size(new ResultHandler<Integer>(replyHandler));
   }
 
   /**
-   * Handles decrementing a counter.
+   * Clears all items in a set.
    */
-  private void doCounterDecrement(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doSetClear(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncSet<Object> set = getSet(request, replyHandler);
+    if (set == null) {
       return;
     }
 
-    try {
-      Map<Object, Long> counters = manager.getMap(formatKey("counters"));
-      Long value = counters.get(name);
-      if (value == null) {
-        value = 0L;
-      }
-      value--;
-      counters.put(name, value);
-      message.reply(new JsonObject().putString("status", "ok").putNumber("result", value));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
-    }
+    set.clear(new AckHandler<Void>(replyHandler));
   }
 
   /**
-   * Handles a cluster map put command.
+   * Handles a queue addition.
    */
-  private void doMapPut(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueAdd(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    final Object key = message.body().getValue("key");
-    if (key == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
       return;
     }
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+    queue.add(value, new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Handles a queue removal.
+   */
+  private void doQueueRemove(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      Object result = manager.getMap(formatKey(name)).put(key, value);
-      message.reply(new JsonObject().putString("status", "ok").putValue("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+    } else {
+      queue.remove(value, new ResultHandler<Boolean>(replyHandler));
     }
   }
 
   /**
-   * Handles a cluster map get command.
+   * Checks whether a queue contains a value.
    */
-  private void doMapGet(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueContains(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    final String key = message.body().getString("key");
-    if (key == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
       return;
     }
 
-    try {
-      Object result = manager.getMap(formatKey(name)).get(key);
-      message.reply(new JsonObject().putString("status", "ok").putValue("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
-    }
+    queue.contains(value, new ResultHandler<Boolean>(replyHandler));
   }
 
   /**
-   * Handles a cluster map remove command.
+   * Handles cluster queue is empty command.
    */
-  private void doMapRemove(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueIsEmpty(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    final String key = message.body().getString("key");
-    if (key == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+    queue.isEmpty(new ResultHandler<Boolean>(replyHandler));
+  }
+
+  /**
+   * Counts the number of items in a queue.
+   */
+  private void doQueueSize(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      Object result = manager.getMap(formatKey(name)).remove(key);
-      message.reply(new JsonObject().putString("status", "ok").putValue("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
-    }
+    queue.size(new ResultHandler<Integer>(replyHandler));
   }
 
   /**
-   * Handles a cluster exists command.
+   * Clears all items in a queue.
    */
-  private void doMapContainsKey(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueClear(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    final String key = message.body().getString("key");
-    if (key == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No key specified."));
+    queue.clear(new AckHandler<Void>(replyHandler));
+  }
+
+  /**
+   * Handles a queue offer command.
+   */
+  private void doQueueOffer(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      boolean result = manager.getMap(formatKey(name)).containsKey(key);
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final Object value = request.getValue("value");
+    if (value == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+      return;
     }
+
+    queue.offer(value, new ResultHandler<Boolean>(replyHandler));
   }
 
   /**
-   * Handles map keys command.
+   * Handles a queue offer all command.
    */
-  private void doMapKeys(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueOfferAll(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      Set<Object> result = manager.getMap(formatKey(name)).keySet();
-      message.reply(new JsonObject().putString("status", "ok").putArray("result", new JsonArray(result.toArray())));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final JsonArray values = request.getArray("values");
+    if (values == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No values specified."));
+      return;
+    }
+
+    List<Object> list = new ArrayList<>(values.size());
+    for (Object value : values) {
+      if (value == null) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Queue values cannot be null."));
+        return;
+      }
+      list.add(value);
     }
+
+    queue.offerAll(list, new ResultHandler<Boolean>(replyHandler));
   }
 
   /**
-   * Handles map values command.
+   * Handles a queue element command.
    */
-  private void doMapValues(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueElement(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      Collection<Object> result = manager.getMap(formatKey(name)).values();
-      message.reply(new JsonObject().putString("status", "ok").putArray("result", new JsonArray(result.toArray())));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
-    }
+    queue.element(new ResultHandler<Object>(replyHandler));
   }
 
   /**
-   * Handles cluster map is empty command.
+   * Handles a queue poll command.
    */
-  private void doMapIsEmpty(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueuePoll(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      boolean result = manager.getMap(formatKey(name)).isEmpty();
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
-    }
+    queue.poll(new ResultHandler<Object>(replyHandler));
   }
 
   /**
-   * Counts the number of items in a map.
+   * Handles a queue take command.<p>
+   *
+   * If the queue is empty the request is parked until an element is
+   * offered or the timeout expires.
    */
-  private void doMapSize(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueTake(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      int result = manager.getMap(formatKey(name)).size();
-      message.reply(new JsonObject().putString("status", "ok").putNumber("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final long timeout = request.getLong("timeout", DEFAULT_TAKE_TIMEOUT);
+    if (timeout < 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid timeout " + timeout));
+      return;
     }
+
+    queue.take(timeout, new ResultHandler<Object>(replyHandler));
   }
 
   /**
-   * Clears all items in a map.
+   * Handles a queue drain command.<p>
+   *
+   * If the queue is empty and a timeout is given the request is parked
+   * until an element is offered or the timeout expires.
    */
-  private void doMapClear(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueDrain(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      manager.getMap(formatKey(name)).clear();
-      message.reply(new JsonObject().putString("status", "ok"));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final int max = request.getInteger("max", DEFAULT_DRAIN_SIZE);
+    if (max <= 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid max " + max));
+      return;
+    }
+
+    final long timeout = request.getLong("timeout", 0);
+    if (timeout < 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid timeout " + timeout));
+      return;
     }
+
+    queue.drain(max, timeout, new ArrayResultHandler<Object>(replyHandler));
   }
 
   /**
-   * Handles a list addition.
+   * Handles a queue subscribe command.<p>
+   *
+   * The subscription is recorded in a cluster map so that it can be taken
+   * over by another node if this node leaves the cluster, and items are
+   * pushed to the consumer by this verticle.
    */
-  private void doListAdd(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
+  private void doQueueSubscribe(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String name = getName(request, replyHandler);
     if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
       return;
     }
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+    final String consumer = request.getString("address");
+    if (consumer == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No address specified."));
       return;
     }
 
-    try {
-      boolean result = manager.getList(formatKey(name)).add(value);
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final int credits = request.getInteger("credits", DEFAULT_SUBSCRIBE_CREDITS);
+    if (credits <= 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid credits " + credits));
+      return;
     }
-  }
 
-  /**
-   * Handles a list get.
-   */
-  private void doListGet(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+    final int batch = request.getInteger("batch", DEFAULT_SUBSCRIBE_BATCH);
+    if (batch <= 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid batch " + batch));
       return;
     }
 
-    final Integer index = message.body().getInteger("index");
-    if (index == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No index specified."));
+    final long timeout = request.getLong("timeout", DEFAULT_SUBSCRIBE_TIMEOUT);
+    if (timeout <= 0) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid timeout " + timeout));
       return;
     }
 
-    try {
-      Object result = manager.getList(formatKey(name)).get(index);
-      message.reply(new JsonObject().putString("status", "ok").putValue("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final JsonObject record = new JsonObject()
+        .putString("id", UUID.randomUUID().toString())
+        .putString("queue", name)
+        .putString("address", consumer)
+        .putNumber("credits", credits)
+        .putNumber("batch", batch)
+        .putNumber("timeout", timeout)
+        .putString("owner", address)
+        .putString("ownerNode", manager.getNodeId());
+    if (request.containsField("node")) {
+      record.putString("node", request.getString("node"));
     }
+    subscriptionRecords().put(record.getString("id"), record.encode(), new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          startSubscription(record);
+          replyHandler.handle(new JsonObject().putString("status", "ok").putString("result", record.getString("id")).putString("address", address));
+        }
+      }
+    });
   }
 
   /**
-   * Handles a list removal.
+   * Handles a queue unsubscribe command.<p>
+   *
+   * Subscriptions may be cancelled through any node. If the subscription
+   * is owned by another verticle the request is forwarded to the owner.
    */
-  private void doListRemove(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueUnsubscribe(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final String id = request.getString("subscription");
+    if (id == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No subscription specified."));
       return;
     }
 
-    if (message.body().containsField("index")) {
-      final int index = message.body().getInteger("index");
-      try {
-        Object result = manager.getList(formatKey(name)).remove(index);
-        message.reply(new JsonObject().putString("status", "ok").putValue("result", result));
-      } catch (Exception e) {
-        message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    final AsyncMap<String, String> records = subscriptionRecords();
+    records.get(id, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          return;
+        }
+        if (result.result() == null) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Unknown subscription " + id));
+          return;
+        }
+
+        final String value = result.result();
+        String owner = new JsonObject(value).getString("owner");
+        if (owner == null) {
+          // The subscription was released and has not yet been taken over.
+          removeSubscription(records, id, value, replyHandler);
+          return;
+        }
+        if (owner.equals(address)) {
+          Subscription subscription = subscriptions.remove(id);
+          if (subscription != null) {
+            subscription.close();
+          }
+          records.remove(id, new AckHandler<String>(replyHandler));
+          return;
+        }
+
+        vertx.eventBus().sendWithTimeout(owner, request, DEFAULT_FORWARD_TIMEOUT, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            if (result.succeeded()) {
+              replyHandler.handle(result.result().body());
+            } else if (result.cause() instanceof ReplyException && ((ReplyException) result.cause()).failureType() == ReplyFailure.NO_HANDLERS) {
+              // The owner is gone, so the record only needs to be removed.
+              removeSubscription(records, id, value, replyHandler);
+            } else {
+              replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+            }
+          }
+        });
       }
-    } else {
-      final Object value = message.body().getValue("value");
-      if (value == null) {
-        message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
-      } else {
-        try {
-          boolean result = manager.getList(formatKey(name)).remove(value);
-          message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-        } catch (Exception e) {
-          message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    });
+  }
+
+  /**
+   * Removes a subscription record that is not owned by a running verticle.
+   */
+  private void removeSubscription(AsyncMap<String, String> records, String id, String value, final Handler<JsonObject> replyHandler) {
+    records.remove(id, value, new Handler<AsyncResult<Boolean>>() {
+      @Override
+      public void handle(AsyncResult<Boolean> result) {
+        if (result.failed()) {
+          replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+        } else {
+          replyHandler.handle(new JsonObject().putString("status", "ok"));
         }
       }
+    });
+  }
+
+  /**
+   * Returns the cluster map in which queue subscriptions are recorded.
+   */
+  private AsyncMap<String, String> subscriptionRecords() {
+    return manager.getAsyncMap(formatKey("__subscriptions"));
+  }
+
+  /**
+   * Starts pushing items for a subscription record owned by this verticle.
+   */
+  private void startSubscription(JsonObject record) {
+    Subscription subscription = new Subscription(record);
+    subscriptions.put(subscription.id, subscription);
+    subscription.pump();
+  }
+
+  /**
+   * Cancels a subscription whose consumer can no longer be reached.
+   */
+  private void cancelSubscription(Subscription subscription) {
+    if (subscriptions.remove(subscription.id) == subscription) {
+      subscription.close();
+      subscriptionRecords().remove(subscription.id, Xync.<String>ignoreResult());
+    }
+  }
+
+  /**
+   * Rebalances queue subscriptions after a node leaves the cluster.<p>
+   *
+   * Subscriptions whose consumer was explicitly on the node are dropped.
+   * Other consumers that are gone are detected when items can no longer be
+   * pushed to them. Subscriptions that were owned by the node are claimed by
+   * the remaining verticles.
+   */
+  private void rebalanceSubscriptions(final String node) {
+    final AsyncMap<String, String> records = subscriptionRecords();
+    Iterator<Subscription> iterator = subscriptions.values().iterator();
+    while (iterator.hasNext()) {
+      Subscription subscription = iterator.next();
+      if (node.equals(subscription.node)) {
+        iterator.remove();
+        subscription.close();
+        records.remove(subscription.id, Xync.<String>ignoreResult());
+      }
     }
+    claimSubscriptions(node);
   }
 
   /**
-   * Checks whether a list contains a value.
+   * Claims subscriptions that no longer have an owner.<p>
+   *
+   * Subscriptions released by a verticle that was undeployed are claimed,
+   * as are subscriptions owned by the given node if a node has left the
+   * cluster. Each verticle races to replace the record with itself as the
+   * owner, so only one verticle takes over each subscription.
+   *
+   * @param node The node that left the cluster, or <code>null</code> to
+   *        claim only released subscriptions.
    */
-  private void doListContains(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void claimSubscriptions(final String node) {
+    if (stopped) {
       return;
     }
+    final AsyncMap<String, String> records = subscriptionRecords();
+    records.values(new Handler<AsyncResult<Collection<String>>>() {
+      @Override
+      public void handle(AsyncResult<Collection<String>> result) {
+        if (result.failed() || stopped) {
+          return;
+        }
+        for (final String value : result.result()) {
+          JsonObject record = new JsonObject(value);
+          if (record.containsField("owner") && (node == null || !node.equals(record.getString("ownerNode")))) {
+            continue;
+          }
+          if (node != null && node.equals(record.getString("node"))) {
+            records.remove(record.getString("id"), value, Xync.<Boolean>ignoreResult());
+            continue;
+          }
+          final JsonObject claimed = record.copy().putString("owner", address).putString("ownerNode", manager.getNodeId());
+          records.replace(record.getString("id"), value, claimed.encode(), new Handler<AsyncResult<Boolean>>() {
+            @Override
+            public void handle(AsyncResult<Boolean> result) {
+              if (result.succeeded() && result.result()) {
+                if (!stopped) {
+                  startSubscription(claimed);
+                } else {
+                  records.replace(claimed.getString("id"), claimed.encode(), value, Xync.<Boolean>ignoreResult());
+                }
+              }
+            }
+          });
+        }
+      }
+    });
+  }
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
+  /**
+   * Returns a result handler for operations whose result is not needed.
+   */
+  private static <T> Handler<AsyncResult<T>> ignoreResult() {
+    return new Handler<AsyncResult<T>>() {
+      @Override
+      public void handle(AsyncResult<T> result) {
+      }
+    };
+  }
+
+  /**
+   * Handles a queue peek command.
+   */
+  private void doQueuePeek(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      boolean result = manager.getList(formatKey(name)).contains(value);
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
-    }
+    queue.peek(new ResultHandler<Object>(replyHandler));
   }
 
   /**
-   * Handles cluster list is empty command.
+   * Handles a queue range or slice command.
    */
-  private void doListIsEmpty(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
+  private void doQueueRange(final JsonObject request, final Handler<JsonObject> replyHandler) {
+    final AsyncQueue<Object> queue = getQueue(request, replyHandler);
+    if (queue == null) {
       return;
     }
 
-    try {
-      boolean result = manager.getList(formatKey(name)).isEmpty();
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    int[] range = getRange(request, replyHandler);
+    if (range == null) {
+      return;
     }
+
+    queue.range(range[0], range[1], new ArrayResultHandler<Object>(replyHandler));
   }
 
   /**
-   * Counts the number of items in a list.
+   * Handler that replies to a data message with the operation result.
    */
-  private void doListSize(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private static class ResultHandler<T> implements Handler<AsyncResult<T>> {
+    private final Handler<JsonObject> replyHandler;
+
+    private ResultHandler(Handler<JsonObject> replyHandler) {
+      this.replyHandler = replyHandler;
     }
 
-    try {
-      int result = manager.getList(formatKey(name)).size();
-      message.reply(new JsonObject().putString("status", "ok").putNumber("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public void handle(AsyncResult<T> result) {
+      if (result.failed()) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+      } else {
+        replyHandler.handle(new JsonObject().putString("status", "ok").putValue("result", result.result()));
+      }
     }
   }
 
   /**
-   * Clears all items in a list.
+   * Handler that replies to a data message with a list of results.
    */
-  private void doListClear(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private static class ArrayResultHandler<T> implements Handler<AsyncResult<List<T>>> {
+    private final Handler<JsonObject> replyHandler;
+
+    private ArrayResultHandler(Handler<JsonObject> replyHandler) {
+      this.replyHandler = replyHandler;
     }
 
-    try {
-      manager.getList(formatKey(name)).clear();
-      message.reply(new JsonObject().putString("status", "ok"));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public void handle(AsyncResult<List<T>> result) {
+      if (result.failed()) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+      } else {
+        replyHandler.handle(new JsonObject().putString("status", "ok").putArray("result", new JsonArray(result.result().toArray())));
+      }
     }
   }
 
   /**
-   * Handles a set addition.
+   * Entry processor that runs a named compute processor with the
+   * arguments given in a compute request.
    */
-  private void doSetAdd(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
-    }
+  private static class ComputeEntryProcessor implements EntryProcessor<Object, Object> {
+    private static final long serialVersionUID = 1L;
+    private final ComputeProcessor processor;
+    private final JsonObject args;
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
-      return;
+    private ComputeEntryProcessor(ComputeProcessor processor, JsonObject args) {
+      this.processor = processor;
+      this.args = args;
     }
 
-    try {
-      boolean result = manager.getSet(formatKey(name)).add(value);
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public Object process(Map.Entry<Object, Object> entry) {
+      return processor.process(entry, args);
     }
   }
 
   /**
-   * Handles a set removal.
+   * Entry processor that sets a key if its version matches an expected
+   * version. Setting a <code>null</code> value deletes the key.
    */
-  private void doSetRemove(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private static class KeyCasProcessor implements EntryProcessor<Object, Object> {
+    private static final long serialVersionUID = 1L;
+    private final long expect;
+    private final Object value;
+    private final long update;
+
+    private KeyCasProcessor(long expect, Object value, long update) {
+      this.expect = expect;
+      this.value = value;
+      this.update = update;
     }
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
-    } else {
-      try {
-        boolean result = manager.getSet(formatKey(name)).remove(value);
-        message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-      } catch (Exception e) {
-        message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public Object process(Map.Entry<Object, Object> entry) {
+      long version = VersionedValue.versionOf(entry.getValue());
+      if (version != expect) {
+        return new JsonObject().putBoolean("result", false).putNumber("version", version);
+      }
+      if (value == null) {
+        entry.setValue(null);
+        return new JsonObject().putBoolean("result", true).putNumber("version", 0);
       }
+      entry.setValue(VersionedValue.encode(value, update));
+      return new JsonObject().putBoolean("result", true).putNumber("version", update);
     }
   }
 
   /**
-   * Checks whether a set contains a value.
+   * Entry processor that puts a value and returns the value it replaced.
    */
-  private void doSetContains(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
-    }
+  private static class PutProcessor implements EntryProcessor<Object, Object> {
+    private static final long serialVersionUID = 1L;
+    private final Object value;
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
-      return;
+    private PutProcessor(Object value) {
+      this.value = value;
     }
 
-    try {
-      boolean result = manager.getSet(formatKey(name)).contains(value);
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public Object process(Map.Entry<Object, Object> entry) {
+      Object previous = entry.getValue();
+      entry.setValue(value);
+      return previous;
     }
   }
 
   /**
-   * Handles cluster set is empty command.
+   * Entry processor that puts a value from a batch of entries and returns
+   * the value it replaced.
    */
-  private void doSetIsEmpty(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private static class PutAllProcessor implements EntryProcessor<Object, Object> {
+    private static final long serialVersionUID = 1L;
+    private final HashMap<Object, Object> entries;
+
+    private PutAllProcessor(HashMap<Object, Object> entries) {
+      this.entries = entries;
     }
 
-    try {
-      boolean result = manager.getSet(formatKey(name)).isEmpty();
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public Object process(Map.Entry<Object, Object> entry) {
+      Object value = entry.getValue();
+      entry.setValue(entries.get(entry.getKey()));
+      return value;
     }
   }
 
   /**
-   * Counts the number of items in a set.
+   * Handler that unwraps the value of a version-stamped key.
    */
-  private void doSetSize(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private static class KeyValueHandler implements Handler<AsyncResult<Object>> {
+    private final Handler<AsyncResult<Object>> resultHandler;
+
+    private KeyValueHandler(Handler<AsyncResult<Object>> resultHandler) {
+      this.resultHandler = resultHandler;
     }
 
-    try {
-      int result = manager.getSet(formatKey(name)).size();
-      message.reply(new JsonObject().putString("status", "ok").putNumber("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public void handle(AsyncResult<Object> result) {
+      if (result.failed()) {
+        resultHandler.handle(result);
+      } else {
+        resultHandler.handle(new DefaultFutureResult<Object>(VersionedValue.valueOf(result.result())));
+      }
     }
   }
 
   /**
-   * Clears all items in a set.
+   * Handler that replies to a data message with a map of entries as a JSON object.
    */
-  private void doSetClear(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private static class EntriesHandler<T> implements Handler<AsyncResult<Map<Object, T>>> {
+    private final Handler<JsonObject> replyHandler;
+
+    private EntriesHandler(Handler<JsonObject> replyHandler) {
+      this.replyHandler = replyHandler;
     }
 
-    try {
-      manager.getSet(formatKey(name)).clear();
-      message.reply(new JsonObject().putString("status", "ok"));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public void handle(AsyncResult<Map<Object, T>> result) {
+      if (result.failed()) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+      } else {
+        JsonObject entries = new JsonObject();
+        for (Map.Entry<Object, T> entry : result.result().entrySet()) {
+          entries.putValue(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        replyHandler.handle(new JsonObject().putString("status", "ok").putObject("result", entries));
+      }
     }
   }
 
   /**
-   * Handles a queue addition.
+   * Handler that replies to a binary data message with the operation result.
    */
-  private void doQueueAdd(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
-    }
+  private static class BinaryResultHandler<T> implements Handler<AsyncResult<T>> {
+    private final Message<Buffer> message;
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
-      return;
+    private BinaryResultHandler(Message<Buffer> message) {
+      this.message = message;
     }
 
-    try {
-      boolean result = manager.getQueue(formatKey(name)).add(value);
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public void handle(AsyncResult<T> result) {
+      if (result.failed()) {
+        message.reply(BinaryProtocol.createError(result.cause().getMessage()));
+      } else {
+        Buffer reply;
+        try {
+          reply = BinaryProtocol.createReply(result.result());
+        } catch (IllegalArgumentException e) {
+          reply = BinaryProtocol.createError(e.getMessage());
+        }
+        message.reply(reply);
+      }
     }
   }
 
   /**
-   * Handles a queue removal.
+   * Handler that replies to a binary data message once the operation is complete.
    */
-  private void doQueueRemove(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private static class BinaryAckHandler<T> implements Handler<AsyncResult<T>> {
+    private final Message<Buffer> message;
+
+    private BinaryAckHandler(Message<Buffer> message) {
+      this.message = message;
     }
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
-    } else {
-      try {
-        boolean result = manager.getQueue(formatKey(name)).remove(value);
-        message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-      } catch (Exception e) {
-        message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public void handle(AsyncResult<T> result) {
+      if (result.failed()) {
+        message.reply(BinaryProtocol.createError(result.cause().getMessage()));
+      } else {
+        message.reply(BinaryProtocol.createReply(null));
       }
     }
   }
 
   /**
-   * Checks whether a queue contains a value.
+   * Handler that replies to a data message once the operation is complete.
    */
-  private void doQueueContains(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
-    }
+  private static class AckHandler<T> implements Handler<AsyncResult<T>> {
+    private final Handler<JsonObject> replyHandler;
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
-      return;
+    private AckHandler(Handler<JsonObject> replyHandler) {
+      this.replyHandler = replyHandler;
     }
 
-    try {
-      boolean result = manager.getQueue(formatKey(name)).contains(value);
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    @Override
+    public void handle(AsyncResult<T> result) {
+      if (result.failed()) {
+        replyHandler.handle(new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+      } else {
+        replyHandler.handle(new JsonObject().putString("status", "ok"));
+      }
     }
   }
 
   /**
-   * Handles cluster queue is empty command.
+   * A stream of data chunks.<p>
+   *
+   * Chunks are read one at a time and sent to the stream address while
+   * the consumer has credits. Each reply from the consumer grants more
+   * credits, so only a single chunk is ever held in memory.
    */
-  private void doQueueIsEmpty(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private abstract class Stream {
+    private final String id = UUID.randomUUID().toString();
+    private String address;
+    private int chunkSize;
+    private long timeout;
+    private int credits;
+    private String cursor;
+    private long sequence;
+    private boolean reading;
+    private boolean finished;
+
+    /**
+     * Reads the chunk at the given cursor.
+     */
+    protected abstract void read(String cursor, int limit, Handler<AsyncResult<Page<Object>>> resultHandler);
+
+    /**
+     * Reads and sends chunks until the stream runs out of credits.
+     */
+    private void next() {
+      if (reading || finished || credits <= 0) {
+        return;
+      }
+
+      reading = true;
+      read(cursor, chunkSize, new Handler<AsyncResult<Page<Object>>>() {
+        @Override
+        public void handle(AsyncResult<Page<Object>> result) {
+          reading = false;
+          if (result.failed()) {
+            finished = true;
+            vertx.eventBus().send(address, new JsonObject().putString("status", "error").putString("stream", id)
+                .putString("message", result.cause().getMessage()));
+            return;
+          }
+
+          Page<Object> page = result.result();
+          cursor = page.cursor();
+          if (!page.items().isEmpty()) {
+            send(page.items());
+          }
+          if (cursor == null) {
+            finished = true;
+            vertx.eventBus().send(address, new JsonObject().putString("status", "end").putString("stream", id)
+                .putNumber("sequence", sequence));
+          } else {
+            next();
+          }
+        }
+      });
     }
 
-    try {
-      boolean result = manager.getQueue(formatKey(name)).isEmpty();
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    /**
+     * Sends a chunk to the stream address. The consumer replies to each
+     * chunk once it has been processed to grant more credits.
+     */
+    private void send(List<Object> items) {
+      JsonArray chunk = new JsonArray();
+      for (Object item : items) {
+        chunk.add(item);
+      }
+      credits--;
+      vertx.eventBus().sendWithTimeout(address, new JsonObject().putString("status", "ok").putString("stream", id)
+          .putNumber("sequence", sequence++).putArray("result", chunk), timeout, new Handler<AsyncResult<Message<JsonObject>>>() {
+        @Override
+        public void handle(AsyncResult<Message<JsonObject>> result) {
+          if (finished) {
+            return;
+          }
+          // If the consumer does not respond the stream is abandoned.
+          if (result.failed()) {
+            finished = true;
+            return;
+          }
+          JsonObject body = result.result().body();
+          if (body != null && body.getBoolean("cancel", false)) {
+            finished = true;
+            return;
+          }
+          credits += body != null ? body.getInteger("credits", 1) : 1;
+          next();
+        }
+      });
     }
   }
 
   /**
-   * Counts the number of items in a queue.
+   * A watch on keys or map entries.<p>
+   *
+   * Changes are published to the watch address. When the watch has a
+   * window, changes are buffered for the length of the window and only
+   * the latest change to each key is published, so bursts of updates to
+   * the same key result in a single event.
    */
-  private void doQueueSize(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private class Watch {
+    private final String id = UUID.randomUUID().toString();
+    private String map;
+    private String listener;
+    private String address;
+    private String prefix;
+    private String node;
+    private long window;
+    private boolean keys;
+    private final Map<Object, JsonObject> pending = new LinkedHashMap<>();
+    private long timer = -1;
+
+    /**
+     * Handles a change to a watched entry.
+     */
+    private void handle(MapEvent<Object, Object> event) {
+      Object key = event.key();
+      if (prefix != null && !(key instanceof String && ((String) key).startsWith(prefix))) {
+        return;
+      }
+
+      JsonObject change = new JsonObject().putString("event", event.type()).putValue("key", key);
+      if (event.value() != null) {
+        if (keys) {
+          VersionedValue value = VersionedValue.decode(event.value());
+          change.putValue("value", value.value());
+          change.putNumber("version", value.version());
+        } else {
+          change.putValue("value", event.value());
+        }
+      }
+
+      if (window <= 0) {
+        publish(new JsonArray().add(change));
+        return;
+      }
+
+      pending.remove(key);
+      pending.put(key, change);
+      if (timer == -1) {
+        timer = vertx.setTimer(window, new Handler<Long>() {
+          @Override
+          public void handle(Long timerID) {
+            timer = -1;
+            JsonArray changes = new JsonArray();
+            for (JsonObject change : pending.values()) {
+              changes.add(change);
+            }
+            pending.clear();
+            publish(changes);
+          }
+        });
+      }
     }
 
-    try {
-      int result = manager.getQueue(formatKey(name)).size();
-      message.reply(new JsonObject().putString("status", "ok").putNumber("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    /**
+     * Sends changes to the watch address. The watch is dropped once no
+     * handler is registered at the address. Subscribers need not reply.
+     */
+    private void publish(JsonArray changes) {
+      JsonObject message = new JsonObject().putString("status", "ok").putString("watch", id).putArray("result", changes);
+      vertx.eventBus().sendWithTimeout(address, message, WATCH_REPLY_TIMEOUT, new Handler<AsyncResult<Message<Object>>>() {
+        @Override
+        public void handle(AsyncResult<Message<Object>> result) {
+          if (result.failed() && result.cause() instanceof ReplyException
+              && ((ReplyException) result.cause()).failureType() == ReplyFailure.NO_HANDLERS
+              && watches.remove(id) != null) {
+            close();
+          }
+        }
+      });
+    }
+
+    /**
+     * Stops watching for changes.
+     */
+    private void close() {
+      if (timer != -1) {
+        vertx.cancelTimer(timer);
+        timer = -1;
+      }
+      pending.clear();
+      manager.removeMapListener(map, listener);
     }
   }
 
   /**
-   * Clears all items in a queue.
+   * A push subscription to a queue.<p>
+   *
+   * Items are drained from the queue in batches and sent to the consumer
+   * address for as long as the subscription has credits. Each batch uses
+   * one credit per item, and the credits are returned once the consumer
+   * replies to the batch, so at most <code>credits</code> items are ever
+   * awaiting acknowledgment. When the queue is empty the subscription
+   * waits for items rather than polling.
    */
-  private void doQueueClear(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private class Subscription {
+    private final String id;
+    private final String record;
+    private final String address;
+    private final String node;
+    private final int batch;
+    private final long timeout;
+    private final AsyncQueue<Object> queue;
+    private final List<List<Object>> pending = new ArrayList<>();
+    private int credits;
+    private boolean waiting;
+    private boolean closed;
+    private long timer = -1;
+
+    private Subscription(JsonObject record) {
+      id = record.getString("id");
+      this.record = record.encode();
+      address = record.getString("address");
+      node = record.getString("node");
+      batch = record.getInteger("batch");
+      timeout = record.getLong("timeout");
+      credits = record.getInteger("credits");
+      queue = manager.getAsyncQueue(formatKey(record.getString("queue")));
+    }
+
+    /**
+     * Drains the next batch of items if credits are available.
+     */
+    private void pump() {
+      if (closed || waiting || credits <= 0) {
+        return;
+      }
+      waiting = true;
+      queue.drain(Math.min(credits, batch), SUBSCRIPTION_WAIT, new Handler<AsyncResult<List<Object>>>() {
+        @Override
+        public void handle(AsyncResult<List<Object>> result) {
+          waiting = false;
+          if (result.failed()) {
+            if (!closed) {
+              timer = vertx.setTimer(SUBSCRIPTION_WAIT, new Handler<Long>() {
+                @Override
+                public void handle(Long timerID) {
+                  timer = -1;
+                  pump();
+                }
+              });
+            }
+          } else if (closed) {
+            requeue(result.result());
+          } else {
+            if (!result.result().isEmpty()) {
+              push(result.result());
+            }
+            pump();
+          }
+        }
+      });
     }
 
-    try {
-      manager.getQueue(formatKey(name)).clear();
-      message.reply(new JsonObject().putString("status", "ok"));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    /**
+     * Sends a batch of items to the consumer.<p>
+     *
+     * Items in a batch that is not acknowledged are put back at the head of
+     * the queue, so delivery is at least once: a consumer that replies too
+     * late may see the items again. The subscription is cancelled once no
+     * handler is registered at the consumer address. After any other failure
+     * pushing resumes once the subscription has waited.
+     */
+    private void push(final List<Object> items) {
+      credits -= items.size();
+      pending.add(items);
+      JsonObject message = new JsonObject()
+          .putString("status", "ok")
+          .putString("subscription", id)
+          .putString("address", Xync.this.address)
+          .putArray("result", new JsonArray(items.toArray()));
+      vertx.eventBus().sendWithTimeout(address, message, timeout, new Handler<AsyncResult<Message<Object>>>() {
+        @Override
+        public void handle(AsyncResult<Message<Object>> result) {
+          if (!pending.remove(items)) {
+            // The items were already put back when the subscription was released.
+            return;
+          }
+          credits += items.size();
+          if (result.succeeded()) {
+            pump();
+            return;
+          }
+
+          requeue(items);
+          if (result.cause() instanceof ReplyException && ((ReplyException) result.cause()).failureType() == ReplyFailure.NO_HANDLERS) {
+            cancelSubscription(Subscription.this);
+          } else if (!closed && timer == -1) {
+            timer = vertx.setTimer(SUBSCRIPTION_WAIT, new Handler<Long>() {
+              @Override
+              public void handle(Long timerID) {
+                timer = -1;
+                pump();
+              }
+            });
+          }
+        }
+      });
     }
-  }
 
-  /**
-   * Handles a queue offer command.
-   */
-  private void doQueueOffer(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+    /**
+     * Returns undelivered items to the head of the queue.
+     */
+    private void requeue(List<Object> items) {
+      if (!items.isEmpty()) {
+        queue.requeue(items, Xync.<Void>ignoreResult());
+      }
     }
 
-    final Object value = message.body().getValue("value");
-    if (value == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No value specified."));
-      return;
+    /**
+     * Stops pushing items.
+     */
+    private void close() {
+      closed = true;
+      if (timer != -1) {
+        vertx.cancelTimer(timer);
+        timer = -1;
+      }
     }
 
-    try {
-      boolean result = manager.getQueue(formatKey(name)).offer(value);
-      message.reply(new JsonObject().putString("status", "ok").putBoolean("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    /**
+     * Stops pushing items and releases the subscription to be claimed by
+     * another verticle.<p>
+     *
+     * Items awaiting acknowledgment are put back at the head of the queue
+     * rather than waiting for replies that this verticle will no longer
+     * receive. The record is kept without an owner, and the other verticles
+     * in the cluster are told to claim it.
+     */
+    private void release() {
+      close();
+      List<Object> items = new ArrayList<>();
+      for (List<Object> batch : pending) {
+        items.addAll(batch);
+      }
+      pending.clear();
+      requeue(items);
+
+      JsonObject released = new JsonObject(record);
+      released.removeField("owner");
+      released.removeField("ownerNode");
+      subscriptionRecords().replace(id, record, released.encode(), new Handler<AsyncResult<Boolean>>() {
+        @Override
+        public void handle(AsyncResult<Boolean> result) {
+          if (result.succeeded() && result.result()) {
+            vertx.eventBus().publish(cluster, new JsonObject().putString("action", "rebalance"));
+          }
+        }
+      });
     }
   }
 
   /**
-   * Handles a queue element command.
+   * A batch of data operations.<p>
+   *
+   * Operations are run one after another in the order in which they were
+   * given. Consecutive <code>get</code> or consecutive <code>put</code>
+   * operations on the same map are grouped into a single bulk map operation.
+   * Grouped operations reply with the same result as the operation would
+   * if it were run on its own.
    */
-  private void doQueueElement(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+  private class Batch {
+    private final JsonArray operations;
+    private final JsonObject[] results;
+    private final boolean stopOnError;
+    private final Handler<JsonObject> replyHandler;
+    private int index;
+    private boolean failed;
+    private boolean running;
+    private boolean ready;
+
+    private Batch(JsonArray operations, boolean stopOnError, Handler<JsonObject> replyHandler) {
+      this.operations = operations;
+      this.results = new JsonObject[operations.size()];
+      this.stopOnError = stopOnError;
+      this.replyHandler = replyHandler;
+    }
+
+    /**
+     * Runs the next operation. Operations that complete synchronously
+     * are run in a loop rather than recursively.
+     */
+    private void next() {
+      ready = true;
+      if (running) {
+        return;
+      }
+      running = true;
+      while (ready) {
+        ready = false;
+        if (failed && stopOnError) {
+          for (int i = index; i < results.length; i++) {
+            results[i] = new JsonObject().putString("status", "skipped");
+          }
+          index = results.length;
+        }
+        if (index >= results.length) {
+          JsonArray replies = new JsonArray();
+          for (JsonObject result : results) {
+            replies.addObject(result);
+          }
+          replyHandler.handle(new JsonObject().putString("status", "ok").putArray("result", replies));
+        } else {
+          run();
+        }
+      }
+      running = false;
+    }
+
+    /**
+     * Runs the operation or group of operations at the current index.
+     */
+    private void run() {
+      final int start = index;
+      String group = groupOf(operations.get(start));
+      int end = start + 1;
+      if (group != null) {
+        // A put group ends at a repeated key, so that each put sees the
+        // value written by the put before it.
+        Set<Object> keys = new HashSet<>();
+        keys.add(keyOf((JsonObject) operations.get(start)));
+        while (end < results.length && group.equals(groupOf(operations.get(end)))
+            && (group.startsWith("get:") || keys.add(keyOf((JsonObject) operations.get(end))))) {
+          end++;
+        }
+      }
+
+      if (end - start > 1) {
+        if (group.startsWith("get:")) {
+          runGetAll(group.substring(4), start, end);
+        } else {
+          runPutAll(group.substring(4), start, end);
+        }
+      } else {
+        Object operation = operations.get(start);
+        if (operation instanceof JsonObject) {
+          handleDataMessage((JsonObject) operation, new Handler<JsonObject>() {
+            @Override
+            public void handle(JsonObject result) {
+              complete(start, start + 1, result);
+            }
+          });
+        } else {
+          complete(start, start + 1, new JsonObject().putString("status", "error").putString("message", "Invalid operation."));
+        }
+      }
     }
 
-    try {
-      Object result = manager.getQueue(formatKey(name)).element();
-      message.reply(new JsonObject().putString("status", "ok").putValue("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    /**
+     * Runs a group of get operations as a single bulk get.
+     */
+    private void runGetAll(String name, final int start, final int end) {
+      Set<Object> keys = new HashSet<>();
+      for (int i = start; i < end; i++) {
+        keys.add(keyOf((JsonObject) operations.get(i)));
+      }
+      manager.<Object, Object>getAsyncMap(name).getAll(keys, new Handler<AsyncResult<Map<Object, Object>>>() {
+        @Override
+        public void handle(AsyncResult<Map<Object, Object>> result) {
+          if (result.failed()) {
+            complete(start, end, new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          } else {
+            for (int i = start; i < end; i++) {
+              JsonObject operation = operations.get(i);
+              Object value = result.result().get(keyOf(operation));
+              if ("key".equals(operation.getString("type"))) {
+                VersionedValue stored = VersionedValue.decode(value);
+                results[i] = new JsonObject().putString("status", "ok").putValue("result", stored.value()).putNumber("version", stored.version());
+              } else {
+                results[i] = new JsonObject().putString("status", "ok").putValue("result", value);
+              }
+            }
+            index = end;
+            next();
+          }
+        }
+      });
     }
-  }
 
-  /**
-   * Handles a queue poll command.
-   */
-  private void doQueuePoll(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+    /**
+     * Runs a group of put operations as a single bulk put. The puts are run
+     * with entry processors so that each put can reply with the value it
+     * replaced.<p>
+     *
+     * A processor run on a set of keys is sent whole to every partition that
+     * owns one of the keys, so Hazelcast maps are given a processor for each
+     * entry rather than the whole batch.
+     */
+    private void runPutAll(String name, final int start, final int end) {
+      HashMap<Object, Object> entries = new HashMap<>();
+      for (int i = start; i < end; i++) {
+        JsonObject operation = operations.get(i);
+        entries.put(keyOf(operation), operation.getValue("value"));
+      }
+      AsyncMap<Object, Object> map = manager.getAsyncMap(name);
+      Handler<AsyncResult<Map<Object, Object>>> resultHandler = new Handler<AsyncResult<Map<Object, Object>>>() {
+        @Override
+        public void handle(AsyncResult<Map<Object, Object>> result) {
+          if (result.failed()) {
+            complete(start, end, new JsonObject().putString("status", "error").putString("message", result.cause().getMessage()));
+          } else {
+            for (int i = start; i < end; i++) {
+              Object value = result.result().get(keyOf((JsonObject) operations.get(i)));
+              results[i] = new JsonObject().putString("status", "ok").putValue("result", value);
+            }
+            index = end;
+            next();
+          }
+        }
+      };
+      if (manager instanceof HazelcastClusterManager) {
+        putEach(map, entries, resultHandler);
+      } else {
+        map.executeOnKeys(new HashSet<>(entries.keySet()), new PutAllProcessor(entries), resultHandler);
+      }
     }
 
-    try {
-      Object result = manager.getQueue(formatKey(name)).poll();
-      message.reply(new JsonObject().putString("status", "ok").putValue("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    /**
+     * Puts each entry with its own entry processor, calling the handler with
+     * the replaced values once all of the puts have completed.
+     */
+    private void putEach(AsyncMap<Object, Object> map, final Map<Object, Object> entries, final Handler<AsyncResult<Map<Object, Object>>> resultHandler) {
+      final Map<Object, Object> previous = new HashMap<>(entries.size());
+      final Set<Object> pending = new HashSet<>(entries.keySet());
+      for (final Map.Entry<Object, Object> entry : entries.entrySet()) {
+        map.executeOnKey(entry.getKey(), new PutProcessor(entry.getValue()), new Handler<AsyncResult<Object>>() {
+          @Override
+          public void handle(AsyncResult<Object> result) {
+            if (pending.isEmpty()) {
+              // Another put has already failed.
+              return;
+            }
+            if (result.failed()) {
+              pending.clear();
+              new DefaultFutureResult<Map<Object, Object>>(result.cause()).setHandler(resultHandler);
+              return;
+            }
+            previous.put(entry.getKey(), result.result());
+            pending.remove(entry.getKey());
+            if (pending.isEmpty()) {
+              new DefaultFutureResult<Map<Object, Object>>(previous).setHandler(resultHandler);
+            }
+          }
+        });
+      }
     }
-  }
 
-  /**
-   * Handles a queue peek command.
-   */
-  private void doQueuePeek(final Message<JsonObject> message) {
-    final String name = message.body().getString("name");
-    if (name == null) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", "No name specified."));
-      return;
+    /**
+     * Completes a range of operations with the same result.
+     */
+    private void complete(int start, int end, JsonObject result) {
+      for (int i = start; i < end; i++) {
+        results[i] = result;
+      }
+      if (!"ok".equals(result.getString("status"))) {
+        failed = true;
+      }
+      index = end;
+      next();
     }
 
-    try {
-      Object result = manager.getQueue(formatKey(name)).peek();
-      message.reply(new JsonObject().putString("status", "ok").putValue("result", result));
-    } catch (Exception e) {
-      message.reply(new JsonObject().putString("status", "error").putString("message", e.getMessage()));
+    /**
+     * Returns the bulk operation group of an operation, or <code>null</code>
+     * if the operation cannot be grouped.
+     */
+    private String groupOf(Object value) {
+      if (!(value instanceof JsonObject)) {
+        return null;
+      }
+      JsonObject operation = (JsonObject) value;
+      String type = operation.getString("type");
+      String action = operation.getString("action");
+      String name = operation.getString("name");
+      Object key = keyOf(operation);
+      if (type == null || action == null || name == null || key == null || operation.containsField("handle")) {
+        return null;
+      }
+
+      switch (type) {
+        case "key":
+          // Key sets are stamped with a new version, so only key gets are grouped.
+          return action.equals("get") ? "get:" + formatKey("keys") : null;
+        case "map":
+          if (action.equals("get") && key instanceof String) {
+            return "get:" + formatKey(name);
+          } else if (action.equals("put") && operation.getValue("value") != null
+              && !operation.containsField("ttl") && !operation.containsField("maxIdle")) {
+            return "put:" + formatKey(name);
+          }
+          return null;
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * Returns the map key of a groupable operation.
+     */
+    private Object keyOf(JsonObject operation) {
+      if ("key".equals(operation.getString("type"))) {
+        return operation.getString("name");
+      } else {
+        return operation.getValue("key");
+      }
     }
   }
 
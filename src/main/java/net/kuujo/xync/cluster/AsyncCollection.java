@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+
+/**
+ * Asynchronous cluster-wide collection.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The collection data type.
+ */
+public interface AsyncCollection<T> {
+
+  /**
+   * Returns the collection name.
+   *
+   * @return The collection name.
+   */
+  String name();
+
+  /**
+   * Adds a value to the collection.
+   *
+   * @param value The value to add.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a boolean indicating whether the collection changed.
+   */
+  void add(T value, Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Removes a value from the collection.
+   *
+   * @param value The value to remove.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a boolean indicating whether the collection changed.
+   */
+  void remove(Object value, Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Checks whether the collection contains a value.
+   *
+   * @param value The value to check.
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void contains(Object value, Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Checks whether the collection is empty.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void isEmpty(Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Counts the number of items in the collection.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void size(Handler<AsyncResult<Integer>> resultHandler);
+
+  /**
+   * Gets a page of items in the collection.<p>
+   *
+   * Paging is weakly consistent. Items that are added or removed while
+   * paging through the collection may or may not be returned. Collections
+   * that cannot read a page without reading the whole collection, such as
+   * Hazelcast sets and queues, fail with an {@link UnsupportedOperationException}.
+   *
+   * @param cursor The cursor returned with the previous page, or <code>null</code>
+   *        to get the first page.
+   * @param limit The maximum number of items to return.
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void page(String cursor, int limit, Handler<AsyncResult<Page<T>>> resultHandler);
+
+  /**
+   * Clears all items from the collection.
+   *
+   * @param doneHandler An asynchronous handler to be called once complete.
+   */
+  void clear(Handler<AsyncResult<Void>> doneHandler);
+
+}
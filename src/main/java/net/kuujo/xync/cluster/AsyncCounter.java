@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+
+/**
+ * Asynchronous cluster-wide atomic counter.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface AsyncCounter {
+
+  /**
+   * Returns the counter name.
+   *
+   * @return The counter name.
+   */
+  String name();
+
+  /**
+   * Gets the current counter value.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void get(Handler<AsyncResult<Long>> resultHandler);
+
+  /**
+   * Atomically adds a value to the counter.
+   *
+   * @param delta The value to add.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the updated counter value.
+   */
+  void addAndGet(long delta, Handler<AsyncResult<Long>> resultHandler);
+
+  /**
+   * Atomically adds a value to the counter.
+   *
+   * @param delta The value to add.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the counter value prior to the update.
+   */
+  void getAndAdd(long delta, Handler<AsyncResult<Long>> resultHandler);
+
+  /**
+   * Atomically sets the counter value if the current value equals the expected value.
+   *
+   * @param expect The expected value.
+   * @param update The new value.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a boolean indicating whether the value was set.
+   */
+  void compareAndSet(long expect, long update, Handler<AsyncResult<Boolean>> resultHandler);
+
+}
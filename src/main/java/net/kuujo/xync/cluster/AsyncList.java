@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+import java.util.List;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+
+/**
+ * Asynchronous cluster-wide list.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The list data type.
+ */
+public interface AsyncList<T> extends AsyncCollection<T> {
+
+  /**
+   * Gets a value from the list.
+   *
+   * @param index The index of the value to get.
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void get(int index, Handler<AsyncResult<T>> resultHandler);
+
+  /**
+   * Removes a value from the list by index.
+   *
+   * @param index The index of the value to remove.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the removed value.
+   */
+  void remove(int index, Handler<AsyncResult<T>> resultHandler);
+
+  /**
+   * Gets a range of values from the list.
+   *
+   * @param fromIndex The index of the first value to get.
+   * @param toIndex The index after the last value to get. The range is clipped
+   *        to the size of the list.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the values in the range.
+   */
+  void range(int fromIndex, int toIndex, Handler<AsyncResult<List<T>>> resultHandler);
+
+}
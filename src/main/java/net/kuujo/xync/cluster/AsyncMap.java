@@ -0,0 +1,240 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+
+/**
+ * Asynchronous cluster-wide map.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The map key type.
+ * @param <V> The map value type.
+ */
+public interface AsyncMap<K, V> {
+
+  /**
+   * Returns the map name.
+   *
+   * @return The map name.
+   */
+  String name();
+
+  /**
+   * Sets a key in the map.
+   *
+   * @param key The key to set.
+   * @param value The value to set.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the previous value of the key.
+   */
+  void put(K key, V value, Handler<AsyncResult<V>> resultHandler);
+
+  /**
+   * Sets a key in the map with an expiration.
+   *
+   * @param key The key to set.
+   * @param value The value to set.
+   * @param ttl The time to live in milliseconds, or <code>0</code> if the key
+   *        should not expire after a fixed time.
+   * @param maxIdle The maximum time in milliseconds the key may go unread, or
+   *        <code>0</code> if the key should not expire when idle.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the previous value of the key.
+   */
+  void put(K key, V value, long ttl, long maxIdle, Handler<AsyncResult<V>> resultHandler);
+
+  /**
+   * Gets a key in the map.
+   *
+   * @param key The key to get.
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void get(K key, Handler<AsyncResult<V>> resultHandler);
+
+  /**
+   * Removes a key from the map.
+   *
+   * @param key The key to remove.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the removed value.
+   */
+  void remove(K key, Handler<AsyncResult<V>> resultHandler);
+
+  /**
+   * Sets a key in the map if the map does not already contain the key.
+   *
+   * @param key The key to set.
+   * @param value The value to set.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the current value of the key, or <code>null</code>
+   *        if the key was set.
+   */
+  void putIfAbsent(K key, V value, Handler<AsyncResult<V>> resultHandler);
+
+  /**
+   * Replaces the value of a key if the map contains the key.
+   *
+   * @param key The key to replace.
+   * @param value The value to set.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the previous value of the key, or <code>null</code>
+   *        if the map did not contain the key.
+   */
+  void replace(K key, V value, Handler<AsyncResult<V>> resultHandler);
+
+  /**
+   * Replaces the value of a key if the key is set to an expected value.
+   *
+   * @param key The key to replace.
+   * @param oldValue The expected value of the key.
+   * @param newValue The value to set.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a boolean indicating whether the value was replaced.
+   */
+  void replace(K key, V oldValue, V newValue, Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Removes a key if the key is set to an expected value.
+   *
+   * @param key The key to remove.
+   * @param value The expected value of the key.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a boolean indicating whether the key was removed.
+   */
+  void remove(K key, V value, Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Gets a set of keys in the map.
+   *
+   * @param keys The keys to get.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a map of keys to values for all keys
+   *        that exist in the map.
+   */
+  void getAll(Set<K> keys, Handler<AsyncResult<Map<K, V>>> resultHandler);
+
+  /**
+   * Sets a group of keys in the map.
+   *
+   * @param entries The entries to set.
+   * @param doneHandler An asynchronous handler to be called once complete.
+   */
+  void putAll(Map<K, V> entries, Handler<AsyncResult<Void>> doneHandler);
+
+  /**
+   * Removes a set of keys from the map.
+   *
+   * @param keys The keys to remove.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a map of removed keys to their values.
+   */
+  void removeAll(Set<K> keys, Handler<AsyncResult<Map<K, V>>> resultHandler);
+
+  /**
+   * Checks whether the map contains a set of keys.
+   *
+   * @param keys The keys to check.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a map of each key to a boolean indicating
+   *        whether the map contains the key.
+   */
+  void containsKeys(Set<K> keys, Handler<AsyncResult<Map<K, Boolean>>> resultHandler);
+
+  /**
+   * Checks whether the map contains a key.
+   *
+   * @param key The key to check.
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void containsKey(K key, Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Runs an entry processor on the entry for a key.
+   *
+   * @param key The key of the entry to process.
+   * @param processor The processor to run.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the result of the processor.
+   */
+  void executeOnKey(K key, EntryProcessor<K, V> processor, Handler<AsyncResult<Object>> resultHandler);
+
+  /**
+   * Runs an entry processor on the entries for a set of keys.
+   *
+   * @param keys The keys of the entries to process.
+   * @param processor The processor to run.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a map of each key to the result of the
+   *        processor for that key.
+   */
+  void executeOnKeys(Set<K> keys, EntryProcessor<K, V> processor, Handler<AsyncResult<Map<K, Object>>> resultHandler);
+
+  /**
+   * Gets a set of keys in the map.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void keySet(Handler<AsyncResult<Set<K>>> resultHandler);
+
+  /**
+   * Gets a page of keys in the map.<p>
+   *
+   * Paging is weakly consistent. Keys that are added or removed while
+   * paging through the map may or may not be returned.
+   *
+   * @param cursor The cursor returned with the previous page, or <code>null</code>
+   *        to get the first page.
+   * @param limit The maximum number of keys to return.
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void keyPage(String cursor, int limit, Handler<AsyncResult<Page<K>>> resultHandler);
+
+  /**
+   * Gets a collection of values in the map.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void values(Handler<AsyncResult<Collection<V>>> resultHandler);
+
+  /**
+   * Checks whether the map is empty.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void isEmpty(Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Counts the number of entries in the map.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void size(Handler<AsyncResult<Integer>> resultHandler);
+
+  /**
+   * Clears all entries from the map.
+   *
+   * @param doneHandler An asynchronous handler to be called once complete.
+   */
+  void clear(Handler<AsyncResult<Void>> doneHandler);
+
+}
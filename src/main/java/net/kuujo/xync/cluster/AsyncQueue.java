@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+
+/**
+ * Asynchronous cluster-wide queue.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The queue data type.
+ */
+public interface AsyncQueue<T> extends AsyncCollection<T> {
+
+  /**
+   * Offers a value to the queue.
+   *
+   * @param value The value to offer.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a boolean indicating whether the value was added.
+   */
+  void offer(T value, Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Offers a batch of values to the queue.
+   *
+   * @param values The values to offer, in order.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with a boolean indicating whether the queue changed.
+   */
+  void offerAll(Collection<T> values, Handler<AsyncResult<Boolean>> resultHandler);
+
+  /**
+   * Returns values that were removed from the queue to its head, ahead of
+   * all other elements. Queues that cannot add elements at the head add
+   * them at the tail instead.
+   *
+   * @param values The values to return, in queue order.
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void requeue(Collection<T> values, Handler<AsyncResult<Void>> resultHandler);
+
+  /**
+   * Gets the head of the queue, failing if the queue is empty.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete.
+   */
+  void element(Handler<AsyncResult<T>> resultHandler);
+
+  /**
+   * Removes and returns the head of the queue.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with <code>null</code> if the queue is empty.
+   */
+  void poll(Handler<AsyncResult<T>> resultHandler);
+
+  /**
+   * Removes and returns the head of the queue, waiting for an element if
+   * the queue is empty.<p>
+   *
+   * No thread is held while waiting. Consumers waiting on the same node
+   * receive elements in the order in which they started waiting.
+   *
+   * @param timeout The maximum time to wait in milliseconds.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with <code>null</code> if no element arrives
+   *        before the timeout.
+   */
+  void take(long timeout, Handler<AsyncResult<T>> resultHandler);
+
+  /**
+   * Removes and returns a batch of elements from the head of the queue.
+   *
+   * @param max The maximum number of elements to remove.
+   * @param timeout The maximum time in milliseconds to wait for an element if
+   *        the queue is empty, or <code>0</code> if the handler should be called
+   *        immediately.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the removed elements in queue order, which
+   *        is empty if no element arrived before the timeout.
+   */
+  void drain(int max, long timeout, Handler<AsyncResult<List<T>>> resultHandler);
+
+  /**
+   * Gets a range of elements from the queue without removing them.
+   *
+   * @param fromIndex The position from the head of the first element to get.
+   * @param toIndex The position from the head after the last element to get.
+   *        The range is clipped to the size of the queue.
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with the elements in the range in queue order.
+   */
+  void range(int fromIndex, int toIndex, Handler<AsyncResult<List<T>>> resultHandler);
+
+  /**
+   * Returns the head of the queue without removing it.
+   *
+   * @param resultHandler An asynchronous handler to be called once complete. The
+   *        handler will be called with <code>null</code> if the queue is empty.
+   */
+  void peek(Handler<AsyncResult<T>> resultHandler);
+
+}
@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
+import net.kuujo.xync.util.NearCache;
+
 import org.vertx.java.core.Handler;
 
 /**
@@ -44,7 +46,16 @@ public interface ClusterManager {
   Set<String> getNodes();
 
   /**
-   * Sets a handler to be called when a member joins the cluster.
+   * Returns the node that owns the partition of a key.
+   *
+   * @param key The key whose owner to return.
+   * @return The ID of the node that owns the key's partition, or <code>null</code>
+   *         if the owner is not currently known.
+   */
+  String getPartitionOwner(Object key);
+
+  /**
+   * Adds a handler to be called when a member joins the cluster.
    *
    * @param handler A handler to be called when a member joins the cluster.
    * @return The cluster manager.
@@ -52,7 +63,7 @@ public interface ClusterManager {
   ClusterManager joinHandler(Handler<String> handler);
 
   /**
-   * Sets a handler to be called when a member leaves the cluster.
+   * Adds a handler to be called when a member leaves the cluster.
    *
    * @param handler A handler to be called when a member leaves the cluster.
    * @return The cluster manager.
@@ -91,4 +102,136 @@ public interface ClusterManager {
    */
   <T> Queue<T> getQueue(String name);
 
+  /**
+   * Returns an asynchronous cluster-wide map.
+   *
+   * @param name The map name.
+   * @return An asynchronous cluster-wide map.
+   */
+  <K, V> AsyncMap<K, V> getAsyncMap(String name);
+
+  /**
+   * Returns an asynchronous cluster-wide set.
+   *
+   * @param name The set name.
+   * @return An asynchronous cluster-wide set.
+   */
+  <T> AsyncSet<T> getAsyncSet(String name);
+
+  /**
+   * Returns an asynchronous cluster-wide list.
+   *
+   * @param name The list name.
+   * @return An asynchronous cluster-wide list.
+   */
+  <T> AsyncList<T> getAsyncList(String name);
+
+  /**
+   * Returns an asynchronous cluster-wide queue.
+   *
+   * @param name The queue name.
+   * @return An asynchronous cluster-wide queue.
+   */
+  <T> AsyncQueue<T> getAsyncQueue(String name);
+
+  /**
+   * Returns an asynchronous cluster-wide atomic counter.
+   *
+   * @param name The counter name.
+   * @return An asynchronous cluster-wide counter.
+   */
+  AsyncCounter getAsyncCounter(String name);
+
+  /**
+   * Sets the near cache for a map.<p>
+   *
+   * Once a near cache has been set, asynchronous maps with the given name
+   * read through the cache. Cluster managers for which all data is already
+   * local may ignore the cache.
+   *
+   * @param name The map name.
+   * @param cache The near cache, or <code>null</code> to remove the map's near cache.
+   */
+  <K, V> void setNearCache(String name, NearCache<K, V> cache);
+
+  /**
+   * Adds a listener for changes to map entries.<p>
+   *
+   * The handler is called on the context from which the listener was added.
+   *
+   * @param name The map name.
+   * @param key The key to listen to, or <code>null</code> to listen to all keys.
+   * @param handler A handler to be called with each change to the map.
+   * @return The listener ID.
+   */
+  <K, V> String addMapListener(String name, K key, Handler<MapEvent<K, V>> handler);
+
+  /**
+   * Removes a map listener.
+   *
+   * @param name The map name.
+   * @param id The listener ID.
+   */
+  void removeMapListener(String name, String id);
+
+  /**
+   * Sets the capacity policy for a map.<p>
+   *
+   * Once a map has a capacity policy, writes that take the map over its
+   * capacity evict entries according to the policy.
+   *
+   * @param name The map name.
+   * @param policy The map capacity policy.
+   * @throws IllegalArgumentException If the policy is not supported by the cluster manager.
+   * @throws IllegalStateException If the policy can no longer be applied to the map.
+   */
+  void setMapPolicy(String name, MapPolicy policy);
+
+  /**
+   * Returns the capacity policies of all bounded maps.
+   *
+   * @return A map of map names to capacity policies.
+   */
+  Map<String, MapPolicy> getMapPolicies();
+
+  /**
+   * Returns the number of entries evicted from a bounded map.
+   *
+   * @param name The map name.
+   * @return The number of entries evicted from the map on this node.
+   */
+  long getEvictions(String name);
+
+  /**
+   * Enables or disables the value index of a list.<p>
+   *
+   * An indexed list counts the occurrences of each of its values so that
+   * membership checks do not scan the list. Cluster managers whose lists
+   * do not benefit from an index may ignore this.
+   *
+   * @param name The list name.
+   * @param enabled Indicates whether the list should be indexed.
+   */
+  void setListIndex(String name, boolean enabled);
+
+  /**
+   * Enables or disables the value index of a queue.<p>
+   *
+   * An indexed queue counts the occurrences of each of its values so that
+   * membership checks do not scan the queue. Cluster managers whose queues
+   * do not benefit from an index may ignore this.
+   *
+   * @param name The queue name.
+   * @param enabled Indicates whether the queue should be indexed.
+   */
+  void setQueueIndex(String name, boolean enabled);
+
+  /**
+   * Closes the cluster manager.<p>
+   *
+   * This releases any timers and listeners held by the cluster manager.
+   * Data held in the cluster is not affected.
+   */
+  void close();
+
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Map entry processor.<p>
+ *
+ * Entry processors read and modify a single map entry in place on the
+ * node that owns the entry. Setting the entry value to <code>null</code>
+ * removes the entry. Processors are serialized and sent to the owner, and
+ * may be run more than once for a single operation, either on backups or
+ * when a concurrent write to the entry is detected, so processors must
+ * be deterministic and free of side effects.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The map key type.
+ * @param <V> The map value type.
+ */
+public interface EntryProcessor<K, V> extends Serializable {
+
+  /**
+   * Processes a map entry.
+   *
+   * @param entry The entry to process. The entry value is <code>null</code>
+   *        if the map does not contain the key.
+   * @return The result of processing the entry.
+   */
+  Object process(Map.Entry<K, V> entry);
+
+}
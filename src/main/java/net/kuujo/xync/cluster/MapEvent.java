@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+/**
+ * Map entry change event.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The map key type.
+ * @param <V> The map value type.
+ */
+public class MapEvent<K, V> {
+  public static final String PUT = "put";
+  public static final String REMOVE = "remove";
+  public static final String EVICT = "evict";
+
+  private final String type;
+  private final K key;
+  private final V value;
+
+  public MapEvent(String type, K key, V value) {
+    this.type = type;
+    this.key = key;
+    this.value = value;
+  }
+
+  /**
+   * Returns the event type.
+   *
+   * @return The event type, either <code>put</code> when an entry is created or
+   *         updated, <code>remove</code> when an entry is removed, or <code>evict</code>
+   *         when an entry expires or is evicted.
+   */
+  public String type() {
+    return type;
+  }
+
+  /**
+   * Returns the key of the changed entry.
+   *
+   * @return The entry key.
+   */
+  public K key() {
+    return key;
+  }
+
+  /**
+   * Returns the new value of the changed entry.
+   *
+   * @return The new entry value, or <code>null</code> if the entry was removed.
+   */
+  public V value() {
+    return value;
+  }
+
+}
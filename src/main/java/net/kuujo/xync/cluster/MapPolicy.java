@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+import java.io.Serializable;
+
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.shareddata.Shareable;
+
+/**
+ * Map capacity policy.<p>
+ *
+ * A capacity policy bounds a map by a maximum number of entries, a maximum
+ * estimated size in bytes, or both. Once a write takes a map over either
+ * bound, entries are evicted according to the eviction policy: the least
+ * recently used entry (<code>lru</code>), the least frequently used entry
+ * (<code>lfu</code>) or a random entry (<code>random</code>).
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class MapPolicy implements Serializable, Shareable {
+  private static final long serialVersionUID = 1L;
+  public static final String LRU = "lru";
+  public static final String LFU = "lfu";
+  public static final String RANDOM = "random";
+
+  private final int maxSize;
+  private final long maxBytes;
+  private final String eviction;
+
+  /**
+   * Creates a map capacity policy.
+   *
+   * @param maxSize The maximum number of entries, or <code>0</code> if the
+   *        number of entries is not bounded.
+   * @param maxBytes The maximum estimated size of the map in bytes, or <code>0</code>
+   *        if the size of the map is not bounded.
+   * @param eviction The eviction policy, either <code>lru</code>, <code>lfu</code>
+   *        or <code>random</code>.
+   */
+  public MapPolicy(int maxSize, long maxBytes, String eviction) {
+    if (maxSize < 0 || maxBytes < 0) {
+      throw new IllegalArgumentException("Map capacity must not be negative");
+    }
+    if (maxSize == 0 && maxBytes == 0) {
+      throw new IllegalArgumentException("No map capacity specified");
+    }
+    switch (eviction) {
+      case LRU:
+      case LFU:
+      case RANDOM:
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid map eviction policy " + eviction);
+    }
+    this.maxSize = maxSize;
+    this.maxBytes = maxBytes;
+    this.eviction = eviction;
+  }
+
+  /**
+   * Creates a map capacity policy from JSON configuration.
+   *
+   * @param config The policy configuration, with optional <code>maxSize</code>,
+   *        <code>maxBytes</code> and <code>eviction</code> fields. The eviction
+   *        policy defaults to <code>lru</code>.
+   * @return The map capacity policy.
+   */
+  public static MapPolicy fromJson(JsonObject config) {
+    return new MapPolicy(config.getInteger("maxSize", 0), config.getLong("maxBytes", 0), config.getString("eviction", LRU));
+  }
+
+  /**
+   * Returns the maximum number of entries.
+   *
+   * @return The maximum number of entries, or <code>0</code> if not bounded.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the maximum estimated size of the map in bytes.
+   *
+   * @return The maximum size in bytes, or <code>0</code> if not bounded.
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns the eviction policy.
+   *
+   * @return The eviction policy.
+   */
+  public String getEviction() {
+    return eviction;
+  }
+
+  /**
+   * Returns the policy as JSON.
+   *
+   * @return A JSON representation of the policy.
+   */
+  public JsonObject toJson() {
+    return new JsonObject()
+        .putNumber("maxSize", maxSize)
+        .putNumber("maxBytes", maxBytes)
+        .putString("eviction", eviction);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (!(object instanceof MapPolicy)) {
+      return false;
+    }
+    MapPolicy policy = (MapPolicy) object;
+    return policy.maxSize == maxSize && policy.maxBytes == maxBytes && policy.eviction.equals(eviction);
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (31 * (31 * maxSize + maxBytes) + eviction.hashCode());
+  }
+
+  @Override
+  public String toString() {
+    return toJson().encode();
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster;
+
+import java.util.List;
+
+/**
+ * A page of results from a paged data operation.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The page item type.
+ */
+public class Page<T> {
+  private final List<T> items;
+  private final String cursor;
+
+  public Page(List<T> items, String cursor) {
+    this.items = items;
+    this.cursor = cursor;
+  }
+
+  /**
+   * Returns the items in the page.
+   *
+   * @return A list of page items.
+   */
+  public List<T> items() {
+    return items;
+  }
+
+  /**
+   * Returns the cursor from which to read the next page.
+   *
+   * @return The next page cursor, or <code>null</code> if this is the last page.
+   */
+  public String cursor() {
+    return cursor;
+  }
+
+}
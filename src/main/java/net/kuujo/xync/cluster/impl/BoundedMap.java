@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Size-bounded shared data map.<p>
+ *
+ * Bounded maps evict entries once a write takes the map over the capacity
+ * of its {@link EvictionIndex}. All writes are made while holding the index
+ * lock so the index always agrees with the map contents. Reads only hold
+ * the lock to record the access for the eviction policy.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The map key type.
+ * @param <V> The map value type.
+ */
+public class BoundedMap<K, V> extends ExpiringMap<K, V> {
+  private final EvictionIndex index;
+
+  BoundedMap(ConcurrentMap<K, Object> map, Expirer expirer, EvictionIndex index, MapListeners listeners) {
+    super(map, expirer, listeners);
+    this.index = index;
+  }
+
+  @Override
+  public V get(Object key) {
+    synchronized (index) {
+      V value = super.get(key);
+      if (value != null) {
+        index.touch(key);
+      } else {
+        index.remove(key);
+      }
+      return value;
+    }
+  }
+
+  @Override
+  public V put(K key, V value, long ttl, long maxIdle) {
+    synchronized (index) {
+      V previous = super.put(key, value, ttl, maxIdle);
+      written(key, value);
+      return previous;
+    }
+  }
+
+  @Override
+  public V put(K key, V value) {
+    synchronized (index) {
+      V previous = super.put(key, value);
+      written(key, value);
+      return previous;
+    }
+  }
+
+  @Override
+  public V remove(Object key) {
+    synchronized (index) {
+      index.remove(key);
+      return super.remove(key);
+    }
+  }
+
+  @Override
+  public V putIfAbsent(K key, V value) {
+    synchronized (index) {
+      V previous = super.putIfAbsent(key, value);
+      if (previous == null) {
+        written(key, value);
+      }
+      return previous;
+    }
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    synchronized (index) {
+      V previous = super.replace(key, value);
+      if (previous != null) {
+        written(key, value);
+      } else {
+        index.remove(key);
+      }
+      return previous;
+    }
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    synchronized (index) {
+      if (super.replace(key, oldValue, newValue)) {
+        written(key, newValue);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    synchronized (index) {
+      if (super.remove(key, value)) {
+        index.remove(key);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public void clear() {
+    synchronized (index) {
+      super.clear();
+      index.clear();
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    final Set<Map.Entry<K, V>> entries = super.entrySet();
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        final Iterator<Map.Entry<K, V>> iterator = entries.iterator();
+        return new Iterator<Map.Entry<K, V>>() {
+          private K last;
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+          @Override
+          public Map.Entry<K, V> next() {
+            Map.Entry<K, V> entry = iterator.next();
+            last = entry.getKey();
+            return entry;
+          }
+          @Override
+          public void remove() {
+            synchronized (index) {
+              iterator.remove();
+              index.remove(last);
+            }
+          }
+        };
+      }
+      @Override
+      public int size() {
+        return entries.size();
+      }
+      @Override
+      public void clear() {
+        BoundedMap.this.clear();
+      }
+    };
+  }
+
+  @Override
+  boolean expire(Object key, Expiring expiring) {
+    synchronized (index) {
+      if (super.expire(key, expiring)) {
+        index.remove(key);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Indexes all entries in the map and evicts entries until the map is
+   * within its capacity.
+   */
+  void reindex() {
+    synchronized (index) {
+      index.clear();
+      for (Map.Entry<K, V> entry : super.entrySet()) {
+        index.record(entry.getKey(), EvictionIndex.sizeOf(entry.getKey(), entry.getValue()));
+      }
+      trim(null);
+    }
+  }
+
+  /**
+   * Records a write and evicts entries until the map is within its capacity.
+   */
+  private void written(K key, V value) {
+    index.record(key, EvictionIndex.sizeOf(key, value));
+    trim(key);
+  }
+
+  /**
+   * Evicts entries until the map is within its capacity.
+   */
+  private void trim(Object written) {
+    Object victim;
+    while ((victim = index.victim(written)) != null) {
+      index.remove(victim);
+      if (evict(victim) != null) {
+        index.evicted();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.kuujo.xync.cluster.AsyncMap;
+import net.kuujo.xync.cluster.EntryProcessor;
+import net.kuujo.xync.cluster.Page;
+import net.kuujo.xync.util.NearCache;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.impl.DefaultFutureResult;
+
+/**
+ * Near cached asynchronous map.<p>
+ *
+ * Reads are served from a node-local near cache when possible and
+ * otherwise loaded from the underlying map and cached. Writes through
+ * this map invalidate the written keys. Writes from other nodes must be
+ * invalidated by the cluster manager.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The map key type.
+ * @param <V> The map value type.
+ */
+public class CachedAsyncMap<K, V> implements AsyncMap<K, V> {
+  private final AsyncMap<K, V> map;
+  private final NearCache<K, V> cache;
+
+  public CachedAsyncMap(AsyncMap<K, V> map, NearCache<K, V> cache) {
+    this.map = map;
+    this.cache = cache;
+  }
+
+  @Override
+  public String name() {
+    return map.name();
+  }
+
+  @Override
+  public void put(final K key, V value, final Handler<AsyncResult<V>> resultHandler) {
+    cache.invalidate(key);
+    map.put(key, value, new Handler<AsyncResult<V>>() {
+      @Override
+      public void handle(AsyncResult<V> result) {
+        cache.invalidate(key);
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void put(final K key, V value, long ttl, long maxIdle, final Handler<AsyncResult<V>> resultHandler) {
+    cache.invalidate(key);
+    map.put(key, value, ttl, maxIdle, new Handler<AsyncResult<V>>() {
+      @Override
+      public void handle(AsyncResult<V> result) {
+        cache.invalidate(key);
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void get(final K key, final Handler<AsyncResult<V>> resultHandler) {
+    V value = cache.get(key);
+    if (value != null) {
+      new DefaultFutureResult<V>(value).setHandler(resultHandler);
+      return;
+    }
+
+    final long version = cache.version();
+    map.get(key, new Handler<AsyncResult<V>>() {
+      @Override
+      public void handle(AsyncResult<V> result) {
+        if (result.succeeded()) {
+          cache.put(key, result.result(), version);
+        }
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void remove(final K key, final Handler<AsyncResult<V>> resultHandler) {
+    cache.invalidate(key);
+    map.remove(key, new Handler<AsyncResult<V>>() {
+      @Override
+      public void handle(AsyncResult<V> result) {
+        cache.invalidate(key);
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void putIfAbsent(final K key, V value, final Handler<AsyncResult<V>> resultHandler) {
+    cache.invalidate(key);
+    map.putIfAbsent(key, value, new Handler<AsyncResult<V>>() {
+      @Override
+      public void handle(AsyncResult<V> result) {
+        cache.invalidate(key);
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void replace(final K key, V value, final Handler<AsyncResult<V>> resultHandler) {
+    cache.invalidate(key);
+    map.replace(key, value, new Handler<AsyncResult<V>>() {
+      @Override
+      public void handle(AsyncResult<V> result) {
+        cache.invalidate(key);
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void replace(final K key, V oldValue, V newValue, final Handler<AsyncResult<Boolean>> resultHandler) {
+    cache.invalidate(key);
+    map.replace(key, oldValue, newValue, new Handler<AsyncResult<Boolean>>() {
+      @Override
+      public void handle(AsyncResult<Boolean> result) {
+        cache.invalidate(key);
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void remove(final K key, V value, final Handler<AsyncResult<Boolean>> resultHandler) {
+    cache.invalidate(key);
+    map.remove(key, value, new Handler<AsyncResult<Boolean>>() {
+      @Override
+      public void handle(AsyncResult<Boolean> result) {
+        cache.invalidate(key);
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void getAll(Set<K> keys, final Handler<AsyncResult<Map<K, V>>> resultHandler) {
+    final Map<K, V> entries = new HashMap<>(keys.size());
+    final Set<K> missing = new HashSet<>();
+    for (K key : keys) {
+      V value = cache.get(key);
+      if (value != null) {
+        entries.put(key, value);
+      } else {
+        missing.add(key);
+      }
+    }
+
+    if (missing.isEmpty()) {
+      new DefaultFutureResult<Map<K, V>>(entries).setHandler(resultHandler);
+      return;
+    }
+
+    final long version = cache.version();
+    map.getAll(missing, new Handler<AsyncResult<Map<K, V>>>() {
+      @Override
+      public void handle(AsyncResult<Map<K, V>> result) {
+        if (result.failed()) {
+          resultHandler.handle(result);
+        } else {
+          for (Map.Entry<K, V> entry : result.result().entrySet()) {
+            cache.put(entry.getKey(), entry.getValue(), version);
+            entries.put(entry.getKey(), entry.getValue());
+          }
+          new DefaultFutureResult<Map<K, V>>(entries).setHandler(resultHandler);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void putAll(final Map<K, V> entries, final Handler<AsyncResult<Void>> doneHandler) {
+    for (K key : entries.keySet()) {
+      cache.invalidate(key);
+    }
+    map.putAll(entries, new Handler<AsyncResult<Void>>() {
+      @Override
+      public void handle(AsyncResult<Void> result) {
+        for (K key : entries.keySet()) {
+          cache.invalidate(key);
+        }
+        doneHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void removeAll(final Set<K> keys, final Handler<AsyncResult<Map<K, V>>> resultHandler) {
+    for (K key : keys) {
+      cache.invalidate(key);
+    }
+    map.removeAll(keys, new Handler<AsyncResult<Map<K, V>>>() {
+      @Override
+      public void handle(AsyncResult<Map<K, V>> result) {
+        for (K key : keys) {
+          cache.invalidate(key);
+        }
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void containsKeys(Set<K> keys, Handler<AsyncResult<Map<K, Boolean>>> resultHandler) {
+    map.containsKeys(keys, resultHandler);
+  }
+
+  @Override
+  public void containsKey(K key, Handler<AsyncResult<Boolean>> resultHandler) {
+    map.containsKey(key, resultHandler);
+  }
+
+  @Override
+  public void executeOnKey(final K key, EntryProcessor<K, V> processor, final Handler<AsyncResult<Object>> resultHandler) {
+    cache.invalidate(key);
+    map.executeOnKey(key, processor, new Handler<AsyncResult<Object>>() {
+      @Override
+      public void handle(AsyncResult<Object> result) {
+        cache.invalidate(key);
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void executeOnKeys(final Set<K> keys, EntryProcessor<K, V> processor, final Handler<AsyncResult<Map<K, Object>>> resultHandler) {
+    for (K key : keys) {
+      cache.invalidate(key);
+    }
+    map.executeOnKeys(keys, processor, new Handler<AsyncResult<Map<K, Object>>>() {
+      @Override
+      public void handle(AsyncResult<Map<K, Object>> result) {
+        for (K key : keys) {
+          cache.invalidate(key);
+        }
+        resultHandler.handle(result);
+      }
+    });
+  }
+
+  @Override
+  public void keySet(Handler<AsyncResult<Set<K>>> resultHandler) {
+    map.keySet(resultHandler);
+  }
+
+  @Override
+  public void keyPage(String cursor, int limit, Handler<AsyncResult<Page<K>>> resultHandler) {
+    map.keyPage(cursor, limit, resultHandler);
+  }
+
+  @Override
+  public void values(Handler<AsyncResult<Collection<V>>> resultHandler) {
+    map.values(resultHandler);
+  }
+
+  @Override
+  public void isEmpty(Handler<AsyncResult<Boolean>> resultHandler) {
+    map.isEmpty(resultHandler);
+  }
+
+  @Override
+  public void size(Handler<AsyncResult<Integer>> resultHandler) {
+    map.size(resultHandler);
+  }
+
+  @Override
+  public void clear(final Handler<AsyncResult<Void>> doneHandler) {
+    cache.invalidateAll();
+    map.clear(new Handler<AsyncResult<Void>>() {
+      @Override
+      public void handle(AsyncResult<Void> result) {
+        cache.invalidateAll();
+        doneHandler.handle(result);
+      }
+    });
+  }
+
+}
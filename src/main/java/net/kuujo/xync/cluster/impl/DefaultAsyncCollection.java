@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import net.kuujo.xync.cluster.AsyncCollection;
+import net.kuujo.xync.cluster.Page;
+import net.kuujo.xync.util.DataExecutor;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+
+/**
+ * Asynchronous collection that runs operations on a synchronous
+ * collection using the data executor.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The collection data type.
+ * @param <C> The wrapped collection type.
+ */
+abstract class DefaultAsyncCollection<T, C extends Collection<T>> implements AsyncCollection<T> {
+  protected final String name;
+  protected final C collection;
+  protected final DataExecutor executor;
+
+  protected DefaultAsyncCollection(String name, C collection, DataExecutor executor) {
+    this.name = name;
+    this.collection = collection;
+    this.executor = executor;
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public void add(final T value, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return collection.add(value);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void remove(final Object value, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return collection.remove(value);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void contains(final Object value, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return collection.contains(value);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void isEmpty(Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return collection.isEmpty();
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void size(Handler<AsyncResult<Integer>> resultHandler) {
+    executor.execute(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return collection.size();
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void page(final String cursor, final int limit, Handler<AsyncResult<Page<T>>> resultHandler) {
+    executor.execute(new Callable<Page<T>>() {
+      @Override
+      public Page<T> call() {
+        // The cursor is the offset of the next item in iteration order.
+        long offset = cursor != null ? Long.parseLong(cursor) : 0;
+        Iterator<T> iterator = collection.iterator();
+        for (long i = 0; i < offset && iterator.hasNext(); i++) {
+          iterator.next();
+        }
+        List<T> items = new ArrayList<>(limit);
+        while (items.size() < limit && iterator.hasNext()) {
+          items.add(iterator.next());
+        }
+        return new Page<T>(items, iterator.hasNext() ? String.valueOf(offset + items.size()) : null);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void clear(Handler<AsyncResult<Void>> doneHandler) {
+    executor.execute(new Callable<Void>() {
+      @Override
+      public Void call() {
+        collection.clear();
+        return null;
+      }
+    }, doneHandler);
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import net.kuujo.xync.cluster.AsyncList;
+import net.kuujo.xync.cluster.Page;
+import net.kuujo.xync.util.DataExecutor;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+
+/**
+ * Asynchronous list that runs operations on a synchronous list
+ * using the data executor.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The list data type.
+ */
+public class DefaultAsyncList<T> extends DefaultAsyncCollection<T, List<T>> implements AsyncList<T> {
+
+  public DefaultAsyncList(String name, List<T> list, DataExecutor executor) {
+    super(name, list, executor);
+  }
+
+  @Override
+  public void get(final int index, Handler<AsyncResult<T>> resultHandler) {
+    executor.execute(new Callable<T>() {
+      @Override
+      public T call() {
+        return collection.get(index);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void remove(final int index, Handler<AsyncResult<T>> resultHandler) {
+    executor.execute(new Callable<T>() {
+      @Override
+      public T call() {
+        return collection.remove(index);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void range(final int fromIndex, final int toIndex, Handler<AsyncResult<List<T>>> resultHandler) {
+    executor.execute(new Callable<List<T>>() {
+      @Override
+      public List<T> call() {
+        return read(fromIndex, toIndex);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void page(final String cursor, final int limit, Handler<AsyncResult<Page<T>>> resultHandler) {
+    executor.execute(new Callable<Page<T>>() {
+      @Override
+      public Page<T> call() {
+        // Lists are paged by index so that only the page is ever read. One
+        // extra item is read to determine whether there is a next page.
+        int offset = cursor != null ? Integer.parseInt(cursor) : 0;
+        List<T> items = read(offset, offset + limit + 1);
+        if (items.size() > limit) {
+          return new Page<T>(items.subList(0, limit), String.valueOf(offset + limit));
+        }
+        return new Page<T>(items, null);
+      }
+    }, resultHandler);
+  }
+
+  /**
+   * Reads a range of the list, clipped to the size of the list, in a single
+   * operation on the underlying list.
+   */
+  private List<T> read(int fromIndex, int toIndex) {
+    if (collection instanceof SharedDataList) {
+      return ((SharedDataList<T>) collection).range(fromIndex, toIndex);
+    }
+    int to = Math.min(toIndex, collection.size());
+    if (fromIndex >= to) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(collection.subList(fromIndex, to));
+  }
+
+}
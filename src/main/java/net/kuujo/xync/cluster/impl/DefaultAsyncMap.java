@@ -0,0 +1,425 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+
+import net.kuujo.xync.cluster.AsyncMap;
+import net.kuujo.xync.cluster.EntryProcessor;
+import net.kuujo.xync.cluster.Page;
+import net.kuujo.xync.util.DataExecutor;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.impl.DefaultFutureResult;
+
+/**
+ * Asynchronous map that runs operations on a synchronous map
+ * using the data executor.<p>
+ *
+ * Conditional writes use the atomic operations of concurrent maps.
+ * Other maps are locked for the duration of a conditional write.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The map key type.
+ * @param <V> The map value type.
+ */
+public class DefaultAsyncMap<K, V> implements AsyncMap<K, V> {
+  protected final String name;
+  protected final Map<K, V> map;
+  protected final DataExecutor executor;
+
+  public DefaultAsyncMap(String name, Map<K, V> map, DataExecutor executor) {
+    this.name = name;
+    this.map = map;
+    this.executor = executor;
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public void put(final K key, final V value, Handler<AsyncResult<V>> resultHandler) {
+    executor.execute(new Callable<V>() {
+      @Override
+      public V call() {
+        return map.put(key, value);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void put(final K key, final V value, final long ttl, final long maxIdle, Handler<AsyncResult<V>> resultHandler) {
+    if (ttl <= 0 && maxIdle <= 0) {
+      put(key, value, resultHandler);
+    } else if (!(map instanceof ExpiringMap)) {
+      new DefaultFutureResult<V>(new UnsupportedOperationException("Map does not support expiration")).setHandler(resultHandler);
+    } else {
+      executor.execute(new Callable<V>() {
+        @Override
+        public V call() {
+          return ((ExpiringMap<K, V>) map).put(key, value, ttl, maxIdle);
+        }
+      }, resultHandler);
+    }
+  }
+
+  @Override
+  public void get(final K key, Handler<AsyncResult<V>> resultHandler) {
+    executor.execute(new Callable<V>() {
+      @Override
+      public V call() {
+        return map.get(key);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void remove(final K key, Handler<AsyncResult<V>> resultHandler) {
+    executor.execute(new Callable<V>() {
+      @Override
+      public V call() {
+        return map.remove(key);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void putIfAbsent(final K key, final V value, Handler<AsyncResult<V>> resultHandler) {
+    executor.execute(new Callable<V>() {
+      @Override
+      public V call() {
+        if (map instanceof ConcurrentMap) {
+          return ((ConcurrentMap<K, V>) map).putIfAbsent(key, value);
+        }
+        synchronized (map) {
+          V current = map.get(key);
+          if (current == null) {
+            map.put(key, value);
+          }
+          return current;
+        }
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void replace(final K key, final V value, Handler<AsyncResult<V>> resultHandler) {
+    executor.execute(new Callable<V>() {
+      @Override
+      public V call() {
+        if (map instanceof ConcurrentMap) {
+          return ((ConcurrentMap<K, V>) map).replace(key, value);
+        }
+        synchronized (map) {
+          return map.containsKey(key) ? map.put(key, value) : null;
+        }
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void replace(final K key, final V oldValue, final V newValue, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        if (map instanceof ConcurrentMap) {
+          return ((ConcurrentMap<K, V>) map).replace(key, oldValue, newValue);
+        }
+        synchronized (map) {
+          if (map.containsKey(key) && oldValue.equals(map.get(key))) {
+            map.put(key, newValue);
+            return true;
+          }
+          return false;
+        }
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void remove(final K key, final V value, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        if (map instanceof ConcurrentMap) {
+          return ((ConcurrentMap<K, V>) map).remove(key, value);
+        }
+        synchronized (map) {
+          if (map.containsKey(key) && value.equals(map.get(key))) {
+            map.remove(key);
+            return true;
+          }
+          return false;
+        }
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void getAll(final Set<K> keys, Handler<AsyncResult<Map<K, V>>> resultHandler) {
+    executor.execute(new Callable<Map<K, V>>() {
+      @Override
+      public Map<K, V> call() {
+        Map<K, V> result = new HashMap<>(keys.size());
+        for (K key : keys) {
+          V value = map.get(key);
+          if (value != null) {
+            result.put(key, value);
+          }
+        }
+        return result;
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void putAll(final Map<K, V> entries, Handler<AsyncResult<Void>> doneHandler) {
+    executor.execute(new Callable<Void>() {
+      @Override
+      public Void call() {
+        map.putAll(entries);
+        return null;
+      }
+    }, doneHandler);
+  }
+
+  @Override
+  public void removeAll(final Set<K> keys, Handler<AsyncResult<Map<K, V>>> resultHandler) {
+    executor.execute(new Callable<Map<K, V>>() {
+      @Override
+      public Map<K, V> call() {
+        Map<K, V> result = new HashMap<>(keys.size());
+        for (K key : keys) {
+          V value = map.remove(key);
+          if (value != null) {
+            result.put(key, value);
+          }
+        }
+        return result;
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void containsKeys(final Set<K> keys, Handler<AsyncResult<Map<K, Boolean>>> resultHandler) {
+    executor.execute(new Callable<Map<K, Boolean>>() {
+      @Override
+      public Map<K, Boolean> call() {
+        Map<K, Boolean> result = new HashMap<>(keys.size());
+        for (K key : keys) {
+          result.put(key, map.containsKey(key));
+        }
+        return result;
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void containsKey(final K key, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return map.containsKey(key);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void executeOnKey(final K key, final EntryProcessor<K, V> processor, Handler<AsyncResult<Object>> resultHandler) {
+    executor.execute(new Callable<Object>() {
+      @Override
+      public Object call() {
+        return process(key, processor);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void executeOnKeys(final Set<K> keys, final EntryProcessor<K, V> processor, Handler<AsyncResult<Map<K, Object>>> resultHandler) {
+    executor.execute(new Callable<Map<K, Object>>() {
+      @Override
+      public Map<K, Object> call() {
+        Map<K, Object> result = new HashMap<>(keys.size());
+        for (K key : keys) {
+          result.put(key, process(key, processor));
+        }
+        return result;
+      }
+    }, resultHandler);
+  }
+
+  /**
+   * Runs an entry processor on a single entry.<p>
+   *
+   * Concurrent maps are updated with a compare-and-set of the entry value,
+   * and the processor is run again if the entry was changed while it was
+   * being processed. Other maps are locked while the processor runs.
+   */
+  protected Object process(K key, EntryProcessor<K, V> processor) {
+    if (map instanceof ConcurrentMap) {
+      ConcurrentMap<K, V> concurrentMap = (ConcurrentMap<K, V>) map;
+      while (true) {
+        V value = concurrentMap.get(key);
+        ProcessorEntry<K, V> entry = new ProcessorEntry<>(key, value);
+        Object result = processor.process(entry);
+        if (!entry.modified) {
+          return result;
+        } else if (entry.value == null) {
+          if (value == null || concurrentMap.remove(key, value)) {
+            return result;
+          }
+        } else if (value == null) {
+          if (concurrentMap.putIfAbsent(key, entry.value) == null) {
+            return result;
+          }
+        } else if (concurrentMap.replace(key, value, entry.value)) {
+          return result;
+        }
+      }
+    } else {
+      synchronized (map) {
+        ProcessorEntry<K, V> entry = new ProcessorEntry<>(key, map.get(key));
+        Object result = processor.process(entry);
+        if (entry.modified) {
+          if (entry.value == null) {
+            map.remove(key);
+          } else {
+            map.put(key, entry.value);
+          }
+        }
+        return result;
+      }
+    }
+  }
+
+  @Override
+  public void keySet(Handler<AsyncResult<Set<K>>> resultHandler) {
+    executor.execute(new Callable<Set<K>>() {
+      @Override
+      public Set<K> call() {
+        return new HashSet<>(map.keySet());
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void keyPage(final String cursor, final int limit, Handler<AsyncResult<Page<K>>> resultHandler) {
+    executor.execute(new Callable<Page<K>>() {
+      @Override
+      public Page<K> call() {
+        // The cursor is the offset of the next key in iteration order.
+        long offset = cursor != null ? Long.parseLong(cursor) : 0;
+        Iterator<K> iterator = map.keySet().iterator();
+        for (long i = 0; i < offset && iterator.hasNext(); i++) {
+          iterator.next();
+        }
+        List<K> keys = new ArrayList<>(limit);
+        while (keys.size() < limit && iterator.hasNext()) {
+          keys.add(iterator.next());
+        }
+        return new Page<K>(keys, iterator.hasNext() ? String.valueOf(offset + keys.size()) : null);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void values(Handler<AsyncResult<Collection<V>>> resultHandler) {
+    executor.execute(new Callable<Collection<V>>() {
+      @Override
+      public Collection<V> call() {
+        return new ArrayList<>(map.values());
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void isEmpty(Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return map.isEmpty();
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void size(Handler<AsyncResult<Integer>> resultHandler) {
+    executor.execute(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return map.size();
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void clear(Handler<AsyncResult<Void>> doneHandler) {
+    executor.execute(new Callable<Void>() {
+      @Override
+      public Void call() {
+        map.clear();
+        return null;
+      }
+    }, doneHandler);
+  }
+
+  /**
+   * Map entry passed to entry processors.
+   */
+  private static class ProcessorEntry<K, V> implements Map.Entry<K, V> {
+    private final K key;
+    private V value;
+    private boolean modified;
+
+    private ProcessorEntry(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(V value) {
+      V previous = this.value;
+      this.value = value;
+      this.modified = true;
+      return previous;
+    }
+  }
+
+}
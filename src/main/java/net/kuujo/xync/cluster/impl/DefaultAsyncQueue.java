@@ -0,0 +1,238 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+
+import net.kuujo.xync.cluster.AsyncQueue;
+import net.kuujo.xync.cluster.Page;
+import net.kuujo.xync.util.DataExecutor;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.impl.DefaultFutureResult;
+
+/**
+ * Asynchronous queue that runs operations on a synchronous queue
+ * using the data executor. Consumers taking from a shared data queue
+ * wait on the queue itself rather than on the executor.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The queue data type.
+ */
+public class DefaultAsyncQueue<T> extends DefaultAsyncCollection<T, Queue<T>> implements AsyncQueue<T> {
+
+  public DefaultAsyncQueue(String name, Queue<T> queue, DataExecutor executor) {
+    super(name, queue, executor);
+  }
+
+  @Override
+  public void offer(final T value, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return collection.offer(value);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void offerAll(final Collection<T> values, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return collection.addAll(values);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void requeue(final Collection<T> values, Handler<AsyncResult<Void>> resultHandler) {
+    executor.execute(new Callable<Void>() {
+      @Override
+      public Void call() {
+        if (collection instanceof SharedDataQueue) {
+          ((SharedDataQueue<T>) collection).requeue(values);
+        } else {
+          collection.addAll(values);
+        }
+        return null;
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void element(Handler<AsyncResult<T>> resultHandler) {
+    executor.execute(new Callable<T>() {
+      @Override
+      public T call() {
+        return collection.element();
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void poll(Handler<AsyncResult<T>> resultHandler) {
+    executor.execute(new Callable<T>() {
+      @Override
+      public T call() {
+        return collection.poll();
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void take(long timeout, Handler<AsyncResult<T>> resultHandler) {
+    if (collection instanceof SharedDataQueue) {
+      ((SharedDataQueue<T>) collection).take(timeout, resultHandler);
+    } else {
+      poll(resultHandler);
+    }
+  }
+
+  @Override
+  public void drain(final int max, final long timeout, final Handler<AsyncResult<List<T>>> resultHandler) {
+    executor.execute(drainTask(max), new Handler<AsyncResult<List<T>>>() {
+      @Override
+      public void handle(AsyncResult<List<T>> result) {
+        if (result.failed() || !result.result().isEmpty() || timeout <= 0) {
+          resultHandler.handle(result);
+          return;
+        }
+
+        // The queue is empty, so wait for the first element and then
+        // drain any elements that arrived along with it.
+        take(timeout, new Handler<AsyncResult<T>>() {
+          @Override
+          public void handle(AsyncResult<T> result) {
+            if (result.failed()) {
+              new DefaultFutureResult<List<T>>(result.cause()).setHandler(resultHandler);
+              return;
+            }
+            final List<T> values = new ArrayList<>();
+            if (result.result() == null) {
+              new DefaultFutureResult<List<T>>(values).setHandler(resultHandler);
+              return;
+            }
+            values.add(result.result());
+            if (max == 1) {
+              new DefaultFutureResult<List<T>>(values).setHandler(resultHandler);
+              return;
+            }
+            executor.execute(drainTask(max - 1), new Handler<AsyncResult<List<T>>>() {
+              @Override
+              public void handle(AsyncResult<List<T>> result) {
+                // The first element has already been removed, so it is
+                // returned even if draining the rest fails.
+                if (result.succeeded()) {
+                  values.addAll(result.result());
+                }
+                new DefaultFutureResult<List<T>>(values).setHandler(resultHandler);
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Override
+  public void range(final int fromIndex, final int toIndex, Handler<AsyncResult<List<T>>> resultHandler) {
+    executor.execute(new Callable<List<T>>() {
+      @Override
+      public List<T> call() {
+        return read(fromIndex, toIndex);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void page(final String cursor, final int limit, Handler<AsyncResult<Page<T>>> resultHandler) {
+    executor.execute(new Callable<Page<T>>() {
+      @Override
+      public Page<T> call() {
+        // One extra element is read to determine whether there is a next page.
+        int offset = cursor != null ? Integer.parseInt(cursor) : 0;
+        List<T> items = read(offset, offset + limit + 1);
+        if (items.size() > limit) {
+          return new Page<T>(items.subList(0, limit), String.valueOf(offset + limit));
+        }
+        return new Page<T>(items, null);
+      }
+    }, resultHandler);
+  }
+
+  /**
+   * Reads a range of the queue without removing any elements.
+   */
+  private List<T> read(int fromIndex, int toIndex) {
+    if (collection instanceof SharedDataQueue) {
+      return ((SharedDataQueue<T>) collection).range(fromIndex, toIndex);
+    }
+    List<T> values = new ArrayList<>();
+    Iterator<T> iterator = collection.iterator();
+    for (int i = 0; i < toIndex && iterator.hasNext(); i++) {
+      T value = iterator.next();
+      if (i >= fromIndex) {
+        values.add(value);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Returns a task that removes up to the given number of elements from
+   * the head of the queue in a single batch where the queue supports it.
+   */
+  @SuppressWarnings("unchecked")
+  private Callable<List<T>> drainTask(final int max) {
+    return new Callable<List<T>>() {
+      @Override
+      public List<T> call() {
+        List<T> values = new ArrayList<>();
+        if (collection instanceof SharedDataQueue) {
+          ((SharedDataQueue<T>) collection).drainTo(values, max);
+        } else if (collection instanceof BlockingQueue) {
+          ((BlockingQueue<T>) collection).drainTo(values, max);
+        } else {
+          T value;
+          while (values.size() < max && (value = collection.poll()) != null) {
+            values.add(value);
+          }
+        }
+        return values;
+      }
+    };
+  }
+
+  @Override
+  public void peek(Handler<AsyncResult<T>> resultHandler) {
+    executor.execute(new Callable<T>() {
+      @Override
+      public T call() {
+        return collection.peek();
+      }
+    }, resultHandler);
+  }
+
+}
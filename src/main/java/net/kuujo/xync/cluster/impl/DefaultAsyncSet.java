@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.Set;
+
+import net.kuujo.xync.cluster.AsyncSet;
+import net.kuujo.xync.util.DataExecutor;
+
+/**
+ * Asynchronous set that runs operations on a synchronous set
+ * using the data executor.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The set data type.
+ */
+public class DefaultAsyncSet<T> extends DefaultAsyncCollection<T, Set<T>> implements AsyncSet<T> {
+
+  public DefaultAsyncSet(String name, Set<T> set, DataExecutor executor) {
+    super(name, set, executor);
+  }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import net.kuujo.xync.cluster.MapPolicy;
+
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.shareddata.Shareable;
+
+/**
+ * Eviction index for a size-bounded shared data map.<p>
+ *
+ * The index tracks the keys of a map along with their estimated sizes and
+ * selects entries to evict according to the map's {@link MapPolicy}. The
+ * index is shared by all {@link BoundedMap} instances for the same map, and
+ * is also the lock under which those maps are modified, so the index always
+ * agrees with the map contents.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class EvictionIndex implements Shareable {
+  private static final long ENTRY_OVERHEAD = 64;
+  private MapPolicy policy;
+  private Map<Object, Tracked> entries;
+  private final TreeMap<Long, LinkedHashSet<Object>> frequencies = new TreeMap<>();
+  private final List<Object> keys = new ArrayList<>();
+  private long bytes;
+  private long evictions;
+
+  EvictionIndex(MapPolicy policy) {
+    this.policy = policy;
+    this.entries = createEntries(policy);
+  }
+
+  /**
+   * Returns the capacity policy.
+   */
+  synchronized MapPolicy policy() {
+    return policy;
+  }
+
+  /**
+   * Changes the capacity policy. Changing the policy clears the index,
+   * so the map must be reindexed while still holding the index lock.
+   */
+  synchronized void policy(MapPolicy policy) {
+    this.policy = policy;
+    entries = createEntries(policy);
+    clear();
+  }
+
+  /**
+   * Records a write to a key.
+   *
+   * @param key The key that was written.
+   * @param bytes The estimated size of the entry.
+   */
+  synchronized void record(Object key, long bytes) {
+    Tracked tracked = entries.get(key);
+    if (tracked == null) {
+      tracked = new Tracked(bytes);
+      entries.put(key, tracked);
+      link(key, tracked);
+      if (policy.getEviction().equals(MapPolicy.RANDOM)) {
+        tracked.position = keys.size();
+        keys.add(key);
+      }
+    } else {
+      this.bytes -= tracked.bytes;
+      tracked.bytes = bytes;
+      touch(key, tracked);
+    }
+    this.bytes += bytes;
+  }
+
+  /**
+   * Records a read of a key.
+   *
+   * @param key The key that was read.
+   */
+  synchronized void touch(Object key) {
+    Tracked tracked = entries.get(key);
+    if (tracked != null) {
+      touch(key, tracked);
+    }
+  }
+
+  private void touch(Object key, Tracked tracked) {
+    if (policy.getEviction().equals(MapPolicy.LFU)) {
+      unlink(key, tracked);
+      tracked.frequency++;
+      link(key, tracked);
+    }
+  }
+
+  /**
+   * Stops tracking a key.
+   *
+   * @param key The key that was removed.
+   */
+  synchronized void remove(Object key) {
+    Tracked tracked = entries.remove(key);
+    if (tracked == null) {
+      return;
+    }
+    bytes -= tracked.bytes;
+    unlink(key, tracked);
+    if (policy.getEviction().equals(MapPolicy.RANDOM)) {
+      Object last = keys.remove(keys.size() - 1);
+      if (tracked.position < keys.size()) {
+        keys.set(tracked.position, last);
+        entries.get(last).position = tracked.position;
+      }
+    }
+  }
+
+  /**
+   * Stops tracking all keys.
+   */
+  synchronized void clear() {
+    entries.clear();
+    frequencies.clear();
+    keys.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Selects the next key to evict.
+   *
+   * @param written The key that was just written. The written key is only
+   *        selected if it is the only key in the map.
+   * @return The key to evict, or <code>null</code> if the map is within its capacity.
+   */
+  synchronized Object victim(Object written) {
+    if (entries.isEmpty() || !((policy.getMaxSize() > 0 && entries.size() > policy.getMaxSize())
+        || (policy.getMaxBytes() > 0 && bytes > policy.getMaxBytes()))) {
+      return null;
+    }
+    switch (policy.getEviction()) {
+      case MapPolicy.LFU:
+        for (LinkedHashSet<Object> bucket : frequencies.values()) {
+          for (Object key : bucket) {
+            if (!key.equals(written)) {
+              return key;
+            }
+          }
+        }
+        return written;
+      case MapPolicy.RANDOM:
+        int position = ThreadLocalRandom.current().nextInt(keys.size());
+        if (keys.get(position).equals(written) && keys.size() > 1) {
+          position = (position + 1) % keys.size();
+        }
+        return keys.get(position);
+      default:
+        Iterator<Object> iterator = entries.keySet().iterator();
+        Object key = iterator.next();
+        return key.equals(written) && iterator.hasNext() ? iterator.next() : key;
+    }
+  }
+
+  /**
+   * Records an eviction.
+   */
+  synchronized void evicted() {
+    evictions++;
+  }
+
+  /**
+   * Returns the number of entries evicted from the map.
+   */
+  synchronized long evictions() {
+    return evictions;
+  }
+
+  /**
+   * Adds a key to its frequency bucket.
+   */
+  private void link(Object key, Tracked tracked) {
+    if (policy.getEviction().equals(MapPolicy.LFU)) {
+      LinkedHashSet<Object> bucket = frequencies.get(tracked.frequency);
+      if (bucket == null) {
+        bucket = new LinkedHashSet<>();
+        frequencies.put(tracked.frequency, bucket);
+      }
+      bucket.add(key);
+    }
+  }
+
+  /**
+   * Removes a key from its frequency bucket.
+   */
+  private void unlink(Object key, Tracked tracked) {
+    if (policy.getEviction().equals(MapPolicy.LFU)) {
+      LinkedHashSet<Object> bucket = frequencies.get(tracked.frequency);
+      if (bucket != null) {
+        bucket.remove(key);
+        if (bucket.isEmpty()) {
+          frequencies.remove(tracked.frequency);
+        }
+      }
+    }
+  }
+
+  private static Map<Object, Tracked> createEntries(MapPolicy policy) {
+    if (policy.getEviction().equals(MapPolicy.LRU)) {
+      return new LinkedHashMap<>(16, 0.75f, true);
+    }
+    return new HashMap<>();
+  }
+
+  /**
+   * Estimates the heap size of a map entry.<p>
+   *
+   * Estimates are based on the types that may be stored in shared data and
+   * include a fixed per-entry overhead for the map and index.
+   *
+   * @param key The entry key.
+   * @param value The entry value.
+   * @return The estimated size of the entry in bytes.
+   */
+  static long sizeOf(Object key, Object value) {
+    return ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+  }
+
+  private static long sizeOf(Object value) {
+    if (value instanceof String) {
+      return 40 + 2L * ((String) value).length();
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    } else if (value instanceof Buffer) {
+      return 40 + ((Buffer) value).length();
+    } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+      return 16;
+    } else if (value == null) {
+      return 0;
+    }
+    return 64;
+  }
+
+  /**
+   * A tracked key.
+   */
+  private static class Tracked {
+    private long bytes;
+    private long frequency = 1;
+    private int position;
+
+    private Tracked(long bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+}
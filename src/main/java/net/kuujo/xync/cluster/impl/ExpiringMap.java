@@ -0,0 +1,476 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import net.kuujo.xync.cluster.MapEvent;
+import net.kuujo.xync.util.TimerWheel;
+
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.shareddata.Shareable;
+
+/**
+ * Shared data map with per-entry expiration.<p>
+ *
+ * Entries written with a time to live or a maximum idle time are stored
+ * wrapped with their expiration. Expired entries are never returned, and
+ * are removed when they are read or when the {@link Expirer} that
+ * scheduled them reaches their deadline. Entries written without an
+ * expiration are stored as is.<p>
+ *
+ * The wrapper is {@link Shareable}, so the shared map does not check or copy
+ * the values it holds. Wrapped values are checked and copied with
+ * {@link SharedValues} when they are stored and copied again when they are
+ * read, as the shared map does for unwrapped values.<p>
+ *
+ * If the map has {@link MapListeners}, listeners are notified of each
+ * change made through the map, including expirations.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The map key type.
+ * @param <V> The map value type.
+ */
+public class ExpiringMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+  private final ConcurrentMap<K, Object> map;
+  private final Expirer expirer;
+  private final MapListeners listeners;
+
+  public ExpiringMap(ConcurrentMap<K, Object> map, Expirer expirer) {
+    this(map, expirer, null);
+  }
+
+  ExpiringMap(ConcurrentMap<K, Object> map, Expirer expirer, MapListeners listeners) {
+    this.map = map;
+    this.expirer = expirer;
+    this.listeners = listeners;
+  }
+
+  /**
+   * Sets a key with an expiration.
+   *
+   * @param key The key to set.
+   * @param value The value to set.
+   * @param ttl The time to live in milliseconds, or <code>0</code> if the entry
+   *        should not expire after a fixed time.
+   * @param maxIdle The maximum time in milliseconds the entry may go unread, or
+   *        <code>0</code> if the entry should not expire when idle.
+   * @return The previous value of the key.
+   */
+  public V put(K key, V value, long ttl, long maxIdle) {
+    long now = System.currentTimeMillis();
+    if (ttl <= 0 && maxIdle <= 0) {
+      return put(key, value, value, now);
+    }
+    Expiring expiring = new Expiring(SharedValues.copy(value), ttl > 0 ? now + ttl : 0, maxIdle, now);
+    V previous = put(key, value, expiring, now);
+    expirer.schedule(this, key, expiring);
+    return previous;
+  }
+
+  @Override
+  public V get(Object key) {
+    Object stored = map.get(key);
+    if (stored instanceof Expiring) {
+      Expiring expiring = (Expiring) stored;
+      long now = System.currentTimeMillis();
+      if (expiring.isExpired(now)) {
+        if (map.remove(key, expiring)) {
+          notify(MapEvent.EVICT, key, null);
+        }
+        return null;
+      }
+      expiring.accessed = now;
+    }
+    return unwrap(stored);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    Object stored = map.get(key);
+    return stored != null && !isExpired(stored, System.currentTimeMillis());
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return put(key, value, value, System.currentTimeMillis());
+  }
+
+  private V put(K key, V value, Object stored, long now) {
+    V previous = valueOf(map.put(key, stored), now);
+    notify(MapEvent.PUT, key, value);
+    return previous;
+  }
+
+  @Override
+  public V remove(Object key) {
+    Object stored = map.remove(key);
+    if (stored != null) {
+      notify(MapEvent.REMOVE, key, null);
+    }
+    return valueOf(stored, System.currentTimeMillis());
+  }
+
+  /**
+   * Evicts an entry from the map.
+   *
+   * @return The evicted value, or <code>null</code> if the map did not contain
+   *         the key or the entry had expired.
+   */
+  V evict(Object key) {
+    Object stored = map.remove(key);
+    if (stored != null) {
+      notify(MapEvent.EVICT, key, null);
+    }
+    return valueOf(stored, System.currentTimeMillis());
+  }
+
+  @Override
+  public V putIfAbsent(K key, V value) {
+    while (true) {
+      Object stored = map.get(key);
+      if (stored == null) {
+        if (map.putIfAbsent(key, value) == null) {
+          notify(MapEvent.PUT, key, value);
+          return null;
+        }
+      } else if (isExpired(stored, System.currentTimeMillis())) {
+        if (map.replace(key, stored, value)) {
+          notify(MapEvent.PUT, key, value);
+          return null;
+        }
+      } else {
+        return unwrap(stored);
+      }
+    }
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    while (true) {
+      Object stored = map.get(key);
+      if (stored == null) {
+        return null;
+      } else if (isExpired(stored, System.currentTimeMillis())) {
+        if (map.remove(key, stored)) {
+          notify(MapEvent.EVICT, key, null);
+        }
+        return null;
+      } else if (map.replace(key, stored, value)) {
+        notify(MapEvent.PUT, key, value);
+        return unwrap(stored);
+      }
+    }
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    while (true) {
+      Object stored = map.get(key);
+      if (stored == null || isExpired(stored, System.currentTimeMillis()) || !oldValue.equals(unwrap(stored))) {
+        return false;
+      } else if (map.replace(key, stored, newValue)) {
+        notify(MapEvent.PUT, key, newValue);
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    while (true) {
+      Object stored = map.get(key);
+      if (stored == null || isExpired(stored, System.currentTimeMillis()) || !value.equals(unwrap(stored))) {
+        return false;
+      } else if (map.remove(key, stored)) {
+        notify(MapEvent.REMOVE, key, null);
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    if (listeners == null || listeners.isEmpty()) {
+      map.clear();
+    } else {
+      for (K key : map.keySet()) {
+        remove(key);
+      }
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+      @Override
+      public int size() {
+        int size = 0;
+        for (Iterator<Map.Entry<K, V>> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+          size++;
+        }
+        return size;
+      }
+      @Override
+      public void clear() {
+        ExpiringMap.this.clear();
+      }
+    };
+  }
+
+  /**
+   * Removes an entry if it has expired, or reschedules it if it was read
+   * since it was scheduled.
+   *
+   * @return Indicates whether the entry was removed.
+   */
+  boolean expire(Object key, Expiring expiring) {
+    if (expiring.isExpired(System.currentTimeMillis())) {
+      if (map.remove(key, expiring)) {
+        notify(MapEvent.EVICT, key, null);
+        return true;
+      }
+      return false;
+    } else if (map.get(key) == expiring) {
+      expirer.schedule(this, key, expiring);
+    }
+    return false;
+  }
+
+  /**
+   * Notifies listeners of a change to an entry.
+   */
+  private void notify(String type, Object key, Object value) {
+    if (listeners != null) {
+      listeners.notify(type, key, value);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V unwrap(Object stored) {
+    return (V) (stored instanceof Expiring ? SharedValues.copy(((Expiring) stored).value) : stored);
+  }
+
+  private V valueOf(Object stored, long now) {
+    return stored == null || isExpired(stored, now) ? null : unwrap(stored);
+  }
+
+  private static boolean isExpired(Object stored, long now) {
+    return stored instanceof Expiring && ((Expiring) stored).isExpired(now);
+  }
+
+  /**
+   * Iterator over unexpired entries.
+   */
+  private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+    private final Iterator<Map.Entry<K, Object>> iterator = map.entrySet().iterator();
+    private final long now = System.currentTimeMillis();
+    private Map.Entry<K, V> next;
+    private K last;
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && iterator.hasNext()) {
+        Map.Entry<K, Object> entry = iterator.next();
+        if (!isExpired(entry.getValue(), now)) {
+          next = new AbstractMap.SimpleImmutableEntry<K, V>(entry.getKey(), unwrap(entry.getValue()));
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<K, V> entry = next;
+      next = null;
+      last = entry.getKey();
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      ExpiringMap.this.remove(last);
+      last = null;
+    }
+  }
+
+  /**
+   * A stored entry with an expiration.
+   */
+  static final class Expiring implements Shareable {
+    private final Object value;
+    private final long expires;
+    private final long maxIdle;
+    private volatile long accessed;
+
+    private Expiring(Object value, long expires, long maxIdle, long accessed) {
+      this.value = value;
+      this.expires = expires;
+      this.maxIdle = maxIdle;
+      this.accessed = accessed;
+    }
+
+    /**
+     * Returns the time at which the entry expires if it is not read again.
+     */
+    long deadline() {
+      long idle = maxIdle > 0 ? accessed + maxIdle : Long.MAX_VALUE;
+      return expires > 0 ? Math.min(expires, idle) : idle;
+    }
+
+    boolean isExpired(long now) {
+      return now >= deadline();
+    }
+  }
+
+  /**
+   * Schedules expiring entries on a timer wheel and removes them once they expire.<p>
+   *
+   * A single expirer is shared by all cluster managers of a Vert.x instance,
+   * since the maps it expires are shared. Each manager registers its context
+   * with {@link #acquire(Context)}. The wheel is advanced by a periodic timer
+   * that runs on one of those contexts, and only while entries are scheduled.
+   * When a manager releases the expirer the timer moves to another context,
+   * so entries keep expiring once the verticle that wrote them is undeployed.
+   */
+  public static class Expirer implements Shareable {
+    private static final long TICK = 100;
+    private final Vertx vertx;
+    private final TimerWheel<Expiration> wheel = new TimerWheel<>(TICK, System.currentTimeMillis());
+    private final List<Context> contexts = new ArrayList<>();
+    private Context owner;
+    private long timer = -1;
+
+    public Expirer(Vertx vertx) {
+      this.vertx = vertx;
+    }
+
+    /**
+     * Registers a context on which the expirer may run.
+     */
+    public synchronized void acquire(Context context) {
+      contexts.add(context);
+      if (owner == null && wheel.size() > 0) {
+        start();
+      }
+    }
+
+    /**
+     * Unregisters a context. Once no contexts are registered, scheduled
+     * entries are dropped. Entries that have expired are still never
+     * returned and are removed when they are next read.
+     */
+    public synchronized void release(Context context) {
+      contexts.remove(context);
+      if (owner == context) {
+        if (timer != -1) {
+          vertx.cancelTimer(timer);
+          timer = -1;
+        }
+        owner = null;
+        if (wheel.size() > 0 && !contexts.isEmpty()) {
+          start();
+        }
+      }
+      if (contexts.isEmpty()) {
+        wheel.clear();
+      }
+    }
+
+    synchronized void schedule(ExpiringMap<?, ?> map, Object key, Expiring expiring) {
+      wheel.schedule(new Expiration(map, key, expiring), expiring.deadline());
+      if (owner == null && !contexts.isEmpty()) {
+        start();
+      }
+    }
+
+    /**
+     * Starts the timer on the first registered context.
+     */
+    private void start() {
+      final Context context = contexts.get(0);
+      owner = context;
+      context.runOnContext(new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+          synchronized (Expirer.this) {
+            if (owner == context && timer == -1) {
+              timer = vertx.setPeriodic(TICK, new Handler<Long>() {
+                @Override
+                public void handle(Long timerId) {
+                  advance();
+                }
+              });
+            }
+          }
+        }
+      });
+    }
+
+    /**
+     * Expires all entries whose deadline has passed.
+     */
+    private void advance() {
+      for (Expiration expiration : wheel.advance(System.currentTimeMillis())) {
+        expiration.map.expire(expiration.key, expiration.expiring);
+      }
+      synchronized (this) {
+        if (wheel.size() == 0 && timer != -1) {
+          vertx.cancelTimer(timer);
+          timer = -1;
+          owner = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * An entry scheduled to expire.
+   */
+  private static class Expiration {
+    private final ExpiringMap<?, ?> map;
+    private final Object key;
+    private final Expiring expiring;
+
+    private Expiration(ExpiringMap<?, ?> map, Object key, Expiring expiring) {
+      this.map = map;
+      this.key = key;
+      this.expiring = expiring;
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.concurrent.Callable;
+
+import net.kuujo.xync.cluster.AsyncCounter;
+import net.kuujo.xync.util.DataExecutor;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+
+import com.hazelcast.core.IAtomicLong;
+
+/**
+ * Hazelcast atomic long based counter.<p>
+ *
+ * Each counter operation is a single operation on the partition that
+ * owns the atomic long.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class HazelcastAsyncCounter implements AsyncCounter {
+  private final IAtomicLong counter;
+  private final DataExecutor executor;
+
+  public HazelcastAsyncCounter(IAtomicLong counter, DataExecutor executor) {
+    this.counter = counter;
+    this.executor = executor;
+  }
+
+  @Override
+  public String name() {
+    return counter.getName();
+  }
+
+  @Override
+  public void get(Handler<AsyncResult<Long>> resultHandler) {
+    executor.execute(new Callable<Long>() {
+      @Override
+      public Long call() {
+        return counter.get();
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void addAndGet(final long delta, Handler<AsyncResult<Long>> resultHandler) {
+    executor.execute(new Callable<Long>() {
+      @Override
+      public Long call() {
+        return counter.addAndGet(delta);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void getAndAdd(final long delta, Handler<AsyncResult<Long>> resultHandler) {
+    executor.execute(new Callable<Long>() {
+      @Override
+      public Long call() {
+        return counter.getAndAdd(delta);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void compareAndSet(final long expect, final long update, Handler<AsyncResult<Boolean>> resultHandler) {
+    executor.execute(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return counter.compareAndSet(expect, update);
+      }
+    }, resultHandler);
+  }
+
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.kuujo.xync.cluster.EntryProcessor;
+import net.kuujo.xync.cluster.Page;
+import net.kuujo.xync.util.DataExecutor;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.impl.DefaultFutureResult;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import com.hazelcast.map.MapKeySet;
+import com.hazelcast.map.MapService;
+import com.hazelcast.map.operation.MapKeySetOperation;
+import com.hazelcast.nio.serialization.Data;
+import com.hazelcast.spi.AbstractDistributedObject;
+import com.hazelcast.spi.NodeEngine;
+
+/**
+ * Hazelcast-based asynchronous map.<p>
+ *
+ * Single key operations are performed using Hazelcast's future-based
+ * asynchronous map operations, so no thread is held while waiting for
+ * the partition owner to respond. Bulk operations use Hazelcast's
+ * bulk map operations, which group keys by partition owner. Entry
+ * processors are run by Hazelcast on the partition owner and its backups.
+ * Key pages are read one partition at a time. All other operations are
+ * run on the data executor.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The map key type.
+ * @param <V> The map value type.
+ */
+public class HazelcastAsyncMap<K, V> extends DefaultAsyncMap<K, V> {
+  protected final Vertx vertx;
+  protected final IMap<K, V> hazelcastMap;
+
+  public HazelcastAsyncMap(Vertx vertx, IMap<K, V> map, DataExecutor executor) {
+    super(map.getName(), map, executor);
+    this.vertx = vertx;
+    this.hazelcastMap = map;
+  }
+
+  @Override
+  public void put(K key, V value, Handler<AsyncResult<V>> resultHandler) {
+    try {
+      handleFuture(hazelcastMap.putAsync(key, value), resultHandler);
+    } catch (Exception e) {
+      new DefaultFutureResult<V>(e).setHandler(resultHandler);
+    }
+  }
+
+  @Override
+  public void put(K key, V value, long ttl, long maxIdle, Handler<AsyncResult<V>> resultHandler) {
+    if (maxIdle > 0) {
+      // Hazelcast only supports a maximum idle time for a whole map.
+      new DefaultFutureResult<V>(new UnsupportedOperationException("Per-entry maxIdle is not supported by Hazelcast maps")).setHandler(resultHandler);
+      return;
+    }
+    try {
+      if (ttl > 0) {
+        handleFuture(hazelcastMap.putAsync(key, value, ttl, TimeUnit.MILLISECONDS), resultHandler);
+      } else {
+        handleFuture(hazelcastMap.putAsync(key, value), resultHandler);
+      }
+    } catch (Exception e) {
+      new DefaultFutureResult<V>(e).setHandler(resultHandler);
+    }
+  }
+
+  @Override
+  public void get(K key, Handler<AsyncResult<V>> resultHandler) {
+    try {
+      handleFuture(hazelcastMap.getAsync(key), resultHandler);
+    } catch (Exception e) {
+      new DefaultFutureResult<V>(e).setHandler(resultHandler);
+    }
+  }
+
+  @Override
+  public void remove(K key, Handler<AsyncResult<V>> resultHandler) {
+    try {
+      handleFuture(hazelcastMap.removeAsync(key), resultHandler);
+    } catch (Exception e) {
+      new DefaultFutureResult<V>(e).setHandler(resultHandler);
+    }
+  }
+
+  @Override
+  public void getAll(final Set<K> keys, Handler<AsyncResult<Map<K, V>>> resultHandler) {
+    executor.execute(new Callable<Map<K, V>>() {
+      @Override
+      public Map<K, V> call() {
+        return hazelcastMap.getAll(keys);
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void removeAll(Set<K> keys, final Handler<AsyncResult<Map<K, V>>> resultHandler) {
+    if (keys.isEmpty()) {
+      new DefaultFutureResult<Map<K, V>>(new HashMap<K, V>()).setHandler(resultHandler);
+      return;
+    }
+
+    // Hazelcast has no bulk remove, so all removals are sent at once
+    // and the result is completed when the last one responds.
+    final Context context = vertx.currentContext();
+    final Map<K, V> removed = new ConcurrentHashMap<>();
+    final AtomicInteger remaining = new AtomicInteger(keys.size());
+    final AtomicBoolean failed = new AtomicBoolean();
+    try {
+      for (final K key : keys) {
+        ((ICompletableFuture<V>) hazelcastMap.removeAsync(key)).andThen(new ExecutionCallback<V>() {
+          @Override
+          public void onResponse(V value) {
+            if (value != null) {
+              removed.put(key, value);
+            }
+            if (remaining.decrementAndGet() == 0 && !failed.get()) {
+              executor.complete(context, new DefaultFutureResult<Map<K, V>>(new HashMap<>(removed)), resultHandler);
+            }
+          }
+          @Override
+          public void onFailure(Throwable t) {
+            if (failed.compareAndSet(false, true)) {
+              executor.complete(context, new DefaultFutureResult<Map<K, V>>(t), resultHandler);
+            }
+          }
+        });
+      }
+    } catch (Exception e) {
+      if (failed.compareAndSet(false, true)) {
+        new DefaultFutureResult<Map<K, V>>(e).setHandler(resultHandler);
+      }
+    }
+  }
+
+  @Override
+  public void containsKeys(final Set<K> keys, Handler<AsyncResult<Map<K, Boolean>>> resultHandler) {
+    executor.execute(new Callable<Map<K, Boolean>>() {
+      @Override
+      public Map<K, Boolean> call() {
+        Map<K, V> entries = hazelcastMap.getAll(keys);
+        Map<K, Boolean> result = new HashMap<>(keys.size());
+        for (K key : keys) {
+          result.put(key, entries.containsKey(key));
+        }
+        return result;
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void executeOnKey(K key, EntryProcessor<K, V> processor, Handler<AsyncResult<Object>> resultHandler) {
+    try {
+      handleFuture((Future<Object>) hazelcastMap.submitToKey(key, new HazelcastEntryProcessor<>(processor)), resultHandler);
+    } catch (Exception e) {
+      new DefaultFutureResult<Object>(e).setHandler(resultHandler);
+    }
+  }
+
+  @Override
+  public void executeOnKeys(final Set<K> keys, final EntryProcessor<K, V> processor, Handler<AsyncResult<Map<K, Object>>> resultHandler) {
+    executor.execute(new Callable<Map<K, Object>>() {
+      @Override
+      public Map<K, Object> call() {
+        return hazelcastMap.executeOnKeys(keys, new HazelcastEntryProcessor<>(processor));
+      }
+    }, resultHandler);
+  }
+
+  @Override
+  public void keyPage(String cursor, int limit, Handler<AsyncResult<Page<K>>> resultHandler) {
+    if (!(hazelcastMap instanceof AbstractDistributedObject)) {
+      super.keyPage(cursor, limit, resultHandler);
+      return;
+    }
+
+    // The cursor is the partition and the serialized form of the last key
+    // that was returned from it, so only a single partition's keys are held
+    // at once. A cursor without a key starts at the beginning of the partition.
+    int partition = 0;
+    Data last = null;
+    if (cursor != null) {
+      try {
+        String[] parts = cursor.split(":", -1);
+        partition = Integer.parseInt(parts[0]);
+        if (parts.length == 3) {
+          last = new Data(Integer.parseInt(parts[1]), decode(parts[2]));
+        } else if (parts.length != 1) {
+          throw new IllegalArgumentException();
+        }
+      } catch (IllegalArgumentException e) {
+        new DefaultFutureResult<Page<K>>(new IllegalArgumentException("Invalid cursor " + cursor)).setHandler(resultHandler);
+        return;
+      }
+    }
+
+    NodeEngine nodeEngine = ((AbstractDistributedObject<?>) hazelcastMap).getNodeEngine();
+    new KeyPager(nodeEngine, vertx.currentContext(), limit, resultHandler).next(partition, last);
+  }
+
+  /**
+   * Completes a result handler on the current context once a Hazelcast future completes.
+   */
+  protected <T> void handleFuture(Future<T> future, final Handler<AsyncResult<T>> resultHandler) {
+    final Context context = vertx.currentContext();
+    ((ICompletableFuture<T>) future).andThen(new ExecutionCallback<T>() {
+      @Override
+      public void onResponse(T response) {
+        executor.complete(context, new DefaultFutureResult<T>(response), resultHandler);
+      }
+      @Override
+      public void onFailure(Throwable t) {
+        executor.complete(context, new DefaultFutureResult<T>(t), resultHandler);
+      }
+    });
+  }
+
+  /**
+   * Hazelcast entry processor that runs an entry processor on the
+   * partition owner and again on each backup.
+   */
+  private static class HazelcastEntryProcessor<K, V> extends AbstractEntryProcessor<K, V> {
+    private static final long serialVersionUID = 1L;
+    private final EntryProcessor<K, V> processor;
+
+    private HazelcastEntryProcessor(EntryProcessor<K, V> processor) {
+      super(true);
+      this.processor = processor;
+    }
+
+    @Override
+    public Object process(Map.Entry<K, V> entry) {
+      return processor.process(entry);
+    }
+  }
+
+  /**
+   * Orders serialized keys by type and then by their bytes.
+   */
+  private static final Comparator<Data> DATA_ORDER = new Comparator<Data>() {
+    @Override
+    public int compare(Data a, Data b) {
+      if (a.getType() != b.getType()) {
+        return a.getType() < b.getType() ? -1 : 1;
+      }
+      byte[] x = a.getBuffer();
+      byte[] y = b.getBuffer();
+      for (int i = 0; i < x.length && i < y.length; i++) {
+        if (x[i] != y[i]) {
+          return (x[i] & 0xff) - (y[i] & 0xff);
+        }
+      }
+      return x.length - y.length;
+    }
+  };
+
+  /**
+   * Encodes a serialized key for a cursor.
+   */
+  private static String encode(Data data) {
+    byte[] bytes = data.getBuffer();
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return data.getType() + ":" + sb.toString();
+  }
+
+  /**
+   * Decodes the bytes of a serialized key from a cursor.
+   */
+  private static byte[] decode(String hex) {
+    if (hex.length() % 2 != 0) {
+      throw new IllegalArgumentException();
+    }
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      int high = Character.digit(hex.charAt(i * 2), 16);
+      int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new IllegalArgumentException();
+      }
+      bytes[i] = (byte) ((high << 4) | low);
+    }
+    return bytes;
+  }
+
+  /**
+   * Reads a page of keys by walking map partitions in order.<p>
+   *
+   * Keys are read with Hazelcast's internal partition key set operation, so
+   * paging depends on Hazelcast internals and falls back to reading the whole
+   * key set for map proxies that are not distributed objects. Each page reads
+   * the full key set of the partitions it visits. Within a partition keys are
+   * ordered by their serialized form, so keys that exist for the whole time
+   * the map is paged through are returned exactly once, even while other keys
+   * are written. Keys that move to another partition during migration may be
+   * skipped or repeated.
+   */
+  private class KeyPager {
+    private final NodeEngine nodeEngine;
+    private final Context context;
+    private final int limit;
+    private final List<K> keys;
+    private final Handler<AsyncResult<Page<K>>> resultHandler;
+
+    private KeyPager(NodeEngine nodeEngine, Context context, int limit, Handler<AsyncResult<Page<K>>> resultHandler) {
+      this.nodeEngine = nodeEngine;
+      this.context = context;
+      this.limit = limit;
+      this.keys = new ArrayList<>(limit);
+      this.resultHandler = resultHandler;
+    }
+
+    /**
+     * Reads keys from the given partition that follow the given key.
+     */
+    private void next(final int partition, final Data last) {
+      if (partition >= nodeEngine.getPartitionService().getPartitionCount()) {
+        executor.complete(context, new DefaultFutureResult<Page<K>>(new Page<K>(keys, null)), resultHandler);
+        return;
+      }
+
+      try {
+        nodeEngine.getOperationService().<MapKeySet>invokeOnPartition(MapService.SERVICE_NAME, new MapKeySetOperation(name), partition)
+            .andThen(new ExecutionCallback<MapKeySet>() {
+          @Override
+          public void onResponse(MapKeySet response) {
+            try {
+              List<Data> sorted = new ArrayList<>(response.getKeySet());
+              Collections.sort(sorted, DATA_ORDER);
+              Data previous = last;
+              for (Data data : sorted) {
+                if (last == null || DATA_ORDER.compare(data, last) > 0) {
+                  if (keys.size() == limit) {
+                    String cursor = previous != null ? partition + ":" + encode(previous) : String.valueOf(partition);
+                    executor.complete(context, new DefaultFutureResult<Page<K>>(new Page<K>(keys, cursor)), resultHandler);
+                    return;
+                  }
+                  keys.add(nodeEngine.<K>toObject(data));
+                  previous = data;
+                }
+              }
+            } catch (Exception e) {
+              executor.complete(context, new DefaultFutureResult<Page<K>>(e), resultHandler);
+              return;
+            }
+            next(partition + 1, null);
+          }
+          @Override
+          public void onFailure(Throwable t) {
+            executor.complete(context, new DefaultFutureResult<Page<K>>(t), resultHandler);
+          }
+        });
+      } catch (Exception e) {
+        executor.complete(context, new DefaultFutureResult<Page<K>>(e), resultHandler);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.concurrent.Callable;
+
+import net.kuujo.xync.cluster.Page;
+import net.kuujo.xync.util.DataExecutor;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.impl.DefaultFutureResult;
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.hazelcast.core.IQueue;
+import com.hazelcast.core.ItemEvent;
+import com.hazelcast.core.ItemListener;
+
+/**
+ * Hazelcast-based asynchronous queue.<p>
+ *
+ * Consumers that take from an empty queue wait on the node rather than
+ * in a blocking Hazelcast poll. An item listener is registered the first
+ * time a consumer waits on the queue, and each time an item is added the
+ * node polls the queue once for each waiting consumer. Consumers waiting
+ * on the same node are served in the order in which they started waiting.<p>
+ *
+ * The listener only signals the waiters. The queue is polled on the context
+ * of the longest waiting consumer using that consumer's own data executor,
+ * so polls never run on the Hazelcast event thread and never depend on a
+ * verticle that has since been undeployed.<p>
+ *
+ * Hazelcast queues have no ranged reads. Iterating a queue copies the whole
+ * queue to the node, so paging by iteration would copy the queue once per
+ * page, and queues cannot be paged.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The queue data type.
+ */
+public class HazelcastAsyncQueue<T> extends DefaultAsyncQueue<T> {
+  private static final Logger log = LoggerFactory.getLogger(HazelcastAsyncQueue.class);
+  private static final long DISPATCH_RETRY = 100;
+  private final Vertx vertx;
+  private final IQueue<T> queue;
+  private final QueueWaiters<T> waiters;
+
+  HazelcastAsyncQueue(Vertx vertx, IQueue<T> queue, QueueWaiters<T> waiters, DataExecutor executor) {
+    super(queue.getName(), queue, executor);
+    this.vertx = vertx;
+    this.queue = queue;
+    this.waiters = waiters;
+  }
+
+  @Override
+  public void take(final long timeout, final Handler<AsyncResult<T>> resultHandler) {
+    poll(new Handler<AsyncResult<T>>() {
+      @Override
+      public void handle(AsyncResult<T> result) {
+        if (result.failed() || result.result() != null || timeout <= 0) {
+          resultHandler.handle(result);
+          return;
+        }
+        waiters.await(vertx, timeout, new Handler<Void>() {
+          @Override
+          public void handle(Void event) {
+            dispatch();
+          }
+        }, resultHandler);
+        listen();
+        // An item may have been added after the poll but before the
+        // consumer started waiting, so check the queue again.
+        dispatch();
+      }
+    });
+  }
+
+  @Override
+  public void page(String cursor, int limit, Handler<AsyncResult<Page<T>>> resultHandler) {
+    new DefaultFutureResult<Page<T>>(new UnsupportedOperationException("Hazelcast queues cannot be paged.")).setHandler(resultHandler);
+  }
+
+  /**
+   * Registers the item listener that wakes waiting consumers.
+   */
+  private void listen() {
+    synchronized (waiters) {
+      if (waiters.listener() == null) {
+        waiters.listener(queue.addItemListener(new SignalListener<T>(waiters), false));
+      }
+    }
+  }
+
+  /**
+   * Polls the queue for waiting consumers until either no consumers are
+   * waiting or the queue is empty. A waiter is claimed before each poll, so
+   * an item is never taken from the queue without a consumer to receive it.
+   */
+  private void dispatch() {
+    if (waiters.isEmpty()) {
+      return;
+    }
+    executor.execute(new Callable<Void>() {
+      @Override
+      public Void call() {
+        while (!waiters.isEmpty()) {
+          QueueWaiters.Waiter<T> waiter = waiters.claim();
+          if (waiter == null) {
+            break;
+          }
+          T value = queue.poll();
+          if (value != null) {
+            waiters.complete(vertx, waiter, value);
+          } else {
+            // The item listener may have fired while the waiter was claimed,
+            // so check the queue again once the waiter has been returned.
+            waiters.release(waiter);
+            if (queue.peek() == null) {
+              break;
+            }
+          }
+        }
+        return null;
+      }
+    }, new Handler<AsyncResult<Void>>() {
+      @Override
+      public void handle(AsyncResult<Void> result) {
+        if (result.failed()) {
+          // The poll could not be run, most likely because the executor
+          // queue is full, so try again rather than leave consumers waiting.
+          log.warn("Failed to dispatch queue " + queue.getName(), result.cause());
+          vertx.setTimer(DISPATCH_RETRY, new Handler<Long>() {
+            @Override
+            public void handle(Long timerID) {
+              dispatch();
+            }
+          });
+        }
+      }
+    });
+  }
+
+  /**
+   * Item listener that signals waiting consumers. The listener holds only
+   * the node's waiters, so it outlives the verticle that registered it.
+   */
+  private static class SignalListener<T> implements ItemListener<T> {
+    private final QueueWaiters<T> waiters;
+
+    private SignalListener(QueueWaiters<T> waiters) {
+      this.waiters = waiters;
+    }
+
+    @Override
+    public void itemAdded(ItemEvent<T> event) {
+      waiters.signal();
+    }
+
+    @Override
+    public void itemRemoved(ItemEvent<T> event) {
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import net.kuujo.xync.cluster.Page;
+import net.kuujo.xync.util.DataExecutor;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.impl.DefaultFutureResult;
+
+import com.hazelcast.core.ISet;
+
+/**
+ * Hazelcast-based asynchronous set.<p>
+ *
+ * Hazelcast sets have no ranged reads. Iterating a set copies the whole set
+ * to the node, so paging by iteration would copy the set once per page, and
+ * sets cannot be paged.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The set data type.
+ */
+public class HazelcastAsyncSet<T> extends DefaultAsyncSet<T> {
+
+  HazelcastAsyncSet(ISet<T> set, DataExecutor executor) {
+    super(set.getName(), set, executor);
+  }
+
+  @Override
+  public void page(String cursor, int limit, Handler<AsyncResult<Page<T>>> resultHandler) {
+    new DefaultFutureResult<Page<T>>(new UnsupportedOperationException("Hazelcast sets cannot be paged.")).setHandler(resultHandler);
+  }
+
+}
@@ -15,37 +15,109 @@
  */
 package net.kuujo.xync.cluster.impl;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
+import net.kuujo.xync.cluster.AsyncCounter;
+import net.kuujo.xync.cluster.AsyncList;
+import net.kuujo.xync.cluster.AsyncMap;
+import net.kuujo.xync.cluster.AsyncQueue;
+import net.kuujo.xync.cluster.AsyncSet;
 import net.kuujo.xync.cluster.ClusterManager;
+import net.kuujo.xync.cluster.MapEvent;
+import net.kuujo.xync.cluster.MapPolicy;
+import net.kuujo.xync.util.DataExecutor;
+import net.kuujo.xync.util.NearCache;
 
+import org.vertx.java.core.Context;
 import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
 
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.core.DistributedObject;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.EntryListener;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
 import com.hazelcast.core.Member;
 import com.hazelcast.core.MemberAttributeEvent;
 import com.hazelcast.core.MembershipEvent;
 import com.hazelcast.core.MembershipListener;
 
 /**
- * Hazelcast-based cluster manager implementation.
+ * Hazelcast-based cluster manager implementation.<p>
+ *
+ * Map capacity policies are stored in a cluster-wide map so that every
+ * node applies them to its own Hazelcast configuration. Hazelcast reads
+ * a map's configuration when the map is first used on a node, so a policy
+ * can only be set before the map is used. Other nodes apply a new policy
+ * when they are notified of it, and the manager also looks up a map's
+ * policy the first time it uses the map, so a map used on a node before
+ * the notification arrives is still bounded. Partitions owned by a node
+ * that has neither used the map nor been notified may still be created
+ * without the policy.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class HazelcastClusterManager implements ClusterManager, MembershipListener {
+  private static final String POLICIES_MAP = "__xync.policies";
+  private static final String WAITERS_MAP = "__xync.waiters";
+  private static final long MEGABYTE = 1024 * 1024;
+  private final Vertx vertx;
+  private final Context context;
   private final HazelcastInstance hazelcast;
+  private final DataExecutor executor;
   private final String nodeId;
-  private Handler<String> joinHandler;
-  private Handler<String> leaveHandler;
+  private final Map<String, QueueWaiters<?>> queueWaiters = new ConcurrentHashMap<>();
+  private final Map<String, NearCache<?, ?>> nearCaches = new ConcurrentHashMap<>();
+  private final Map<String, String> nearCacheListeners = new HashMap<>();
+  private final IMap<String, MapPolicy> policies;
+  private final Map<String, AtomicLong> evictions = new ConcurrentHashMap<>();
+  private final Map<String, String> evictionListeners = new HashMap<>();
+  private final Set<String> checkedMaps = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final List<Handler<String>> joinHandlers = new CopyOnWriteArrayList<>();
+  private final List<Handler<String>> leaveHandlers = new CopyOnWriteArrayList<>();
+  private final String membershipListener;
+  private final String policyListener;
+  private boolean closed;
 
-  public HazelcastClusterManager(HazelcastInstance hazelcast) {
+  public HazelcastClusterManager(Vertx vertx, HazelcastInstance hazelcast, DataExecutor executor) {
+    this.vertx = vertx;
+    this.context = vertx.currentContext();
     this.hazelcast = hazelcast;
+    this.executor = executor;
     this.nodeId = hazelcast.getCluster().getLocalMember().getUuid();
-    hazelcast.getCluster().addMembershipListener(this);
+    this.membershipListener = hazelcast.getCluster().addMembershipListener(this);
+    this.policies = hazelcast.getMap(POLICIES_MAP);
+    this.policyListener = policies.addEntryListener(new EntryListener<String, MapPolicy>() {
+      @Override
+      public void entryAdded(EntryEvent<String, MapPolicy> event) {
+        applyMapPolicy(event.getKey(), event.getValue());
+      }
+      @Override
+      public void entryRemoved(EntryEvent<String, MapPolicy> event) {
+      }
+      @Override
+      public void entryUpdated(EntryEvent<String, MapPolicy> event) {
+        applyMapPolicy(event.getKey(), event.getValue());
+      }
+      @Override
+      public void entryEvicted(EntryEvent<String, MapPolicy> event) {
+      }
+    }, true);
+    for (Map.Entry<String, MapPolicy> entry : policies.entrySet()) {
+      applyMapPolicy(entry.getKey(), entry.getValue());
+    }
   }
 
   @Override
@@ -53,6 +125,12 @@ public class HazelcastClusterManager implements ClusterManager, MembershipListen
     return nodeId;
   }
 
+  @Override
+  public String getPartitionOwner(Object key) {
+    Member owner = hazelcast.getPartitionService().getPartition(key).getOwner();
+    return owner != null ? owner.getUuid() : null;
+  }
+
   @Override
   public Set<String> getNodes() {
     Set<String> nodes = new HashSet<>();
@@ -64,15 +142,15 @@ public class HazelcastClusterManager implements ClusterManager, MembershipListen
 
   @Override
   public void memberAdded(MembershipEvent event) {
-    if (joinHandler != null) {
-      joinHandler.handle(event.getMember().getUuid());
+    for (Handler<String> handler : joinHandlers) {
+      handler.handle(event.getMember().getUuid());
     }
   }
 
   @Override
   public void memberRemoved(MembershipEvent event) {
-    if (leaveHandler != null) {
-      leaveHandler.handle(event.getMember().getUuid());
+    for (Handler<String> handler : leaveHandlers) {
+      handler.handle(event.getMember().getUuid());
     }
   }
 
@@ -83,19 +161,19 @@ public class HazelcastClusterManager implements ClusterManager, MembershipListen
 
   @Override
   public ClusterManager joinHandler(Handler<String> handler) {
-    this.joinHandler = handler;
+    joinHandlers.add(handler);
     return this;
   }
 
   @Override
   public ClusterManager leaveHandler(Handler<String> handler) {
-    this.leaveHandler = handler;
+    leaveHandlers.add(handler);
     return this;
   }
 
   @Override
   public <K, V> Map<K, V> getMap(String name) {
-    return hazelcast.getMap(name);
+    return getHazelcastMap(name);
   }
 
   @Override
@@ -113,4 +191,253 @@ public class HazelcastClusterManager implements ClusterManager, MembershipListen
     return hazelcast.getQueue(name);
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public <K, V> AsyncMap<K, V> getAsyncMap(String name) {
+    AsyncMap<K, V> map = new HazelcastAsyncMap<K, V>(vertx, this.<K, V>getHazelcastMap(name), executor);
+    NearCache<K, V> cache = (NearCache<K, V>) nearCaches.get(name);
+    return cache != null ? new CachedAsyncMap<K, V>(map, cache) : map;
+  }
+
+  @Override
+  public <T> AsyncSet<T> getAsyncSet(String name) {
+    return new HazelcastAsyncSet<T>(hazelcast.<T>getSet(name), executor);
+  }
+
+  @Override
+  public <T> AsyncList<T> getAsyncList(String name) {
+    return new DefaultAsyncList<T>(name, hazelcast.<T>getList(name), executor);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> AsyncQueue<T> getAsyncQueue(String name) {
+    QueueWaiters<T> queueWaiters = (QueueWaiters<T>) this.queueWaiters.get(name);
+    if (queueWaiters == null) {
+      // Waiting consumers are shared through shared data so all verticles on
+      // the node wait in the same order. Each manager holds the waiters until
+      // it is closed so the queue listener is kept while any manager uses it.
+      ConcurrentMap<String, QueueWaiters<T>> waiters = vertx.sharedData().getMap(WAITERS_MAP);
+      synchronized (waiters) {
+        queueWaiters = waiters.get(name);
+        if (queueWaiters == null) {
+          queueWaiters = new QueueWaiters<T>();
+          waiters.put(name, queueWaiters);
+        }
+        queueWaiters.acquire();
+      }
+      QueueWaiters<?> existing = this.queueWaiters.put(name, queueWaiters);
+      if (existing != null) {
+        releaseWaiters(name, existing);
+      }
+    }
+    return new HazelcastAsyncQueue<T>(vertx, hazelcast.<T>getQueue(name), queueWaiters, executor);
+  }
+
+  @Override
+  public AsyncCounter getAsyncCounter(String name) {
+    return new HazelcastAsyncCounter(hazelcast.getAtomicLong(name), executor);
+  }
+
+  @Override
+  public synchronized <K, V> void setNearCache(String name, final NearCache<K, V> cache) {
+    IMap<K, V> map = getHazelcastMap(name);
+    String listenerId = nearCacheListeners.remove(name);
+    if (listenerId != null) {
+      map.removeEntryListener(listenerId);
+    }
+    nearCaches.remove(name);
+
+    if (cache != null) {
+      // Entry events are published for updates from all nodes, so the
+      // listener keeps the cache consistent with writes made elsewhere.
+      nearCacheListeners.put(name, map.addEntryListener(new EntryListener<K, V>() {
+        @Override
+        public void entryAdded(EntryEvent<K, V> event) {
+          cache.invalidate(event.getKey());
+        }
+        @Override
+        public void entryRemoved(EntryEvent<K, V> event) {
+          cache.invalidate(event.getKey());
+        }
+        @Override
+        public void entryUpdated(EntryEvent<K, V> event) {
+          cache.invalidate(event.getKey());
+        }
+        @Override
+        public void entryEvicted(EntryEvent<K, V> event) {
+          cache.invalidate(event.getKey());
+        }
+      }, false));
+      nearCaches.put(name, cache);
+    }
+  }
+
+  @Override
+  public <K, V> String addMapListener(String name, K key, final Handler<MapEvent<K, V>> handler) {
+    final Context context = vertx.currentContext();
+    EntryListener<K, V> listener = new EntryListener<K, V>() {
+      @Override
+      public void entryAdded(EntryEvent<K, V> event) {
+        publish(new MapEvent<K, V>(MapEvent.PUT, event.getKey(), event.getValue()));
+      }
+      @Override
+      public void entryRemoved(EntryEvent<K, V> event) {
+        publish(new MapEvent<K, V>(MapEvent.REMOVE, event.getKey(), null));
+      }
+      @Override
+      public void entryUpdated(EntryEvent<K, V> event) {
+        publish(new MapEvent<K, V>(MapEvent.PUT, event.getKey(), event.getValue()));
+      }
+      @Override
+      public void entryEvicted(EntryEvent<K, V> event) {
+        publish(new MapEvent<K, V>(MapEvent.EVICT, event.getKey(), null));
+      }
+      private void publish(final MapEvent<K, V> event) {
+        // Entry events are delivered on Hazelcast event threads.
+        context.runOnContext(new Handler<Void>() {
+          @Override
+          public void handle(Void v) {
+            handler.handle(event);
+          }
+        });
+      }
+    };
+    IMap<K, V> map = getHazelcastMap(name);
+    return key != null ? map.addEntryListener(listener, key, true) : map.addEntryListener(listener, true);
+  }
+
+  @Override
+  public void removeMapListener(String name, String id) {
+    hazelcast.getMap(name).removeEntryListener(id);
+  }
+
+  @Override
+  public void setMapPolicy(String name, MapPolicy policy) {
+    if (policy.getEviction().equals(MapPolicy.RANDOM)) {
+      throw new IllegalArgumentException("Random eviction is not supported by Hazelcast maps");
+    }
+    if (policy.getMaxSize() > 0 && policy.getMaxBytes() > 0) {
+      throw new IllegalArgumentException("Hazelcast maps support either maxSize or maxBytes, not both");
+    }
+    if (!policy.equals(policies.get(name))) {
+      for (DistributedObject object : hazelcast.getDistributedObjects()) {
+        if (object instanceof IMap && object.getName().equals(name)) {
+          throw new IllegalStateException("Map " + name + " is already in use");
+        }
+      }
+      policies.put(name, policy);
+    }
+    applyMapPolicy(name, policy);
+  }
+
+  @Override
+  public Map<String, MapPolicy> getMapPolicies() {
+    return new HashMap<>(policies);
+  }
+
+  @Override
+  public long getEvictions(String name) {
+    AtomicLong count = evictions.get(name);
+    return count != null ? count.get() : 0;
+  }
+
+  @Override
+  public void setListIndex(String name, boolean enabled) {
+    // Hazelcast lists are searched by the member that owns them, so they are not indexed.
+  }
+
+  @Override
+  public void setQueueIndex(String name, boolean enabled) {
+    // Hazelcast queues are searched by the member that owns them, so they are not indexed.
+  }
+
+  /**
+   * Applies a map capacity policy to the local Hazelcast configuration and
+   * starts counting evictions of locally owned entries.
+   */
+  private synchronized void applyMapPolicy(String name, MapPolicy policy) {
+    MapConfig config = new MapConfig(hazelcast.getConfig().findMapConfig(name));
+    config.setName(name);
+    config.setEvictionPolicy(policy.getEviction().equals(MapPolicy.LFU) ? MapConfig.EvictionPolicy.LFU : MapConfig.EvictionPolicy.LRU);
+    if (policy.getMaxBytes() > 0) {
+      config.setMaxSizeConfig(new MaxSizeConfig((int) Math.max(1, policy.getMaxBytes() / MEGABYTE), MaxSizeConfig.MaxSizePolicy.USED_HEAP_SIZE));
+    } else {
+      config.setMaxSizeConfig(new MaxSizeConfig(policy.getMaxSize(), MaxSizeConfig.MaxSizePolicy.PER_NODE));
+    }
+    hazelcast.getConfig().addMapConfig(config);
+    checkedMaps.add(name);
+
+    if (!closed && !evictions.containsKey(name)) {
+      final AtomicLong count = new AtomicLong();
+      evictions.put(name, count);
+      evictionListeners.put(name, hazelcast.<Object, Object>getMap(name).addLocalEntryListener(new EntryListener<Object, Object>() {
+        @Override
+        public void entryAdded(EntryEvent<Object, Object> event) {
+        }
+        @Override
+        public void entryRemoved(EntryEvent<Object, Object> event) {
+        }
+        @Override
+        public void entryUpdated(EntryEvent<Object, Object> event) {
+        }
+        @Override
+        public void entryEvicted(EntryEvent<Object, Object> event) {
+          count.incrementAndGet();
+        }
+      }));
+    }
+  }
+
+  /**
+   * Returns a Hazelcast map, first applying the map's capacity policy if
+   * this manager has not yet checked the map for a policy.
+   */
+  private <K, V> IMap<K, V> getHazelcastMap(String name) {
+    if (!checkedMaps.contains(name)) {
+      MapPolicy policy = policies.get(name);
+      if (policy != null) {
+        applyMapPolicy(name, policy);
+      } else {
+        checkedMaps.add(name);
+      }
+    }
+    return hazelcast.getMap(name);
+  }
+
+  /**
+   * Releases a queue's waiters, removing the queue listener if no other
+   * manager uses it.
+   */
+  private void releaseWaiters(String name, QueueWaiters<?> waiters) {
+    String listenerId = waiters.release();
+    if (listenerId != null) {
+      hazelcast.getQueue(name).removeItemListener(listenerId);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Map.Entry<String, QueueWaiters<?>> entry : queueWaiters.entrySet()) {
+      // Consumers waiting on this verticle can no longer receive items.
+      if (context != null) {
+        entry.getValue().cancel(context);
+      }
+      releaseWaiters(entry.getKey(), entry.getValue());
+    }
+    queueWaiters.clear();
+    hazelcast.getCluster().removeMembershipListener(membershipListener);
+    policies.removeEntryListener(policyListener);
+    synchronized (this) {
+      // Policy events may still be delivered, so no more listeners are added.
+      closed = true;
+      for (Map.Entry<String, String> entry : evictionListeners.entrySet()) {
+        hazelcast.getMap(entry.getKey()).removeEntryListener(entry.getValue());
+      }
+      evictionListeners.clear();
+    }
+    joinHandlers.clear();
+    leaveHandlers.clear();
+  }
+
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.kuujo.xync.cluster.MapEvent;
+
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.shareddata.Shareable;
+
+/**
+ * Listeners for changes to a shared data map.<p>
+ *
+ * Listeners are shared by all verticles on the node, so each listener is
+ * called on the context from which it was added.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class MapListeners implements Shareable {
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Adds a listener.
+   */
+  void add(String id, Object key, Context context, Handler<?> handler) {
+    listeners.add(new Listener(id, key, context, handler));
+  }
+
+  /**
+   * Removes a listener.
+   */
+  void remove(String id) {
+    for (Listener listener : listeners) {
+      if (listener.id.equals(id)) {
+        listeners.remove(listener);
+      }
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether there are no listeners.
+   */
+  boolean isEmpty() {
+    return listeners.isEmpty();
+  }
+
+  /**
+   * Notifies listeners of a change to an entry.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  void notify(String type, Object key, Object value) {
+    for (final Listener listener : listeners) {
+      if (listener.key == null || listener.key.equals(key)) {
+        final MapEvent event = new MapEvent(type, key, value);
+        listener.context.runOnContext(new Handler<Void>() {
+          @Override
+          public void handle(Void v) {
+            ((Handler) listener.handler).handle(event);
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * A map listener.
+   */
+  private static class Listener {
+    private final String id;
+    private final Object key;
+    private final Context context;
+    private final Handler<?> handler;
+
+    private Listener(String id, Object key, Context context, Handler<?> handler) {
+      this.id = id;
+      this.key = key;
+      this.context = context;
+      this.handler = handler;
+    }
+  }
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.impl.DefaultFutureResult;
+import org.vertx.java.core.shareddata.Shareable;
+
+/**
+ * Consumers waiting on a queue.<p>
+ *
+ * Waiters are completed in the order in which they started waiting, and
+ * each waiter is completed on the context from which it started waiting.
+ * Waiters are shared by all verticles on the node, so waiting consumers
+ * are served fairly regardless of which verticle received their request.<p>
+ *
+ * Queues that are not polled by their producers register a single listener
+ * per node that calls {@link #signal()} when a value is added. A waiter may
+ * carry a dispatcher, which is run on the waiter's own context to poll the
+ * queue, so the listener never polls the queue itself and never depends on
+ * the verticle that registered it. The listener is shared by every cluster
+ * manager that uses the queue and is removed when the last one releases it.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The queue data type.
+ */
+final class QueueWaiters<T> implements Shareable {
+  private final Deque<Waiter<T>> waiters = new ConcurrentLinkedDeque<>();
+  private int users;
+  private String listener;
+
+  /**
+   * Waits for a value.
+   *
+   * @param vertx The Vert.x instance.
+   * @param timeout The maximum time to wait in milliseconds.
+   * @param resultHandler A handler to be called with the value, or with
+   *        <code>null</code> if no value is received before the timeout.
+   */
+  void await(Vertx vertx, long timeout, Handler<AsyncResult<T>> resultHandler) {
+    await(vertx, timeout, null, resultHandler);
+  }
+
+  /**
+   * Waits for a value.
+   *
+   * @param vertx The Vert.x instance.
+   * @param timeout The maximum time to wait in milliseconds.
+   * @param dispatcher A handler to be called on the current context to poll
+   *        the queue when a value is added, or <code>null</code> if producers
+   *        poll the queue themselves.
+   * @param resultHandler A handler to be called with the value, or with
+   *        <code>null</code> if no value is received before the timeout.
+   */
+  void await(Vertx vertx, long timeout, Handler<Void> dispatcher, Handler<AsyncResult<T>> resultHandler) {
+    final Waiter<T> waiter = new Waiter<T>(vertx.currentContext(), dispatcher, resultHandler);
+    // The timer is set before the waiter can be completed so that completing
+    // the waiter always cancels its timer.
+    waiter.timer = vertx.setTimer(timeout, new Handler<Long>() {
+      @Override
+      public void handle(Long timerID) {
+        waiter.expired = true;
+        if (waiter.claim()) {
+          waiters.remove(waiter);
+          new DefaultFutureResult<T>((T) null).setHandler(waiter.handler);
+        }
+      }
+    });
+    waiters.add(waiter);
+  }
+
+  /**
+   * Claims the longest waiting consumer. A waiter is claimed before a value
+   * is taken from the queue so that a value is never taken without a
+   * consumer to receive it.
+   *
+   * @return The claimed waiter, or <code>null</code> if no consumer is waiting.
+   */
+  Waiter<T> claim() {
+    while (true) {
+      Waiter<T> waiter = waiters.poll();
+      if (waiter == null || waiter.claim()) {
+        return waiter;
+      }
+    }
+  }
+
+  /**
+   * Completes a claimed waiter with a value.
+   *
+   * @param vertx The Vert.x instance.
+   * @param waiter The claimed waiter.
+   * @param value The value with which to complete the waiter.
+   */
+  void complete(Vertx vertx, final Waiter<T> waiter, final T value) {
+    vertx.cancelTimer(waiter.timer);
+    waiter.context.runOnContext(new Handler<Void>() {
+      @Override
+      public void handle(Void v) {
+        new DefaultFutureResult<T>(value).setHandler(waiter.handler);
+      }
+    });
+  }
+
+  /**
+   * Returns a claimed waiter to the head of the waiters when no value was
+   * available for it. If the waiter timed out while it was claimed it is
+   * completed with <code>null</code> instead.
+   *
+   * @param waiter The claimed waiter.
+   */
+  void release(final Waiter<T> waiter) {
+    waiter.claimed.set(false);
+    waiters.addFirst(waiter);
+    if (waiter.expired && waiter.claim()) {
+      waiters.remove(waiter);
+      waiter.context.runOnContext(new Handler<Void>() {
+        @Override
+        public void handle(Void v) {
+          new DefaultFutureResult<T>((T) null).setHandler(waiter.handler);
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether no consumers are waiting.
+   */
+  boolean isEmpty() {
+    return waiters.isEmpty();
+  }
+
+  /**
+   * Runs the dispatcher of the longest waiting consumer on that consumer's
+   * context. This is called by queue listeners when a value is added.
+   */
+  void signal() {
+    for (final Waiter<T> waiter : waiters) {
+      if (waiter.dispatcher != null) {
+        waiter.context.runOnContext(waiter.dispatcher);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Removes all waiters that started waiting on the given context. This is
+   * called when the verticle that owns the context stops, so values are
+   * never taken from the queue for consumers that can no longer receive them.
+   *
+   * @param context The context of the stopped verticle.
+   */
+  void cancel(Context context) {
+    for (Waiter<T> waiter : waiters) {
+      if (waiter.context == context && waiter.claim()) {
+        waiters.remove(waiter);
+      }
+    }
+  }
+
+  /**
+   * Registers a user of the waiters' queue listener.
+   */
+  synchronized void acquire() {
+    users++;
+  }
+
+  /**
+   * Releases a user of the waiters' queue listener.
+   *
+   * @return The ID of the listener if it was released by its last user and
+   *         should be removed, otherwise <code>null</code>.
+   */
+  synchronized String release() {
+    if (--users > 0 || listener == null) {
+      return null;
+    }
+    String id = listener;
+    listener = null;
+    return id;
+  }
+
+  /**
+   * Returns the ID of the registered queue listener.
+   *
+   * @return The listener ID, or <code>null</code> if no listener is registered.
+   */
+  synchronized String listener() {
+    return listener;
+  }
+
+  /**
+   * Sets the ID of the registered queue listener.
+   */
+  synchronized void listener(String id) {
+    listener = id;
+  }
+
+  /**
+   * A waiting consumer.
+   */
+  static final class Waiter<T> {
+    private final Context context;
+    private final Handler<Void> dispatcher;
+    private final Handler<AsyncResult<T>> handler;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private volatile long timer;
+    private volatile boolean expired;
+
+    private Waiter(Context context, Handler<Void> dispatcher, Handler<AsyncResult<T>> handler) {
+      this.context = context;
+      this.dispatcher = dispatcher;
+      this.handler = handler;
+    }
+
+    /**
+     * Claims the waiter for completion, either by a value or by its timeout.
+     */
+    private boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import net.kuujo.xync.cluster.AsyncCounter;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.impl.DefaultFutureResult;
+
+/**
+ * Shared data based counter.<p>
+ *
+ * Counter operations are atomic in-memory operations, so they are
+ * completed immediately rather than on the data executor.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SharedDataAsyncCounter implements AsyncCounter {
+  private final String name;
+  private final SharedDataCounter counter;
+
+  public SharedDataAsyncCounter(String name, SharedDataCounter counter) {
+    this.name = name;
+    this.counter = counter;
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public void get(Handler<AsyncResult<Long>> resultHandler) {
+    new DefaultFutureResult<Long>(counter.get()).setHandler(resultHandler);
+  }
+
+  @Override
+  public void addAndGet(long delta, Handler<AsyncResult<Long>> resultHandler) {
+    new DefaultFutureResult<Long>(counter.addAndGet(delta)).setHandler(resultHandler);
+  }
+
+  @Override
+  public void getAndAdd(long delta, Handler<AsyncResult<Long>> resultHandler) {
+    new DefaultFutureResult<Long>(counter.getAndAdd(delta)).setHandler(resultHandler);
+  }
+
+  @Override
+  public void compareAndSet(long expect, long update, Handler<AsyncResult<Boolean>> resultHandler) {
+    new DefaultFutureResult<Boolean>(counter.compareAndSet(expect, update)).setHandler(resultHandler);
+  }
+
+}
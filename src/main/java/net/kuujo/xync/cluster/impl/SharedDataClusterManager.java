@@ -7,27 +7,68 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
 
+import net.kuujo.xync.cluster.AsyncCounter;
+import net.kuujo.xync.cluster.AsyncList;
+import net.kuujo.xync.cluster.AsyncMap;
+import net.kuujo.xync.cluster.AsyncQueue;
+import net.kuujo.xync.cluster.AsyncSet;
 import net.kuujo.xync.cluster.ClusterManager;
+import net.kuujo.xync.cluster.MapEvent;
+import net.kuujo.xync.cluster.MapPolicy;
+import net.kuujo.xync.util.DataExecutor;
+import net.kuujo.xync.util.NearCache;
 
+import org.vertx.java.core.Context;
 import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
 import org.vertx.java.core.shareddata.SharedData;
 
 /**
- * Shared data based cluster manager.
+ * Shared data based cluster manager.<p>
+ *
+ * Maps support per-entry expiration. Expiring entries are tracked on a
+ * timer wheel that is shared by all managers of the Vert.x instance, and
+ * removed shortly after they expire. Maps with a capacity
+ * policy share an eviction index through shared data, so the policy is
+ * enforced for all verticles on the node.
  *
  * @author Jordan Halterman
  */
 public class SharedDataClusterManager implements ClusterManager {
+  private static final String COUNTERS_MAP = "__xync.counters";
+  private static final String POLICIES_MAP = "__xync.policies";
+  private static final String LISTENERS_MAP = "__xync.listeners";
+  private static final String QUEUES_MAP = "__xync.queues";
+  private static final String EXPIRERS_MAP = "__xync.expirers";
+  private final Vertx vertx;
   private final String id = UUID.randomUUID().toString();
   private final SharedData data;
+  private final DataExecutor executor;
+  private final Context context;
+  private final ExpiringMap.Expirer expirer;
   @SuppressWarnings("rawtypes")
   private final Map<String, List> lists = new HashMap<>();
-  @SuppressWarnings("rawtypes")
-  private final Map<String, Queue> queues = new HashMap<>();
 
-  public SharedDataClusterManager(SharedData data) {
-    this.data = data;
+  public SharedDataClusterManager(Vertx vertx, DataExecutor executor) {
+    this.vertx = vertx;
+    this.data = vertx.sharedData();
+    this.executor = executor;
+    this.context = vertx.currentContext();
+    ConcurrentMap<String, ExpiringMap.Expirer> expirers = data.getMap(EXPIRERS_MAP);
+    ExpiringMap.Expirer expirer = expirers.get("expirer");
+    if (expirer == null) {
+      expirer = new ExpiringMap.Expirer(vertx);
+      ExpiringMap.Expirer existing = expirers.putIfAbsent("expirer", expirer);
+      if (existing != null) {
+        expirer = existing;
+      }
+    }
+    this.expirer = expirer;
+    if (context != null) {
+      expirer.acquire(context);
+    }
   }
 
   @Override
@@ -42,6 +83,11 @@ public class SharedDataClusterManager implements ClusterManager {
     return nodes;
   }
 
+  @Override
+  public String getPartitionOwner(Object key) {
+    return id;
+  }
+
   @Override
   public ClusterManager joinHandler(Handler<String> handler) {
     return this;
@@ -54,7 +100,12 @@ public class SharedDataClusterManager implements ClusterManager {
 
   @Override
   public <K, V> Map<K, V> getMap(String name) {
-    return data.getMap(name);
+    EvictionIndex index = data.<String, EvictionIndex>getMap(POLICIES_MAP).get(name);
+    MapListeners listeners = data.<String, MapListeners>getMap(LISTENERS_MAP).get(name);
+    if (index != null) {
+      return new BoundedMap<K, V>(data.<K, Object>getMap(name), expirer, index, listeners);
+    }
+    return new ExpiringMap<K, V>(data.<K, Object>getMap(name), expirer, listeners);
   }
 
   @Override
@@ -74,14 +125,130 @@ public class SharedDataClusterManager implements ClusterManager {
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <T> Queue<T> getQueue(String name) {
-    Queue<T> queue = queues.get(name);
+    ConcurrentMap<String, SharedDataQueue<T>> queues = data.getMap(QUEUES_MAP);
+    SharedDataQueue<T> queue = queues.get(name);
     if (queue == null) {
-      queue = new SharedDataQueue<T>(data.<Integer, Object>getMap(name));
-      queues.put(name, queue);
+      queue = new SharedDataQueue<T>(vertx);
+      SharedDataQueue<T> existing = queues.putIfAbsent(name, queue);
+      if (existing != null) {
+        queue = existing;
+      }
     }
     return queue;
   }
 
+  @Override
+  public <K, V> AsyncMap<K, V> getAsyncMap(String name) {
+    return new DefaultAsyncMap<K, V>(name, this.<K, V>getMap(name), executor);
+  }
+
+  @Override
+  public <T> AsyncSet<T> getAsyncSet(String name) {
+    return new DefaultAsyncSet<T>(name, this.<T>getSet(name), executor);
+  }
+
+  @Override
+  public <T> AsyncList<T> getAsyncList(String name) {
+    return new DefaultAsyncList<T>(name, this.<T>getList(name), executor);
+  }
+
+  @Override
+  public <T> AsyncQueue<T> getAsyncQueue(String name) {
+    return new DefaultAsyncQueue<T>(name, this.<T>getQueue(name), executor);
+  }
+
+  @Override
+  public AsyncCounter getAsyncCounter(String name) {
+    ConcurrentMap<String, SharedDataCounter> counters = data.getMap(COUNTERS_MAP);
+    SharedDataCounter counter = counters.get(name);
+    if (counter == null) {
+      counter = new SharedDataCounter();
+      SharedDataCounter existing = counters.putIfAbsent(name, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return new SharedDataAsyncCounter(name, counter);
+  }
+
+  @Override
+  public <K, V> void setNearCache(String name, NearCache<K, V> cache) {
+    // Shared data is already local to the node, so near caches are ignored.
+  }
+
+  @Override
+  public <K, V> String addMapListener(String name, K key, Handler<MapEvent<K, V>> handler) {
+    ConcurrentMap<String, MapListeners> listeners = data.getMap(LISTENERS_MAP);
+    MapListeners mapListeners = listeners.get(name);
+    if (mapListeners == null) {
+      mapListeners = new MapListeners();
+      MapListeners existing = listeners.putIfAbsent(name, mapListeners);
+      if (existing != null) {
+        mapListeners = existing;
+      }
+    }
+    String id = UUID.randomUUID().toString();
+    mapListeners.add(id, key, vertx.currentContext(), handler);
+    return id;
+  }
+
+  @Override
+  public void removeMapListener(String name, String id) {
+    MapListeners listeners = data.<String, MapListeners>getMap(LISTENERS_MAP).get(name);
+    if (listeners != null) {
+      listeners.remove(id);
+    }
+  }
+
+  @Override
+  public void setMapPolicy(String name, MapPolicy policy) {
+    ConcurrentMap<String, EvictionIndex> policies = data.getMap(POLICIES_MAP);
+    EvictionIndex index = policies.get(name);
+    if (index == null) {
+      index = new EvictionIndex(policy);
+      EvictionIndex existing = policies.putIfAbsent(name, index);
+      if (existing != null) {
+        index = existing;
+      }
+    }
+    synchronized (index) {
+      index.policy(policy);
+      new BoundedMap<Object, Object>(data.<Object, Object>getMap(name), expirer, index,
+          data.<String, MapListeners>getMap(LISTENERS_MAP).get(name)).reindex();
+    }
+  }
+
+  @Override
+  public Map<String, MapPolicy> getMapPolicies() {
+    Map<String, MapPolicy> policies = new HashMap<>();
+    for (Map.Entry<String, EvictionIndex> entry : data.<String, EvictionIndex>getMap(POLICIES_MAP).entrySet()) {
+      policies.put(entry.getKey(), entry.getValue().policy());
+    }
+    return policies;
+  }
+
+  @Override
+  public long getEvictions(String name) {
+    EvictionIndex index = data.<String, EvictionIndex>getMap(POLICIES_MAP).get(name);
+    return index != null ? index.evictions() : 0;
+  }
+
+  @Override
+  public void setListIndex(String name, boolean enabled) {
+    ((SharedDataList<?>) getList(name)).setIndexed(enabled);
+  }
+
+  @Override
+  public void setQueueIndex(String name, boolean enabled) {
+    ((SharedDataQueue<?>) getQueue(name)).setIndexed(enabled);
+  }
+
+  @Override
+  public void close() {
+    if (context != null) {
+      expirer.release(context);
+    }
+  }
+
 }
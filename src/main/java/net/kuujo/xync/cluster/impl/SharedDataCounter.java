@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.shareddata.Shareable;
+
+/**
+ * Shareable atomic long.<p>
+ *
+ * Shared data counters are stored in a shared data map so that all
+ * Xync instances within the same Vert.x instance update the same
+ * atomic value.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SharedDataCounter extends AtomicLong implements Shareable {
+  private static final long serialVersionUID = 1L;
+}
@@ -15,77 +15,197 @@
  */
 package net.kuujo.xync.cluster.impl;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 
+import org.vertx.java.core.shareddata.Shareable;
+
 /**
- * Shared data-based list implementation.
+ * Shared data-based list implementation.<p>
+ *
+ * Elements are stored in fixed capacity chunks, each of which is an entry
+ * in the shared data map. A directory stored under the <code>-1</code> key
+ * records the order of the chunks along with a Fenwick tree of their sizes,
+ * so an index is located and the size of a chunk is changed in logarithmic
+ * time, and inserting or removing an element only shifts elements within a
+ * single chunk. Full chunks are split on insert, and neighboring chunks that
+ * become less than half full are merged on remove. Splits and merges rebuild
+ * the directory, which takes time linear in the number of chunks but happens
+ * at most once every <code>CHUNK_SIZE / 2</code> inserts or removes.<p>
+ *
+ * Lists may also keep a {@link ValueIndex} of their values, in which case
+ * membership checks do not scan the list. Iterators, arrays and sub lists
+ * are snapshots of the list that are copied a chunk at a time.<p>
+ *
+ * Because chunks hold elements directly rather than as shared map entries,
+ * the list applies the shared map's rules itself through {@link SharedValues}:
+ * elements must be shareable types, and mutable elements such as JSON,
+ * byte arrays and buffers are copied when they are stored and when they are
+ * read.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class SharedDataList<T> implements List<T> {
+  static final int CHUNK_SIZE = 512;
   private final Map<Integer, Object> map;
-  private int currentSize = 0;
+  private final Directory directory;
 
   public SharedDataList(Map<Integer, Object> map) {
     this.map = map;
-    this.currentSize = (int) (map.containsKey(-1) ? map.get(-1) : 0);
+    synchronized (map) {
+      Object directory = map.get(-1);
+      if (!(directory instanceof Directory)) {
+        directory = new Directory();
+        map.put(-1, directory);
+      }
+      this.directory = (Directory) directory;
+    }
   }
 
   @Override
   public int size() {
-    return currentSize;
+    return directory.size;
   }
 
   @Override
   public boolean isEmpty() {
-    return currentSize == 0;
+    return directory.size == 0;
   }
 
   @Override
   public boolean contains(Object o) {
-    return map.values().contains(o);
+    ValueIndex index = directory.index;
+    if (index != null) {
+      return index.contains(o);
+    }
+    return indexOf(o) != -1;
+  }
+
+  /**
+   * Enables or disables the value index. Enabling the index builds it from
+   * the current contents of the list.
+   *
+   * @param enabled Indicates whether the list should be indexed.
+   */
+  public void setIndexed(boolean enabled) {
+    synchronized (map) {
+      if (!enabled) {
+        directory.index = null;
+      } else if (directory.index == null) {
+        ValueIndex index = new ValueIndex();
+        for (int i = 0; i < directory.count; i++) {
+          Chunk chunk = chunk(i);
+          for (int j = 0; j < chunk.size; j++) {
+            index.add(chunk.items[j]);
+          }
+        }
+        directory.index = index;
+      }
+    }
   }
 
   @Override
   public Iterator<T> iterator() {
-    throw new UnsupportedOperationException("Not supported.");
+    return listIterator(0);
   }
 
   @Override
   public Object[] toArray() {
-    throw new UnsupportedOperationException("Not supported.");
+    synchronized (map) {
+      return copy(0, directory.size);
+    }
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public <T> T[] toArray(T[] a) {
-    throw new UnsupportedOperationException("Not supported.");
+    Object[] values = toArray();
+    if (a.length < values.length) {
+      return (T[]) Arrays.copyOf(values, values.length, a.getClass());
+    }
+    System.arraycopy(values, 0, a, 0, values.length);
+    if (a.length > values.length) {
+      a[values.length] = null;
+    }
+    return a;
+  }
+
+  /**
+   * Returns a snapshot of a range of the list. Unlike {@link #subList(int, int)}
+   * the range is clipped to the size of the list.
+   *
+   * @param fromIndex The index of the first element to return.
+   * @param toIndex The index after the last element to return.
+   * @return An unmodifiable list of the elements in the range.
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> range(int fromIndex, int toIndex) {
+    Object[] values;
+    synchronized (map) {
+      int to = Math.min(toIndex, directory.size);
+      values = fromIndex < to ? copy(fromIndex, to) : new Object[0];
+    }
+    return Collections.unmodifiableList((List<T>) Arrays.asList(values));
+  }
+
+  /**
+   * Copies a range of the list to an array.
+   */
+  private Object[] copy(int fromIndex, int toIndex) {
+    Object[] values = new Object[toIndex - fromIndex];
+    if (values.length == 0) {
+      return values;
+    }
+    int position = directory.locate(fromIndex);
+    int offset = fromIndex - directory.offset(position);
+    int copied = 0;
+    while (copied < values.length) {
+      Chunk chunk = chunk(position++);
+      int count = Math.min(chunk.size - offset, values.length - copied);
+      System.arraycopy(chunk.items, offset, values, copied, count);
+      copied += count;
+      offset = 0;
+    }
+    return SharedValues.copyAll(values);
   }
 
   @Override
   public boolean containsAll(Collection<?> c) {
-    return map.values().containsAll(c);
+    synchronized (map) {
+      for (Object value : c) {
+        if (indexOf(value) == -1) {
+          return false;
+        }
+      }
+      return true;
+    }
   }
 
   @Override
   public boolean addAll(Collection<? extends T> c) {
-    for (T value : c) {
-      add(value);
+    synchronized (map) {
+      for (T value : c) {
+        add(directory.size, value);
+      }
+      return !c.isEmpty();
     }
-    return true;
   }
 
   @Override
   public boolean addAll(int index, Collection<? extends T> c) {
-    int i = index;
-    for (T value : c) {
-      add(i, value);
-      i++;
+    synchronized (map) {
+      int i = index;
+      for (T value : c) {
+        add(i, value);
+        i++;
+      }
+      return !c.isEmpty();
     }
-    return true;
   }
 
   @Override
@@ -101,114 +221,386 @@ public class SharedDataList<T> implements List<T> {
   @Override
   @SuppressWarnings("unchecked")
   public T get(int index) {
-    if (index > currentSize-1) {
-      throw new IndexOutOfBoundsException("Index out of bounds.");
-    } else {
-      return (T) map.get(index);
+    synchronized (map) {
+      checkIndex(index);
+      int position = directory.locate(index);
+      return SharedValues.copy((T) chunk(position).items[index - directory.offset(position)]);
     }
   }
 
   @Override
   public boolean add(T e) {
-    map.put(currentSize, e);
-    currentSize++;
-    map.put(-1, currentSize);
-    return true;
+    synchronized (map) {
+      add(directory.size, e);
+      return true;
+    }
   }
 
   @Override
   public void add(int index, T element) {
-    map.put(currentSize, element);
-    currentSize++;
-    map.put(-1, currentSize);
+    element = SharedValues.copy(element);
+    synchronized (map) {
+      if (index < 0 || index > directory.size) {
+        throw new IndexOutOfBoundsException("Index out of bounds.");
+      }
+
+      if (directory.index != null) {
+        directory.index.add(element);
+      }
+
+      if (directory.count == 0) {
+        createChunk(0, 0);
+      }
+
+      int position = index == directory.size ? directory.count - 1 : directory.locate(index);
+      Chunk chunk = chunk(position);
+      int offset = index - directory.offset(position);
+      if (chunk.size == CHUNK_SIZE) {
+        if (offset == CHUNK_SIZE) {
+          // Appending to a full chunk starts a new chunk rather than
+          // splitting, so lists built by appending stay densely packed.
+          chunk = createChunk(position + 1, 0);
+          position++;
+          offset = 0;
+        } else {
+          int half = CHUNK_SIZE / 2;
+          Chunk next = createChunk(position + 1, CHUNK_SIZE - half);
+          System.arraycopy(chunk.items, half, next.items, 0, CHUNK_SIZE - half);
+          Arrays.fill(chunk.items, half, CHUNK_SIZE, null);
+          next.size = CHUNK_SIZE - half;
+          chunk.size = half;
+          directory.resize(position, half - CHUNK_SIZE);
+          if (offset > half) {
+            chunk = next;
+            position++;
+            offset -= half;
+          }
+        }
+      }
+
+      System.arraycopy(chunk.items, offset, chunk.items, offset + 1, chunk.size - offset);
+      chunk.items[offset] = element;
+      chunk.size++;
+      directory.resize(position, 1);
+    }
   }
 
   @Override
   public int indexOf(Object o) {
-    for (int i = 0; i < currentSize; i++) {
-      if (map.get(i).equals(o)) {
-        return i;
+    synchronized (map) {
+      if (directory.index != null && !directory.index.contains(o)) {
+        return -1;
+      }
+      int offset = 0;
+      for (int i = 0; i < directory.count; i++) {
+        Chunk chunk = chunk(i);
+        for (int j = 0; j < chunk.size; j++) {
+          if (chunk.items[j].equals(o)) {
+            return offset + j;
+          }
+        }
+        offset += chunk.size;
       }
+      return -1;
     }
-    return -1;
   }
 
   @Override
   public int lastIndexOf(Object o) {
-    for (int i = currentSize-1; i > 0; i--) {
-      if (map.get(i).equals(o)) {
-        return i;
+    synchronized (map) {
+      if (directory.index != null && !directory.index.contains(o)) {
+        return -1;
+      }
+      int offset = directory.size;
+      for (int i = directory.count - 1; i >= 0; i--) {
+        Chunk chunk = chunk(i);
+        offset -= chunk.size;
+        for (int j = chunk.size - 1; j >= 0; j--) {
+          if (chunk.items[j].equals(o)) {
+            return offset + j;
+          }
+        }
       }
+      return -1;
     }
-    return -1;
   }
 
   @Override
   public ListIterator<T> listIterator() {
-    throw new UnsupportedOperationException("Not supported.");
+    return listIterator(0);
   }
 
+  /**
+   * Returns an iterator over a snapshot of the list. The iterator does not
+   * support modifying the list.
+   */
   @Override
+  @SuppressWarnings("unchecked")
   public ListIterator<T> listIterator(int index) {
-    throw new UnsupportedOperationException("Not supported.");
+    return Collections.unmodifiableList((List<T>) Arrays.asList(toArray())).listIterator(index);
   }
 
+  /**
+   * Returns a snapshot of a range of the list. The sub list is not a view,
+   * so it does not reflect later changes to the list and cannot be modified.
+   */
   @Override
   public List<T> subList(int fromIndex, int toIndex) {
-    throw new UnsupportedOperationException("Not supported.");
+    synchronized (map) {
+      if (fromIndex < 0 || toIndex > directory.size || fromIndex > toIndex) {
+        throw new IndexOutOfBoundsException("Index out of bounds.");
+      }
+      return range(fromIndex, toIndex);
+    }
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public boolean remove(Object o) {
     synchronized (map) {
-      for (int i = 0; i < currentSize; i++) {
-        T value = (T) map.get(i);
-        if (value != null && value.equals(o)) {
-          map.remove(i);
-          currentSize--;
-          i++;
-          while (map.containsKey(i)) {
-            map.put(i-1, map.remove(i));
-            i++;
-          }
-          return true;
-        }
+      int index = indexOf(o);
+      if (index == -1) {
+        return false;
       }
-      return false;
+      remove(index);
+      return true;
     }
   }
 
   @Override
   public void clear() {
-    map.clear();
-    currentSize = 0;
-    map.put(-1, currentSize);
+    synchronized (map) {
+      for (int i = 0; i < directory.count; i++) {
+        map.remove(directory.ids[i]);
+      }
+      directory.clear();
+      if (directory.index != null) {
+        directory.index.clear();
+      }
+    }
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public T set(int index, T element) {
-    return (T) map.put(index, element);
+    element = SharedValues.copy(element);
+    synchronized (map) {
+      checkIndex(index);
+      int position = directory.locate(index);
+      Chunk chunk = chunk(position);
+      int offset = index - directory.offset(position);
+      T value = (T) chunk.items[offset];
+      chunk.items[offset] = element;
+      if (directory.index != null) {
+        directory.index.add(element);
+        directory.index.remove(value);
+      }
+      return value;
+    }
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public T remove(int index) {
-    if (index > currentSize-1) {
+    synchronized (map) {
+      checkIndex(index);
+      int position = directory.locate(index);
+      Chunk chunk = chunk(position);
+      int offset = index - directory.offset(position);
+      T value = (T) chunk.items[offset];
+      System.arraycopy(chunk.items, offset + 1, chunk.items, offset, chunk.size - offset - 1);
+      chunk.items[--chunk.size] = null;
+      directory.resize(position, -1);
+      if (directory.index != null) {
+        directory.index.remove(value);
+      }
+      if (chunk.size == 0) {
+        map.remove(directory.ids[position]);
+        directory.remove(position);
+      } else if (position + 1 >= directory.count || !merge(position, position + 1)) {
+        if (position > 0) {
+          merge(position - 1, position);
+        }
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Checks that an index refers to an element in the list.
+   */
+  private void checkIndex(int index) {
+    if (index < 0 || index >= directory.size) {
       throw new IndexOutOfBoundsException("Index out of bounds.");
-    } else {
-      synchronized (map) {
-        T value = (T) map.remove(index);
-        int i = index+1;
-        while (map.containsKey(i)) {
-          map.put(i-1, map.remove(i));
-          i++;
+    }
+  }
+
+  /**
+   * Returns the chunk at the given position in the directory.
+   */
+  private Chunk chunk(int position) {
+    return (Chunk) map.get(directory.ids[position]);
+  }
+
+  /**
+   * Creates a chunk at the given position in the directory. The caller
+   * fills the chunk with the given number of elements.
+   */
+  private Chunk createChunk(int position, int size) {
+    Chunk chunk = new Chunk();
+    int id = directory.nextId++;
+    map.put(id, chunk);
+    directory.insert(position, id, size);
+    return chunk;
+  }
+
+  /**
+   * Returns the number of chunks in the list.
+   */
+  int chunkCount() {
+    synchronized (map) {
+      return directory.count;
+    }
+  }
+
+  /**
+   * Returns the number of elements in the chunk at the given position.
+   */
+  int chunkSize(int position) {
+    synchronized (map) {
+      return chunk(position).size;
+    }
+  }
+
+  /**
+   * Merges two neighboring chunks if together they are no more than half full.
+   *
+   * @return Indicates whether the chunks were merged.
+   */
+  private boolean merge(int first, int second) {
+    Chunk chunk = chunk(first);
+    Chunk next = chunk(second);
+    if (chunk.size + next.size > CHUNK_SIZE / 2) {
+      return false;
+    }
+    System.arraycopy(next.items, 0, chunk.items, chunk.size, next.size);
+    chunk.size += next.size;
+    directory.resize(first, next.size);
+    map.remove(directory.ids[second]);
+    directory.remove(second);
+    return true;
+  }
+
+  /**
+   * A chunk of list elements.
+   */
+  private static final class Chunk implements Shareable {
+    private final Object[] items = new Object[CHUNK_SIZE];
+    private int size;
+  }
+
+  /**
+   * The ordered list of chunk IDs along with a Fenwick tree of chunk sizes.
+   */
+  private static final class Directory implements Shareable {
+    private int[] ids = new int[16];
+    private int[] sizes = new int[16];
+    private int[] tree = new int[17];
+    private int count;
+    private volatile int size;
+    private int nextId;
+    private volatile ValueIndex index;
+
+    /**
+     * Returns the position of the chunk that holds the given index.
+     */
+    private int locate(int index) {
+      int position = 0;
+      int remaining = index;
+      for (int step = Integer.highestOneBit(count); step > 0; step >>= 1) {
+        int next = position + step;
+        if (next <= count && tree[next] <= remaining) {
+          position = next;
+          remaining -= tree[next];
         }
-        currentSize--;
-        map.put(-1, currentSize);
-        return value;
       }
+      return Math.min(position, count - 1);
+    }
+
+    /**
+     * Returns the list index at which the chunk at the given position starts.
+     */
+    private int offset(int position) {
+      int offset = 0;
+      for (int i = position; i > 0; i -= i & -i) {
+        offset += tree[i];
+      }
+      return offset;
+    }
+
+    /**
+     * Changes the size of the chunk at the given position.
+     */
+    private void resize(int position, int delta) {
+      sizes[position] += delta;
+      for (int i = position + 1; i <= count; i += i & -i) {
+        tree[i] += delta;
+      }
+      size += delta;
+    }
+
+    /**
+     * Inserts a chunk with the given number of elements at the given position.
+     */
+    private void insert(int position, int id, int size) {
+      if (count == ids.length) {
+        ids = Arrays.copyOf(ids, count * 2);
+        sizes = Arrays.copyOf(sizes, count * 2);
+        tree = new int[count * 2 + 1];
+      }
+      System.arraycopy(ids, position, ids, position + 1, count - position);
+      System.arraycopy(sizes, position, sizes, position + 1, count - position);
+      ids[position] = id;
+      sizes[position] = size;
+      count++;
+      this.size += size;
+      rebuild();
+    }
+
+    /**
+     * Removes the chunk at the given position.
+     */
+    private void remove(int position) {
+      size -= sizes[position];
+      System.arraycopy(ids, position + 1, ids, position, count - position - 1);
+      System.arraycopy(sizes, position + 1, sizes, position, count - position - 1);
+      count--;
+      sizes[count] = 0;
+      rebuild();
+    }
+
+    /**
+     * Rebuilds the tree of chunk sizes.
+     */
+    private void rebuild() {
+      Arrays.fill(tree, 0);
+      for (int i = 1; i <= count; i++) {
+        tree[i] += sizes[i - 1];
+        int parent = i + (i & -i);
+        if (parent <= count) {
+          tree[parent] += tree[i];
+        }
+      }
+    }
+
+    /**
+     * Removes all chunks.
+     */
+    private void clear() {
+      ids = new int[16];
+      sizes = new int[16];
+      tree = new int[17];
+      count = 0;
+      size = 0;
     }
   }
 
@@ -15,65 +15,276 @@
  */
 package net.kuujo.xync.cluster.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.impl.DefaultFutureResult;
+import org.vertx.java.core.shareddata.Shareable;
 
 /**
- * A shared data based queue implementation.
+ * A shared data based queue implementation.<p>
+ *
+ * Queues are shared by all verticles on the node. Elements are stored in a
+ * chain of lock-free ring buffers. Each ring has atomically advanced 64-bit
+ * head and tail sequence numbers, and each slot has a sequence number that
+ * records whether it is free or holds an element for the current lap, so
+ * producers and consumers on different event loops never block one another.
+ * When a ring fills it is closed to producers and a larger ring is linked
+ * after it. Consumers move on to the next ring once the closed ring has been
+ * drained, and since each new ring starts its sequences at zero, indexes are
+ * rebased every time the queue moves to a new ring. Elements that are
+ * returned to the queue with {@link #requeue(Collection)} are held in a
+ * separate deque ahead of the rings.<p>
+ *
+ * Consumers may wait for elements with {@link #take(long, Handler)}, in which
+ * case offered elements are handed directly to the longest waiting consumer.
+ * Queues may also keep a {@link ValueIndex} of their values, in which case
+ * membership checks do not scan the queue.<p>
+ *
+ * Because ring slots hold elements directly rather than as shared map
+ * entries, the queue applies the shared map's rules itself through
+ * {@link SharedValues}: elements must be shareable types, and mutable
+ * elements such as JSON, byte arrays and buffers are copied when they are
+ * added and when they are read without being removed.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  *
  * @param <T> The queue data type.
  */
-public class SharedDataQueue<T> implements Queue<T> {
-  private final Map<Integer, Object> map;
-  private int currentIndex;
+public class SharedDataQueue<T> implements Queue<T>, Shareable {
+  private static final int INITIAL_CAPACITY = 256;
+  private static final int MAX_CAPACITY = 1 << 16;
+  private static final long CLOSED = 1L << 62;
+  private static final Object REMOVED = new Object();
+  private final Vertx vertx;
+  private final QueueWaiters<T> waiters = new QueueWaiters<>();
+  private final AtomicReference<Ring> head;
+  private final AtomicReference<Ring> tail;
+  private final AtomicLong removed = new AtomicLong();
+  private final Deque<Object> returned = new ConcurrentLinkedDeque<>();
+  private volatile ValueIndex index;
 
-  public SharedDataQueue(Map<Integer, Object> map) {
-    this.map = map;
-    this.currentIndex = (int) (map.containsKey(-1) ? map.get(-1) : 0);
+  public SharedDataQueue(Vertx vertx) {
+    this.vertx = vertx;
+    Ring ring = new Ring(INITIAL_CAPACITY);
+    this.head = new AtomicReference<>(ring);
+    this.tail = new AtomicReference<>(ring);
   }
 
   @Override
   public int size() {
-    return map.size() - 1;
+    long size = returned.isEmpty() ? -removed.get() : returned.size() - removed.get();
+    for (Ring ring = head.get(); ring != null; ring = ring.next.get()) {
+      size += ring.size();
+    }
+    return (int) Math.min(Math.max(size, 0), Integer.MAX_VALUE);
   }
 
   @Override
   public boolean isEmpty() {
-    return map.size() == 1;
+    return first() == null;
   }
 
   @Override
   public boolean contains(Object o) {
-    return map.values().contains(o);
+    ValueIndex index = this.index;
+    if (index != null) {
+      return index.contains(o);
+    }
+    if (!returned.isEmpty() && returned.contains(o)) {
+      return true;
+    }
+    for (Ring ring = head.get(); ring != null; ring = ring.next.get()) {
+      if (ring.indexOf(o) != -1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Enables or disables the value index. Enabling the index builds it from
+   * a snapshot of the queue, so elements added or removed while the index
+   * is being built may be miscounted. Queues should be indexed before
+   * they are in use.
+   *
+   * @param enabled Indicates whether the queue should be indexed.
+   */
+  public synchronized void setIndexed(boolean enabled) {
+    if (!enabled) {
+      index = null;
+    } else if (index == null) {
+      ValueIndex index = new ValueIndex();
+      for (T value : snapshot()) {
+        index.add(value);
+      }
+      this.index = index;
+    }
   }
 
+  /**
+   * Returns an iterator over a snapshot of the queue.
+   */
   @Override
   public Iterator<T> iterator() {
-    throw new UnsupportedOperationException("Not supported.");
+    final Iterator<T> iterator = snapshot().iterator();
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return iterator.next();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("Not supported.");
+      }
+    };
+  }
+
+  /**
+   * Returns a weakly consistent copy of the elements in the queue.
+   */
+  @SuppressWarnings("unchecked")
+  private List<T> snapshot() {
+    List<T> values = new ArrayList<>((Collection<T>) returned);
+    for (Ring ring = head.get(); ring != null; ring = ring.next.get()) {
+      ring.copyTo(values, 0, Integer.MAX_VALUE);
+    }
+    return SharedValues.copyAll(values);
+  }
+
+  /**
+   * Returns a weakly consistent copy of a range of the queue without
+   * removing any elements.
+   *
+   * @param fromIndex The position from the head of the first element to return.
+   * @param toIndex The position from the head after the last element to return.
+   * @return A list of the elements in the range, which is shorter than the
+   *         range if the queue does not have enough elements.
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> range(int fromIndex, int toIndex) {
+    List<T> values = new ArrayList<>(Math.max(Math.min(toIndex - fromIndex, INITIAL_CAPACITY), 0));
+    int skip = fromIndex;
+    if (!returned.isEmpty()) {
+      skip = copyTo((Collection<T>) returned, values, skip, toIndex - fromIndex);
+    }
+    for (Ring ring = head.get(); ring != null && values.size() < toIndex - fromIndex; ring = ring.next.get()) {
+      skip = ring.copyTo(values, skip, toIndex - fromIndex);
+    }
+    return SharedValues.copyAll(values);
   }
 
   @Override
   public Object[] toArray() {
-    throw new UnsupportedOperationException("Not supported.");
+    return snapshot().toArray();
   }
 
   @Override
   public <T> T[] toArray(T[] a) {
-    throw new UnsupportedOperationException("Not supported.");
+    return snapshot().toArray(a);
   }
 
   @Override
   public boolean containsAll(Collection<?> c) {
-    return map.values().containsAll(c);
+    for (Object value : c) {
+      if (!contains(value)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
   public boolean addAll(Collection<? extends T> c) {
-    throw new UnsupportedOperationException("Not supported.");
+    Object[] values = SharedValues.copyAll(c.toArray());
+    ValueIndex index = this.index;
+    if (index != null) {
+      for (Object value : values) {
+        index.add(value);
+      }
+    }
+    int offset = 0;
+    while (offset < values.length) {
+      Ring ring = tail.get();
+      int count = ring.offerAll(values, offset);
+      if (count == 0) {
+        advance(ring);
+      }
+      offset += count;
+    }
+    dispatch();
+    return values.length > 0;
+  }
+
+  /**
+   * Removes a batch of elements from the head of the queue. The head sequence
+   * of a ring is only advanced once for all the elements taken from it.
+   *
+   * @param c The collection to which to add removed elements.
+   * @param max The maximum number of elements to remove.
+   * @return The number of elements removed.
+   */
+  @SuppressWarnings("unchecked")
+  public int drainTo(Collection<? super T> c, int max) {
+    List<Object> values = new ArrayList<>(Math.min(max, INITIAL_CAPACITY));
+    Object next;
+    while (values.size() < max && (next = returned.pollFirst()) != null) {
+      values.add(next);
+    }
+    while (values.size() < max) {
+      Ring ring = head.get();
+      if (ring.drainTo(values, max - values.size()) == 0 && !next(ring)) {
+        break;
+      }
+    }
+    ValueIndex index = this.index;
+    for (Object value : values) {
+      if (index != null) {
+        index.remove(value);
+      }
+      c.add((T) value);
+    }
+    return values.size();
+  }
+
+  /**
+   * Returns elements to the head of the queue, ahead of all other elements.
+   * This is used to put back elements that were removed from the queue but
+   * could not be delivered, so they keep their place in the queue.
+   *
+   * @param c The elements to return, in queue order.
+   */
+  public void requeue(Collection<? extends T> c) {
+    Object[] values = SharedValues.copyAll(c.toArray());
+    ValueIndex index = this.index;
+    if (index != null) {
+      for (Object value : values) {
+        index.add(value);
+      }
+    }
+    for (int i = values.length - 1; i >= 0; i--) {
+      returned.addFirst(values[i]);
+    }
+    dispatch();
   }
 
   @Override
@@ -87,35 +298,66 @@ public class SharedDataQueue<T> implements Queue<T> {
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public T remove() {
-    synchronized (map) {
-      if (map.containsKey(currentIndex)) {
-        T value = (T) map.remove(currentIndex);
-        currentIndex++;
-        map.put(-1, currentIndex);
-        return value;
-      } else {
-        throw new IllegalStateException("Queue is empty.");
-      }
+    T value = poll();
+    if (value != null) {
+      return value;
+    } else {
+      throw new IllegalStateException("Queue is empty.");
     }
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public T poll() {
-    T value = (T) map.remove(currentIndex);
-    if (value != null) {
-      currentIndex++;
-      map.put(-1, currentIndex);
+    Object returned = this.returned.pollFirst();
+    if (returned != null) {
+      ValueIndex index = this.index;
+      if (index != null) {
+        index.remove(returned);
+      }
+      return (T) returned;
+    }
+    while (true) {
+      Ring ring = head.get();
+      Object value = ring.poll();
+      if (value != null) {
+        ValueIndex index = this.index;
+        if (index != null) {
+          index.remove(value);
+        }
+        return (T) value;
+      }
+      if (!next(ring)) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Removes and returns the head of the queue, waiting for an element if
+   * the queue is empty.
+   *
+   * @param timeout The maximum time to wait in milliseconds. If the timeout is
+   *        <code>0</code> the handler is called immediately.
+   * @param resultHandler A handler to be called with the head of the queue, or
+   *        with <code>null</code> if no element is offered before the timeout.
+   */
+  public void take(long timeout, Handler<AsyncResult<T>> resultHandler) {
+    T value = poll();
+    if (value == null && timeout > 0) {
+      waiters.await(vertx, timeout, resultHandler);
+      // An element may have been offered after the poll but before the
+      // waiter was added, in which case the producer did not see the waiter.
+      dispatch();
+      return;
     }
-    return value;
+    new DefaultFutureResult<T>(value).setHandler(resultHandler);
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public T element() {
-    T value = (T) map.get(currentIndex);
+    T value = peek();
     if (value != null) {
       return value;
     } else {
@@ -126,47 +368,418 @@ public class SharedDataQueue<T> implements Queue<T> {
   @Override
   @SuppressWarnings("unchecked")
   public T peek() {
-    return (T) map.get(currentIndex);
+    Object value = first();
+    return value != null ? SharedValues.copy((T) value) : null;
+  }
+
+  /**
+   * Returns the head of the queue without copying it.
+   */
+  private Object first() {
+    Object returned = this.returned.peekFirst();
+    if (returned != null) {
+      return returned;
+    }
+    while (true) {
+      Ring ring = head.get();
+      Object value = ring.peek();
+      if (value != null) {
+        return value;
+      }
+      if (!next(ring)) {
+        return null;
+      }
+    }
   }
 
   @Override
   public boolean offer(T e) {
-    int index = currentIndex + map.size() - 1;
-    map.put(index, e);
+    push(SharedValues.copy(e));
+    dispatch();
     return true;
   }
 
   @Override
   public boolean add(T e) {
-    int index = currentIndex + map.size() - 1;
-    map.put(index, e);
-    return true;
+    return offer(e);
   }
 
   @Override
   public boolean remove(Object o) {
-    synchronized (map) {
-      Iterator<Map.Entry<Integer, Object>> iter = map.entrySet().iterator();
-      while (iter.hasNext()) {
-        Map.Entry<Integer, Object> entry = iter.next();
-        if (entry.getValue().equals(o)) {
-          iter.remove();
-          int index = entry.getKey()+1;
-          while (map.containsKey(index)) {
-            map.put(index-1, map.remove(index));
-            index++;
-          }
-          return true;
+    ValueIndex index = this.index;
+    if (index != null && !index.contains(o)) {
+      return false;
+    }
+    if (!returned.isEmpty() && returned.removeFirstOccurrence(o)) {
+      if (index != null) {
+        index.remove(o);
+      }
+      return true;
+    }
+    for (Ring ring = head.get(); ring != null; ring = ring.next.get()) {
+      if (ring.remove(o)) {
+        if (index != null) {
+          index.remove(o);
         }
+        return true;
       }
-      return false;
     }
+    return false;
   }
 
   @Override
   public void clear() {
-    map.clear();
-    map.put(-1, currentIndex);
+    while (poll() != null);
+  }
+
+  /**
+   * Indexes an element and adds it to the tail of the queue.
+   */
+  private void push(Object value) {
+    ValueIndex index = this.index;
+    if (index != null) {
+      index.add(value);
+    }
+    enqueue(value);
+  }
+
+  /**
+   * Adds an element to the tail of the queue.
+   */
+  private void enqueue(Object value) {
+    while (true) {
+      Ring ring = tail.get();
+      if (ring.offer(value)) {
+        return;
+      }
+      advance(ring);
+    }
+  }
+
+  /**
+   * Hands elements to waiting consumers for as long as there are both
+   * waiting consumers and elements. Producers call this after adding
+   * elements and consumers call this after they start waiting, so one of
+   * the two always sees the other. A waiter is claimed before an element is
+   * taken, so elements never have to be returned to the queue out of order.
+   */
+  private void dispatch() {
+    while (!waiters.isEmpty()) {
+      QueueWaiters.Waiter<T> waiter = waiters.claim();
+      if (waiter == null) {
+        return;
+      }
+      T value = poll();
+      if (value != null) {
+        waiters.complete(vertx, waiter, value);
+      } else {
+        // A producer may have added an element after the poll without seeing
+        // the claimed waiter, so the queue is checked again once the waiter
+        // has been returned.
+        waiters.release(waiter);
+        if (first() == null) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Moves the tail past a ring that has been closed to producers, linking
+   * a new ring if one has not already been linked.
+   */
+  private void advance(Ring ring) {
+    Ring next = ring.next.get();
+    if (next == null) {
+      ring.next.compareAndSet(null, new Ring(Math.min(ring.capacity() * 2, MAX_CAPACITY)));
+      next = ring.next.get();
+    }
+    tail.compareAndSet(ring, next);
+  }
+
+  /**
+   * Moves the head past a ring once it has been closed and fully drained.
+   *
+   * @return Indicates whether the head is now at a later ring.
+   */
+  private boolean next(Ring ring) {
+    Ring next = ring.next.get();
+    if (next == null || !ring.isDrained()) {
+      return false;
+    }
+    head.compareAndSet(ring, next);
+    return true;
+  }
+
+  /**
+   * Copies elements to a list, skipping the given number of elements and
+   * stopping once the list holds <code>max</code> elements.
+   *
+   * @return The number of elements that remain to be skipped.
+   */
+  private int copyTo(Collection<T> c, List<T> values, int skip, int max) {
+    for (T value : c) {
+      if (values.size() >= max) {
+        break;
+      } else if (skip > 0) {
+        skip--;
+      } else {
+        values.add(value);
+      }
+    }
+    return skip;
+  }
+
+  /**
+   * A bounded lock-free ring buffer.<p>
+   *
+   * A slot whose sequence equals a tail sequence is free for that producer,
+   * and a slot whose sequence is one past a head sequence holds an element
+   * for that consumer. Removed elements are replaced with a marker that
+   * consumers skip.
+   */
+  private final class Ring {
+    private final int mask;
+    private final AtomicReferenceArray<Object> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicReference<Ring> next = new AtomicReference<>();
+
+    private Ring(int capacity) {
+      mask = capacity - 1;
+      items = new AtomicReferenceArray<>(capacity);
+      sequences = new AtomicLongArray(capacity);
+      for (int i = 0; i < capacity; i++) {
+        sequences.set(i, i);
+      }
+    }
+
+    private int capacity() {
+      return mask + 1;
+    }
+
+    /**
+     * Returns the number of slots between the head and the tail.
+     */
+    private long size() {
+      return Math.max((tail.get() & ~CLOSED) - head.get(), 0);
+    }
+
+    /**
+     * Returns a boolean indicating whether the ring is closed and every
+     * slot claimed by a producer has been consumed.
+     */
+    private boolean isDrained() {
+      long position = tail.get();
+      return (position & CLOSED) != 0 && head.get() == (position & ~CLOSED);
+    }
+
+    /**
+     * Adds an element to the ring, closing the ring if it is full.
+     *
+     * @return Indicates whether the element was added.
+     */
+    private boolean offer(Object value) {
+      while (true) {
+        long position = tail.get();
+        if ((position & CLOSED) != 0) {
+          return false;
+        }
+        int index = (int) position & mask;
+        long difference = sequences.get(index) - position;
+        if (difference == 0) {
+          if (tail.compareAndSet(position, position + 1)) {
+            items.set(index, value);
+            sequences.set(index, position + 1);
+            return true;
+          }
+        } else if (difference < 0) {
+          tail.compareAndSet(position, position | CLOSED);
+        }
+      }
+    }
+
+    /**
+     * Adds as many elements as fit in the ring with a single tail advance.
+     *
+     * @return The number of elements added, which is <code>0</code> if the
+     *         ring has been closed.
+     */
+    private int offerAll(Object[] values, int from) {
+      while (true) {
+        long position = tail.get();
+        if ((position & CLOSED) != 0) {
+          return 0;
+        }
+        int count = 0;
+        while (from + count < values.length && count <= mask && sequences.get((int) (position + count) & mask) == position + count) {
+          count++;
+        }
+        if (count == 0) {
+          if (sequences.get((int) position & mask) < position) {
+            tail.compareAndSet(position, position | CLOSED);
+          }
+          continue;
+        }
+        if (tail.compareAndSet(position, position + count)) {
+          for (int i = 0; i < count; i++) {
+            int index = (int) (position + i) & mask;
+            items.set(index, values[from + i]);
+            sequences.set(index, position + i + 1);
+          }
+          return count;
+        }
+      }
+    }
+
+    /**
+     * Removes the element at the head of the ring.
+     *
+     * @return The element, or <code>null</code> if the ring is empty.
+     */
+    private Object poll() {
+      while (true) {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) - (position + 1) < 0) {
+          return null;
+        }
+        if (head.compareAndSet(position, position + 1)) {
+          Object value = release(index, position);
+          if (value != REMOVED) {
+            return value;
+          }
+        }
+      }
+    }
+
+    /**
+     * Removes as many ready elements as are wanted with a single head advance.
+     *
+     * @return The number of elements added to the collection.
+     */
+    private int drainTo(Collection<Object> c, int max) {
+      int drained = 0;
+      while (drained < max) {
+        long position = head.get();
+        int count = 0;
+        while (count < max - drained && count <= mask && sequences.get((int) (position + count) & mask) == position + count + 1) {
+          count++;
+        }
+        if (count == 0) {
+          break;
+        }
+        if (head.compareAndSet(position, position + count)) {
+          for (int i = 0; i < count; i++) {
+            Object value = release((int) (position + i) & mask, position + i);
+            if (value != REMOVED) {
+              c.add(value);
+              drained++;
+            }
+          }
+        }
+      }
+      return drained;
+    }
+
+    /**
+     * Takes the element out of a consumed slot and frees the slot for the next lap.
+     */
+    private Object release(int index, long position) {
+      // The element is swapped out atomically so that a concurrent remove
+      // either marks it before it is taken or fails to find it.
+      Object value = items.getAndSet(index, null);
+      sequences.set(index, position + mask + 1);
+      if (value == REMOVED) {
+        removed.decrementAndGet();
+      }
+      return value;
+    }
+
+    /**
+     * Returns the element at the head of the ring without removing it,
+     * consuming any removed elements at the head.
+     */
+    private Object peek() {
+      while (true) {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) - (position + 1) < 0) {
+          return null;
+        }
+        Object value = items.get(index);
+        if (head.get() != position) {
+          continue;
+        }
+        if (value != REMOVED) {
+          return value;
+        }
+        if (head.compareAndSet(position, position + 1)) {
+          release(index, position);
+        }
+      }
+    }
+
+    /**
+     * Returns the sequence of the first element equal to the given object.
+     */
+    private long indexOf(Object o) {
+      long end = tail.get() & ~CLOSED;
+      for (long position = head.get(); position < end; position++) {
+        int index = (int) position & mask;
+        if (sequences.get(index) == position + 1) {
+          Object value = items.get(index);
+          if (value != REMOVED && value != null && value.equals(o)) {
+            return position;
+          }
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Replaces the first element equal to the given object with the removed marker.
+     */
+    private boolean remove(Object o) {
+      long end = tail.get() & ~CLOSED;
+      for (long position = head.get(); position < end; position++) {
+        int index = (int) position & mask;
+        if (sequences.get(index) == position + 1) {
+          Object value = items.get(index);
+          if (value != REMOVED && value != null && value.equals(o) && items.compareAndSet(index, value, REMOVED)) {
+            removed.incrementAndGet();
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Copies the elements in the ring to a list, skipping the given number
+     * of elements and stopping once the list holds <code>max</code> elements.
+     *
+     * @return The number of elements that remain to be skipped.
+     */
+    @SuppressWarnings("unchecked")
+    private int copyTo(List<T> values, int skip, int max) {
+      long end = tail.get() & ~CLOSED;
+      for (long position = head.get(); position < end && values.size() < max; position++) {
+        int index = (int) position & mask;
+        if (sequences.get(index) == position + 1) {
+          Object value = items.get(index);
+          if (value != REMOVED && value != null) {
+            if (skip > 0) {
+              skip--;
+            } else {
+              values.add((T) value);
+            }
+          }
+        }
+      }
+      return skip;
+    }
   }
 
 }
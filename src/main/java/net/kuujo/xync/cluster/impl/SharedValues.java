@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.shareddata.Shareable;
+
+/**
+ * Type checks and copies for values held in shared data structures.<p>
+ *
+ * Lists and queues keep their values inside {@link Shareable} containers
+ * rather than as entries of a Vert.x shared map, so they apply the same
+ * rules as the shared map themselves: only immutable types, byte arrays,
+ * buffers, JSON and {@link Shareable} values may be stored, and mutable
+ * values are copied both when they are stored and when they are read so
+ * that verticles never share a mutable object.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class SharedValues {
+
+  private SharedValues() {
+  }
+
+  /**
+   * Checks that a value may be stored in shared data and returns a copy of
+   * the value if it is mutable.
+   *
+   * @param value The value to check.
+   * @return The value or a copy of the value.
+   * @throws IllegalArgumentException If the value cannot be shared.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> T copy(T value) {
+    if (value == null) {
+      throw new NullPointerException("Shared data values cannot be null.");
+    } else if (value instanceof String || value instanceof Integer || value instanceof Long
+        || value instanceof Double || value instanceof Float || value instanceof Short
+        || value instanceof Byte || value instanceof Boolean || value instanceof Character
+        || value instanceof Shareable) {
+      return value;
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      return (T) Arrays.copyOf(bytes, bytes.length);
+    } else if (value instanceof Buffer) {
+      return (T) ((Buffer) value).copy();
+    } else if (value instanceof JsonObject) {
+      return (T) ((JsonObject) value).copy();
+    } else if (value instanceof JsonArray) {
+      return (T) ((JsonArray) value).copy();
+    }
+    throw new IllegalArgumentException("Invalid type for shared data: " + value.getClass().getName());
+  }
+
+  /**
+   * Copies each mutable value in an array in place.
+   *
+   * @param values The values to copy.
+   * @return The array of values.
+   */
+  static Object[] copyAll(Object[] values) {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = copy(values[i]);
+    }
+    return values;
+  }
+
+  /**
+   * Copies each mutable value in a list in place.
+   *
+   * @param values The values to copy.
+   * @return The list of values.
+   */
+  static <T> List<T> copyAll(List<T> values) {
+    for (int i = 0; i < values.size(); i++) {
+      values.set(i, copy(values.get(i)));
+    }
+    return values;
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A multiset of the values in a list or queue.<p>
+ *
+ * The index counts the occurrences of each value so that membership can be
+ * checked without scanning the collection. Values are added to the index
+ * before they are added to the collection and removed from the index after
+ * they are removed from the collection, so a value that is in the collection
+ * is always in the index.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class ValueIndex {
+  private final ConcurrentMap<Object, Integer> counts = new ConcurrentHashMap<>();
+
+  /**
+   * Adds an occurrence of a value.
+   */
+  void add(Object value) {
+    while (true) {
+      Integer count = counts.get(value);
+      if (count == null ? counts.putIfAbsent(value, 1) == null : counts.replace(value, count, count + 1)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Removes an occurrence of a value.
+   */
+  void remove(Object value) {
+    while (true) {
+      Integer count = counts.get(value);
+      if (count == null || (count == 1 ? counts.remove(value, count) : counts.replace(value, count, count - 1))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether any occurrence of a value is indexed.
+   */
+  boolean contains(Object value) {
+    return value != null && counts.containsKey(value);
+  }
+
+  /**
+   * Removes all values from the index.
+   */
+  void clear() {
+    counts.clear();
+  }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.data;
+
+import java.nio.charset.StandardCharsets;
+
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Compact binary protocol for data operations.<p>
+ *
+ * A request is a single opcode byte followed by the length-prefixed name
+ * of the data structure and any operation arguments. Map keys are
+ * length-prefixed strings. Values are written as a type tag followed by
+ * the value. A reply is a single status byte followed by a typed result
+ * value or, for errors, a length-prefixed message.<p>
+ *
+ * Strings are UTF-8 encoded and prefixed with their length in bytes as
+ * an unsigned short for names and keys or an int for values and messages.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public final class BinaryProtocol {
+  public static final byte KEY_GET = 0x01;
+  public static final byte KEY_SET = 0x02;
+  public static final byte KEY_DELETE = 0x03;
+  public static final byte MAP_GET = 0x10;
+  public static final byte MAP_PUT = 0x11;
+  public static final byte MAP_REMOVE = 0x12;
+  public static final byte MAP_CONTAINS = 0x13;
+  public static final byte COUNTER_GET = 0x20;
+  public static final byte COUNTER_INCREMENT = 0x21;
+  public static final byte COUNTER_DECREMENT = 0x22;
+  public static final byte COUNTER_ADD = 0x23;
+
+  public static final byte STATUS_OK = 0;
+  public static final byte STATUS_ERROR = 1;
+
+  public static final byte TYPE_NULL = 0;
+  public static final byte TYPE_STRING = 1;
+  public static final byte TYPE_INT = 2;
+  public static final byte TYPE_LONG = 3;
+  public static final byte TYPE_DOUBLE = 4;
+  public static final byte TYPE_BOOLEAN = 5;
+  public static final byte TYPE_BYTES = 6;
+  public static final byte TYPE_JSON_OBJECT = 7;
+  public static final byte TYPE_JSON_ARRAY = 8;
+
+  private BinaryProtocol() {
+  }
+
+  /**
+   * Creates a request buffer.
+   *
+   * @param opcode The operation code.
+   * @param name The name of the data structure.
+   * @return A request buffer to which operation arguments can be appended.
+   */
+  public static Buffer createRequest(byte opcode, String name) {
+    Buffer buffer = new Buffer(32).appendByte(opcode);
+    writeShortString(buffer, name);
+    return buffer;
+  }
+
+  /**
+   * Creates a successful reply buffer.
+   *
+   * @param result The operation result.
+   * @return A reply buffer.
+   */
+  public static Buffer createReply(Object result) {
+    Buffer buffer = new Buffer(16).appendByte(STATUS_OK);
+    writeValue(buffer, result);
+    return buffer;
+  }
+
+  /**
+   * Creates an error reply buffer.
+   *
+   * @param message The error message.
+   * @return A reply buffer.
+   */
+  public static Buffer createError(String message) {
+    Buffer buffer = new Buffer(32).appendByte(STATUS_ERROR);
+    writeString(buffer, message != null ? message : "");
+    return buffer;
+  }
+
+  /**
+   * Writes a string prefixed with an unsigned short length.
+   */
+  public static Buffer writeShortString(Buffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IllegalArgumentException("String too long");
+    }
+    return buffer.appendShort((short) bytes.length).appendBytes(bytes);
+  }
+
+  /**
+   * Writes a string prefixed with an int length.
+   */
+  public static Buffer writeString(Buffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    return buffer.appendInt(bytes.length).appendBytes(bytes);
+  }
+
+  /**
+   * Writes a typed value.
+   */
+  public static Buffer writeValue(Buffer buffer, Object value) {
+    if (value == null) {
+      buffer.appendByte(TYPE_NULL);
+    } else if (value instanceof String) {
+      writeString(buffer.appendByte(TYPE_STRING), (String) value);
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      buffer.appendByte(TYPE_INT).appendInt(((Number) value).intValue());
+    } else if (value instanceof Long) {
+      buffer.appendByte(TYPE_LONG).appendLong((Long) value);
+    } else if (value instanceof Double || value instanceof Float) {
+      buffer.appendByte(TYPE_DOUBLE).appendDouble(((Number) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      buffer.appendByte(TYPE_BOOLEAN).appendByte((byte) ((Boolean) value ? 1 : 0));
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      buffer.appendByte(TYPE_BYTES).appendInt(bytes.length).appendBytes(bytes);
+    } else if (value instanceof JsonObject) {
+      writeString(buffer.appendByte(TYPE_JSON_OBJECT), ((JsonObject) value).encode());
+    } else if (value instanceof JsonArray) {
+      writeString(buffer.appendByte(TYPE_JSON_ARRAY), ((JsonArray) value).encode());
+    } else {
+      throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName());
+    }
+    return buffer;
+  }
+
+  /**
+   * Sequential reader for binary requests and replies.
+   */
+  public static class Reader {
+    private final Buffer buffer;
+    private int position;
+
+    public Reader(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * Returns a boolean indicating whether the buffer has unread bytes.
+     */
+    public boolean hasRemaining() {
+      return position < buffer.length();
+    }
+
+    /**
+     * Reads a single byte.
+     */
+    public byte readByte() {
+      return buffer.getByte(position++);
+    }
+
+    /**
+     * Reads a long.
+     */
+    public long readLong() {
+      long value = buffer.getLong(position);
+      position += 8;
+      return value;
+    }
+
+    /**
+     * Reads a string prefixed with an unsigned short length.
+     */
+    public String readShortString() {
+      int length = buffer.getShort(position) & 0xFFFF;
+      position += 2;
+      return readString(length);
+    }
+
+    /**
+     * Reads a string prefixed with an int length.
+     */
+    public String readString() {
+      int length = buffer.getInt(position);
+      position += 4;
+      return readString(length);
+    }
+
+    private String readString(int length) {
+      String value = new String(buffer.getBytes(position, position + length), StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+
+    /**
+     * Reads a typed value.
+     */
+    public Object readValue() {
+      byte type = readByte();
+      switch (type) {
+        case TYPE_NULL:
+          return null;
+        case TYPE_STRING:
+          return readString();
+        case TYPE_INT:
+          int intValue = buffer.getInt(position);
+          position += 4;
+          return intValue;
+        case TYPE_LONG:
+          return readLong();
+        case TYPE_DOUBLE:
+          double doubleValue = buffer.getDouble(position);
+          position += 8;
+          return doubleValue;
+        case TYPE_BOOLEAN:
+          return readByte() != 0;
+        case TYPE_BYTES:
+          int length = buffer.getInt(position);
+          position += 4;
+          byte[] bytes = buffer.getBytes(position, position + length);
+          position += length;
+          return bytes;
+        case TYPE_JSON_OBJECT:
+          return new JsonObject(readString());
+        case TYPE_JSON_ARRAY:
+          return new JsonArray(readString());
+        default:
+          throw new IllegalArgumentException("Invalid value type " + type);
+      }
+    }
+  }
+
+}
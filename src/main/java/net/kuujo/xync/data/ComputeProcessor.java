@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.data;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Named processor for the map <code>compute</code> action.<p>
+ *
+ * Compute processors are registered by name with the {@link DataRegistry}
+ * and are run on the node that owns each computed entry. Processors are
+ * serialized and sent to the owner, so they must be available on the class
+ * path of every node and should not hold state.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface ComputeProcessor extends Serializable {
+
+  /**
+   * Processes a map entry.
+   *
+   * @param entry The entry to process. Setting the entry value to <code>null</code>
+   *        removes the entry.
+   * @param args The arguments given in the compute request.
+   * @return The result to send back in the compute reply.
+   */
+  Object process(Map.Entry<Object, Object> entry, JsonObject args);
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of data action handlers.<p>
+ *
+ * Handlers are keyed by data type and action. Each message is resolved
+ * to a single handler with two hash lookups and no allocation. The
+ * registry also holds the named processors used by the map
+ * <code>compute</code> action.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class DataRegistry {
+  private final Map<String, Map<String, DataHandler>> handlers = new HashMap<>();
+  private final Map<String, ComputeProcessor> processors = new HashMap<>();
+
+  /**
+   * Registers a handler for a data type and action. Any handler already
+   * registered for the type and action is replaced.
+   *
+   * @param type The data type.
+   * @param action The action.
+   * @param handler The handler for the action.
+   * @return The data registry.
+   */
+  public DataRegistry register(String type, String action, DataHandler handler) {
+    Map<String, DataHandler> actions = handlers.get(type);
+    if (actions == null) {
+      actions = new HashMap<>();
+      handlers.put(type, actions);
+    }
+    actions.put(action, handler);
+    return this;
+  }
+
+  /**
+   * Unregisters the handler for a data type and action.
+   *
+   * @param type The data type.
+   * @param action The action.
+   * @return The data registry.
+   */
+  public DataRegistry unregister(String type, String action) {
+    Map<String, DataHandler> actions = handlers.get(type);
+    if (actions != null) {
+      actions.remove(action);
+      if (actions.isEmpty()) {
+        handlers.remove(type);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Returns a boolean indicating whether any handlers are registered for a data type.
+   *
+   * @param type The data type.
+   * @return Indicates whether the data type is registered.
+   */
+  public boolean hasType(String type) {
+    return handlers.containsKey(type);
+  }
+
+  /**
+   * Resolves the handler for a data type and action.
+   *
+   * @param type The data type.
+   * @param action The action.
+   * @return The registered handler, or <code>null</code> if no handler is registered.
+   */
+  public DataHandler lookup(String type, String action) {
+    Map<String, DataHandler> actions = handlers.get(type);
+    return actions != null ? actions.get(action) : null;
+  }
+
+  /**
+   * Registers a named compute processor. Any processor already registered
+   * with the name is replaced.
+   *
+   * @param name The processor name.
+   * @param processor The processor.
+   * @return The data registry.
+   */
+  public DataRegistry registerProcessor(String name, ComputeProcessor processor) {
+    processors.put(name, processor);
+    return this;
+  }
+
+  /**
+   * Unregisters a named compute processor.
+   *
+   * @param name The processor name.
+   * @return The data registry.
+   */
+  public DataRegistry unregisterProcessor(String name) {
+    processors.remove(name);
+    return this;
+  }
+
+  /**
+   * Resolves a named compute processor.
+   *
+   * @param name The processor name.
+   * @return The registered processor, or <code>null</code> if no processor is registered.
+   */
+  public ComputeProcessor lookupProcessor(String name) {
+    return processors.get(name);
+  }
+
+}
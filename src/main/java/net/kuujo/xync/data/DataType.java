@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.data;
+
+import net.kuujo.xync.cluster.ClusterManager;
+
+/**
+ * Pluggable data type.<p>
+ *
+ * Data types are listed by class name in the <code>dataTypes</code> module
+ * configuration option and must have a public no-argument constructor.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface DataType {
+
+  /**
+   * Registers the data type's action handlers.
+   *
+   * @param registry The registry with which to register handlers.
+   * @param manager The cluster manager.
+   * @param cluster The cluster address, which should be used to prefix the
+   *        names of data structures created by the data type.
+   */
+  void register(DataRegistry registry, ClusterManager manager, String cluster);
+
+}
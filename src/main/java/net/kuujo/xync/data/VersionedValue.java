@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.data;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Version-stamped key value.<p>
+ *
+ * Values of the <code>key</code> data type are stored with a version stamp
+ * that changes on each write, allowing keys to be updated with a
+ * compare-and-set on the version rather than on the value. Stamps are
+ * random rather than sequential, so a key can be written without first
+ * reading its current version, and a key that is deleted and set again
+ * never reuses a stamp a client may still hold. Stamps fit in 53 bits so
+ * they can be represented exactly as JSON numbers.<p>
+ *
+ * A stamped value is stored as a string holding a prefix and a JSON object
+ * with the version and the value. Stored keys are therefore plain strings,
+ * which any Hazelcast member can read without Xync classes and which Vert.x
+ * shared data copies and type checks like any other value. Values stored
+ * without the prefix, such as keys written before values were stamped, are
+ * read as they are with version <code>1</code>.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public final class VersionedValue {
+  private static final String PREFIX = "xync:v1:";
+  private static final long MAX_VERSION = (1L << 53) - 1;
+  private final Object value;
+  private final long version;
+
+  private VersionedValue(Object value, long version) {
+    this.value = value;
+    this.version = version;
+  }
+
+  /**
+   * Returns the value.
+   *
+   * @return The value.
+   */
+  public Object value() {
+    return value;
+  }
+
+  /**
+   * Returns the value version.
+   *
+   * @return The value version.
+   */
+  public long version() {
+    return version;
+  }
+
+  /**
+   * Returns a new version stamp.
+   *
+   * @return A random version stamp. Versions <code>0</code> and <code>1</code>
+   *         are never returned.
+   */
+  public static long nextVersion() {
+    long version;
+    do {
+      version = ThreadLocalRandom.current().nextLong() & MAX_VERSION;
+    } while (version <= 1);
+    return version;
+  }
+
+  /**
+   * Encodes a value with a version stamp for storage.<p>
+   *
+   * Long values and byte arrays are tagged so that they are decoded with
+   * the same type rather than as the nearest JSON type.
+   *
+   * @param value The value to store.
+   * @param version The value version.
+   * @return The stored key.
+   */
+  public static String encode(Object value, long version) {
+    JsonObject json = new JsonObject().putNumber("version", version);
+    if (value instanceof Long) {
+      json.putNumber("long", (Long) value);
+    } else if (value instanceof byte[]) {
+      json.putBinary("binary", (byte[]) value);
+    } else {
+      json.putValue("value", value);
+    }
+    return PREFIX + json.encode();
+  }
+
+  /**
+   * Decodes a stored key.
+   *
+   * @param stored The stored key, which may be <code>null</code> or a value
+   *        written without a version.
+   * @return The decoded key. Keys that do not exist have version <code>0</code>
+   *         and values written without a version have version <code>1</code>.
+   */
+  public static VersionedValue decode(Object stored) {
+    if (stored == null) {
+      return new VersionedValue(null, 0);
+    } else if (!(stored instanceof String) || !((String) stored).startsWith(PREFIX)) {
+      return new VersionedValue(stored, 1);
+    }
+    JsonObject json = new JsonObject(((String) stored).substring(PREFIX.length()));
+    long version = json.getLong("version");
+    if (json.containsField("long")) {
+      return new VersionedValue(json.getLong("long"), version);
+    } else if (json.containsField("binary")) {
+      return new VersionedValue(json.getBinary("binary"), version);
+    }
+    return new VersionedValue(json.getValue("value"), version);
+  }
+
+  /**
+   * Returns the value of a stored key.
+   *
+   * @param stored The stored key, which may be <code>null</code> or a value
+   *        written without a version.
+   * @return The key value.
+   */
+  public static Object valueOf(Object stored) {
+    return decode(stored).value;
+  }
+
+  /**
+   * Returns the version of a stored key.
+   *
+   * @param stored The stored key, which may be <code>null</code> or a value
+   *        written without a version.
+   * @return The key version. Keys that do not exist have version <code>0</code>
+   *         and values written without a version have version <code>1</code>.
+   */
+  public static long versionOf(Object stored) {
+    return decode(stored).version;
+  }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.kuujo.xync.cluster.ClusterManager;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Node-local write-behind buffer for counters.<p>
+ *
+ * Buffered updates are accumulated locally and flushed to the cluster
+ * counter as a single atomic add, either periodically or once a counter
+ * has received a given number of updates. Values read from the cluster
+ * do not reflect updates that have not yet been flushed.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class CounterBuffer {
+  private final Vertx vertx;
+  private final ClusterManager manager;
+  private final long flushInterval;
+  private final long flushThreshold;
+  private final ConcurrentMap<String, StripedAccumulator> counters = new ConcurrentHashMap<>();
+  private final AtomicLong flushes = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private long timerID;
+
+  /**
+   * Creates a counter buffer.
+   *
+   * @param vertx The current Vert.x instance.
+   * @param manager The cluster manager to which to flush counters.
+   * @param flushInterval The interval in milliseconds at which to flush counters.
+   * @param flushThreshold The number of updates after which a counter is flushed.
+   */
+  public CounterBuffer(Vertx vertx, ClusterManager manager, long flushInterval, long flushThreshold) {
+    this.vertx = vertx;
+    this.manager = manager;
+    this.flushInterval = flushInterval;
+    this.flushThreshold = flushThreshold;
+  }
+
+  /**
+   * Starts the periodic flush timer.
+   */
+  public void start() {
+    timerID = vertx.setPeriodic(flushInterval, new Handler<Long>() {
+      @Override
+      public void handle(Long timerID) {
+        flush();
+      }
+    });
+  }
+
+  /**
+   * Adds a value to a buffered counter.
+   *
+   * @param name The counter name.
+   * @param delta The value to add.
+   */
+  public void add(String name, long delta) {
+    StripedAccumulator accumulator = counters.get(name);
+    if (accumulator == null) {
+      accumulator = new StripedAccumulator();
+      StripedAccumulator existing = counters.putIfAbsent(name, accumulator);
+      if (existing != null) {
+        accumulator = existing;
+      }
+    }
+    if (accumulator.add(delta) >= flushThreshold) {
+      flush(name, accumulator);
+    }
+  }
+
+  /**
+   * Returns the unflushed value of a buffered counter on this node.
+   *
+   * @param name The counter name.
+   * @return The sum of all updates that have not yet been flushed.
+   */
+  public long pending(String name) {
+    StripedAccumulator accumulator = counters.get(name);
+    return accumulator != null ? accumulator.sum() : 0;
+  }
+
+  /**
+   * Flushes all buffered counters.
+   */
+  public void flush() {
+    for (Map.Entry<String, StripedAccumulator> entry : counters.entrySet()) {
+      flush(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Flushes a single counter. If the flush fails the delta is returned
+   * to the buffer to be retried on the next flush.
+   */
+  private void flush(String name, final StripedAccumulator accumulator) {
+    final long delta = accumulator.sumThenReset();
+    if (delta != 0) {
+      manager.getAsyncCounter(name).addAndGet(delta, new Handler<AsyncResult<Long>>() {
+        @Override
+        public void handle(AsyncResult<Long> result) {
+          if (result.failed()) {
+            failures.incrementAndGet();
+            accumulator.add(delta);
+          } else {
+            flushes.incrementAndGet();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns buffer statistics.
+   *
+   * @return A JSON object of buffer statistics.
+   */
+  public JsonObject getStats() {
+    int pending = 0;
+    for (StripedAccumulator accumulator : counters.values()) {
+      if (accumulator.sum() != 0) {
+        pending++;
+      }
+    }
+    return new JsonObject()
+        .putNumber("counters", counters.size())
+        .putNumber("pending", pending)
+        .putNumber("flushes", flushes.get())
+        .putNumber("failures", failures.get());
+  }
+
+  /**
+   * Stops the flush timer and flushes all buffered counters.<p>
+   *
+   * The final flush only completes before this returns if the counters are
+   * updated synchronously, so the data executor should be closed first.
+   */
+  public void close() {
+    vertx.cancelTimer(timerID);
+    flush();
+  }
+
+}
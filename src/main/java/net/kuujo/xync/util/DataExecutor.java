@@ -0,0 +1,213 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxException;
+import org.vertx.java.core.impl.DefaultFutureResult;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Shared data executor.<p>
+ *
+ * The data executor determines where shared data operations are run.
+ * In <code>event-loop</code> mode operations are run directly on the
+ * calling thread. In <code>worker</code> mode operations are run on a
+ * bounded pool of worker threads and results are delivered back to the
+ * Vert.x context from which the operation was submitted, so slow data
+ * operations never block the event loop.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class DataExecutor {
+  public static final String EVENT_LOOP = "event-loop";
+  public static final String WORKER = "worker";
+
+  private final Vertx vertx;
+  private final String mode;
+  private final ThreadPoolExecutor pool;
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong totalWait = new AtomicLong();
+  private final AtomicLong maxWait = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * Creates an event loop data executor.
+   *
+   * @param vertx The current Vert.x instance.
+   */
+  public DataExecutor(Vertx vertx) {
+    this.vertx = vertx;
+    this.mode = EVENT_LOOP;
+    this.pool = null;
+  }
+
+  /**
+   * Creates a worker data executor.
+   *
+   * @param vertx The current Vert.x instance.
+   * @param threads The number of worker threads.
+   * @param queueSize The maximum number of operations waiting for a worker.
+   */
+  public DataExecutor(Vertx vertx, int threads, int queueSize) {
+    this.vertx = vertx;
+    this.mode = WORKER;
+    this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+      private final AtomicInteger counter = new AtomicInteger();
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, String.format("xync-data-%d", counter.incrementAndGet()));
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Returns the execution mode.
+   *
+   * @return The execution mode, either <code>event-loop</code> or <code>worker</code>.
+   */
+  public String mode() {
+    return mode;
+  }
+
+  /**
+   * Executes a data operation.
+   *
+   * @param task The operation to execute.
+   * @param resultHandler A handler to be called with the operation result.
+   *        The handler is always called on the submitting context.
+   */
+  public <T> void execute(final Callable<T> task, final Handler<AsyncResult<T>> resultHandler) {
+    if (pool == null || closed) {
+      T result;
+      try {
+        result = task.call();
+      } catch (Exception e) {
+        new DefaultFutureResult<T>(e).setHandler(resultHandler);
+        return;
+      }
+      new DefaultFutureResult<T>(result).setHandler(resultHandler);
+    } else {
+      final Context context = vertx.currentContext();
+      final long submitted = System.nanoTime();
+      try {
+        pool.execute(new Runnable() {
+          @Override
+          public void run() {
+            recordWait(System.nanoTime() - submitted);
+            DefaultFutureResult<T> future;
+            try {
+              future = new DefaultFutureResult<T>(task.call());
+            } catch (Exception e) {
+              future = new DefaultFutureResult<T>(e);
+            }
+            completed.incrementAndGet();
+            complete(context, future, resultHandler);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        rejected.incrementAndGet();
+        new DefaultFutureResult<T>(new VertxException("Data executor queue is full.")).setHandler(resultHandler);
+      }
+    }
+  }
+
+  /**
+   * Completes an asynchronous operation on the given context.
+   *
+   * @param context The context on which to call the handler, or <code>null</code>
+   *        if the handler should be called on the current thread.
+   * @param future The operation result.
+   * @param resultHandler The handler to call.
+   */
+  public <T> void complete(Context context, final DefaultFutureResult<T> future, final Handler<AsyncResult<T>> resultHandler) {
+    if (context != null) {
+      context.runOnContext(new Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+          future.setHandler(resultHandler);
+        }
+      });
+    } else {
+      future.setHandler(resultHandler);
+    }
+  }
+
+  /**
+   * Records time spent waiting for a worker.
+   */
+  private void recordWait(long wait) {
+    totalWait.addAndGet(wait);
+    long max = maxWait.get();
+    while (wait > max && !maxWait.compareAndSet(max, wait)) {
+      max = maxWait.get();
+    }
+  }
+
+  /**
+   * Returns executor statistics.
+   *
+   * @return A JSON object of executor statistics.
+   */
+  public JsonObject getStats() {
+    JsonObject stats = new JsonObject().putString("mode", mode);
+    if (pool != null) {
+      long count = completed.get();
+      stats.putNumber("threads", pool.getMaximumPoolSize());
+      stats.putNumber("active", pool.getActiveCount());
+      stats.putNumber("queued", pool.getQueue().size());
+      stats.putNumber("capacity", pool.getQueue().size() + pool.getQueue().remainingCapacity());
+      stats.putNumber("completed", count);
+      stats.putNumber("rejected", rejected.get());
+      stats.putObject("wait", new JsonObject()
+          .putNumber("total", TimeUnit.NANOSECONDS.toMillis(totalWait.get()))
+          .putNumber("max", TimeUnit.NANOSECONDS.toMillis(maxWait.get()))
+          .putNumber("average", count > 0 ? TimeUnit.NANOSECONDS.toMicros(totalWait.get() / count) / 1000.0 : 0));
+    }
+    return stats;
+  }
+
+  /**
+   * Shuts down the executor.<p>
+   *
+   * Operations that were already submitted are still run by the workers.
+   * Operations submitted once the executor has been closed are run on the
+   * calling thread, so operations run while a verticle is being stopped
+   * complete before the verticle is stopped rather than being rejected.
+   */
+  public void close() {
+    closed = true;
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+}
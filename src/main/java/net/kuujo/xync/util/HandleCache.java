@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Node-local handle cache.<p>
+ *
+ * The handle cache maps short numeric handles to resolved data structures
+ * so that requests can refer to a structure by handle rather than by name.
+ * Opening the same key twice returns the same handle for as long as the
+ * handle remains in the cache. When the cache is full the least recently
+ * used handle is evicted, after which requests using it are rejected and
+ * the structure must be opened again.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The cached value type.
+ */
+public class HandleCache<T> {
+  private final int capacity;
+  private final Map<String, Integer> keys = new HashMap<>();
+  private final LinkedHashMap<Integer, Handle<T>> handles;
+  private int nextHandle = 1;
+  private long evictions;
+
+  /**
+   * Creates a handle cache.
+   *
+   * @param capacity The maximum number of open handles.
+   */
+  public HandleCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Handle cache size must be positive");
+    }
+    this.capacity = capacity;
+    this.handles = new LinkedHashMap<Integer, Handle<T>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Handle<T>> eldest) {
+        if (size() > HandleCache.this.capacity) {
+          keys.remove(eldest.getValue().key);
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the handle for a key if it is open.
+   *
+   * @param key The key to look up.
+   * @return The open handle for the key, or <code>null</code> if the key is not open.
+   */
+  public synchronized Integer lookup(String key) {
+    Integer handle = keys.get(key);
+    if (handle != null) {
+      handles.get(handle);
+    }
+    return handle;
+  }
+
+  /**
+   * Opens a handle for a key.
+   *
+   * @param key The key for which to open a handle.
+   * @param value The value to which the handle refers.
+   * @return The handle for the key. If the key is already open its existing
+   *         handle is returned.
+   */
+  public synchronized int open(String key, T value) {
+    Integer handle = keys.get(key);
+    if (handle != null) {
+      handles.get(handle);
+      return handle;
+    }
+    handle = nextHandle++;
+    if (nextHandle <= 0) {
+      nextHandle = 1;
+    }
+    keys.put(key, handle);
+    handles.put(handle, new Handle<T>(key, value));
+    return handle;
+  }
+
+  /**
+   * Returns the value to which a handle refers.
+   *
+   * @param handle The handle to resolve.
+   * @return The value for the handle, or <code>null</code> if the handle is not open.
+   */
+  public synchronized T get(int handle) {
+    Handle<T> entry = handles.get(handle);
+    return entry != null ? entry.value : null;
+  }
+
+  /**
+   * Closes all open handles.
+   */
+  public synchronized void clear() {
+    keys.clear();
+    handles.clear();
+  }
+
+  /**
+   * Returns handle cache statistics.
+   *
+   * @return A JSON object of handle cache statistics.
+   */
+  public synchronized JsonObject getStats() {
+    return new JsonObject()
+        .putNumber("open", handles.size())
+        .putNumber("capacity", capacity)
+        .putNumber("evictions", evictions);
+  }
+
+  /**
+   * An open handle.
+   */
+  private static class Handle<T> {
+    private final String key;
+    private final T value;
+
+    private Handle(String key, T value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+}
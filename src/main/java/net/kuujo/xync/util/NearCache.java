@@ -0,0 +1,267 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Node-local near cache.<p>
+ *
+ * The near cache holds a bounded number of entries of a cluster-wide map
+ * on the local node. When the cache is full entries are evicted either by
+ * least recent use (<code>lru</code>) or least frequent use (<code>lfu</code>).
+ * Entries may also expire after a fixed time to live.<p>
+ *
+ * Values are loaded asynchronously, so a value may be loaded while the
+ * same key is being invalidated. To prevent stale values from being cached,
+ * loaders should read the cache {@link #version()} before loading and pass it
+ * to {@link #put(Object, Object, long)}, which discards the value if the cache
+ * has been invalidated in the meantime.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <K> The cache key type.
+ * @param <V> The cache value type.
+ */
+public class NearCache<K, V> {
+  public static final String LRU = "lru";
+  public static final String LFU = "lfu";
+
+  private final int maxSize;
+  private final String eviction;
+  private final long ttl;
+  private final Map<K, Entry<V>> entries;
+  private final TreeMap<Long, LinkedHashSet<K>> frequencies = new TreeMap<>();
+  private long version;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long expirations;
+  private long invalidations;
+
+  /**
+   * Creates a near cache.
+   *
+   * @param maxSize The maximum number of entries in the cache.
+   * @param eviction The eviction policy, either <code>lru</code> or <code>lfu</code>.
+   * @param ttl The time to live for cache entries in milliseconds, or <code>0</code>
+   *        if entries should not expire.
+   */
+  public NearCache(int maxSize, String eviction, long ttl) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Near cache size must be positive");
+    }
+    switch (eviction) {
+      case LRU:
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        break;
+      case LFU:
+        entries = new HashMap<>();
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid near cache eviction policy " + eviction);
+    }
+    this.maxSize = maxSize;
+    this.eviction = eviction;
+    this.ttl = ttl;
+  }
+
+  /**
+   * Returns the current cache version. The version is incremented
+   * each time an entry is invalidated.
+   *
+   * @return The current cache version.
+   */
+  public synchronized long version() {
+    return version;
+  }
+
+  /**
+   * Gets a value from the cache.
+   *
+   * @param key The key to get.
+   * @return The cached value, or <code>null</code> if the key is not cached.
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    if (entry.expires > 0 && entry.expires <= System.currentTimeMillis()) {
+      remove(key, entry);
+      expirations++;
+      misses++;
+      return null;
+    }
+    if (eviction.equals(LFU)) {
+      unlink(key, entry);
+      entry.frequency++;
+      link(key, entry);
+    }
+    hits++;
+    return entry.value;
+  }
+
+  /**
+   * Puts a value in the cache.
+   *
+   * @param key The key to put.
+   * @param value The value to cache. Null values are not cached.
+   * @param version The cache version read before the value was loaded. If the
+   *        cache has been invalidated since then the value is discarded.
+   */
+  public synchronized void put(K key, V value, long version) {
+    if (value == null || version != this.version) {
+      return;
+    }
+    Entry<V> entry = entries.get(key);
+    if (entry != null) {
+      remove(key, entry);
+    } else if (entries.size() >= maxSize) {
+      evict();
+    }
+    entry = new Entry<V>(value, ttl > 0 ? System.currentTimeMillis() + ttl : 0);
+    entries.put(key, entry);
+    if (eviction.equals(LFU)) {
+      link(key, entry);
+    }
+  }
+
+  /**
+   * Invalidates a cached key.
+   *
+   * @param key The key to invalidate.
+   */
+  public synchronized void invalidate(K key) {
+    version++;
+    invalidations++;
+    Entry<V> entry = entries.get(key);
+    if (entry != null) {
+      remove(key, entry);
+    }
+  }
+
+  /**
+   * Invalidates all cached keys.
+   */
+  public synchronized void invalidateAll() {
+    version++;
+    invalidations++;
+    entries.clear();
+    frequencies.clear();
+  }
+
+  /**
+   * Returns the number of cached entries.
+   *
+   * @return The number of cached entries.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Evicts a single entry according to the eviction policy.
+   */
+  private void evict() {
+    K key;
+    if (eviction.equals(LFU)) {
+      Map.Entry<Long, LinkedHashSet<K>> lowest = frequencies.firstEntry();
+      Iterator<K> iterator = lowest.getValue().iterator();
+      key = iterator.next();
+    } else {
+      key = entries.keySet().iterator().next();
+    }
+    remove(key, entries.get(key));
+    evictions++;
+  }
+
+  /**
+   * Removes an entry from the cache.
+   */
+  private void remove(K key, Entry<V> entry) {
+    entries.remove(key);
+    if (eviction.equals(LFU)) {
+      unlink(key, entry);
+    }
+  }
+
+  /**
+   * Adds a key to its frequency bucket.
+   */
+  private void link(K key, Entry<V> entry) {
+    LinkedHashSet<K> keys = frequencies.get(entry.frequency);
+    if (keys == null) {
+      keys = new LinkedHashSet<>();
+      frequencies.put(entry.frequency, keys);
+    }
+    keys.add(key);
+  }
+
+  /**
+   * Removes a key from its frequency bucket.
+   */
+  private void unlink(K key, Entry<V> entry) {
+    LinkedHashSet<K> keys = frequencies.get(entry.frequency);
+    if (keys != null) {
+      keys.remove(key);
+      if (keys.isEmpty()) {
+        frequencies.remove(entry.frequency);
+      }
+    }
+  }
+
+  /**
+   * Returns cache statistics.
+   *
+   * @return A JSON object of cache statistics.
+   */
+  public synchronized JsonObject getStats() {
+    return new JsonObject()
+        .putNumber("size", entries.size())
+        .putNumber("maxSize", maxSize)
+        .putString("eviction", eviction)
+        .putNumber("ttl", ttl)
+        .putNumber("hits", hits)
+        .putNumber("misses", misses)
+        .putNumber("evictions", evictions)
+        .putNumber("expirations", expirations)
+        .putNumber("invalidations", invalidations);
+  }
+
+  /**
+   * Cache entry.
+   */
+  private static class Entry<V> {
+    private final V value;
+    private final long expires;
+    private long frequency = 1;
+
+    private Entry(V value, long expires) {
+      this.value = value;
+      this.expires = expires;
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Striped long accumulator.<p>
+ *
+ * Updates are spread across a set of cells selected by thread ID so that
+ * threads updating the same accumulator rarely contend on the same cell.
+ * Cells are padded to separate cache lines.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class StripedAccumulator {
+  private static final int PADDING = 8;
+  private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2;
+  private final AtomicLongArray values = new AtomicLongArray(STRIPES * PADDING);
+  private final AtomicLongArray updates = new AtomicLongArray(STRIPES * PADDING);
+
+  /**
+   * Adds a value to the accumulator.
+   *
+   * @param delta The value to add.
+   * @return The approximate number of updates since the last reset.
+   */
+  public long add(long delta) {
+    int index = cell();
+    values.addAndGet(index, delta);
+    updates.incrementAndGet(index);
+    return updates();
+  }
+
+  /**
+   * Returns the current sum.
+   *
+   * @return The sum of all cells.
+   */
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += values.get(i * PADDING);
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the current sum and resets the accumulator.
+   *
+   * @return The sum of all cells prior to the reset.
+   */
+  public long sumThenReset() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += values.getAndSet(i * PADDING, 0);
+      updates.set(i * PADDING, 0);
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the approximate number of updates since the last reset.
+   *
+   * @return The number of updates.
+   */
+  public long updates() {
+    long count = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      count += updates.get(i * PADDING);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the cell index for the current thread.
+   */
+  private int cell() {
+    long id = Thread.currentThread().getId();
+    return (int) ((id ^ (id >>> 16)) & (STRIPES - 1)) * PADDING;
+  }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel.<p>
+ *
+ * The timer wheel holds items scheduled to expire at a deadline. Time is
+ * divided into ticks, and items are placed in one of four levels of 256
+ * slots according to how many ticks remain until they expire. Scheduling
+ * an item and expiring each item take constant time. When the lowest level
+ * wraps around, the items in the next slot of the level above are spread
+ * over the lowest level, so no scan of all scheduled items is ever needed.
+ * Items that expire more than 2<sup>32</sup> ticks ahead are placed in the
+ * highest level and are rescheduled when their slot is reached.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ *
+ * @param <T> The scheduled item type.
+ */
+public class TimerWheel<T> {
+  private static final int LEVELS = 4;
+  private static final int SLOT_BITS = 8;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final long MAX_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+  private final long tickMillis;
+  private final List<List<Timeout<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+  private long tick;
+  private int size;
+
+  /**
+   * Creates a timer wheel.
+   *
+   * @param tickMillis The length of each tick in milliseconds.
+   * @param now The current time in milliseconds.
+   */
+  public TimerWheel(long tickMillis, long now) {
+    if (tickMillis <= 0) {
+      throw new IllegalArgumentException("Timer wheel tick must be positive");
+    }
+    this.tickMillis = tickMillis;
+    this.tick = now / tickMillis;
+    for (int i = 0; i < LEVELS * SLOTS; i++) {
+      slots.add(null);
+    }
+  }
+
+  /**
+   * Schedules an item to expire.
+   *
+   * @param item The item to schedule.
+   * @param deadline The time in milliseconds at which the item expires. Items
+   *        are expired on the first tick at or after their deadline.
+   */
+  public synchronized void schedule(T item, long deadline) {
+    add(new Timeout<T>(item, (deadline + tickMillis - 1) / tickMillis));
+    size++;
+  }
+
+  /**
+   * Advances the timer wheel to the current time.
+   *
+   * @param now The current time in milliseconds.
+   * @return The items that expired, in order of expiration.
+   */
+  public synchronized List<T> advance(long now) {
+    List<T> expired = new ArrayList<>();
+    long target = now / tickMillis;
+    while (tick < target && size > 0) {
+      tick++;
+      int index = (int) (tick & SLOT_MASK);
+      for (int level = 1; index == 0 && level < LEVELS; level++) {
+        index = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        cascade(level, index);
+      }
+      List<Timeout<T>> slot = slots.set((int) (tick & SLOT_MASK), null);
+      if (slot != null) {
+        for (Timeout<T> timeout : slot) {
+          expired.add(timeout.item);
+        }
+        size -= slot.size();
+      }
+    }
+    if (tick < target) {
+      // Nothing is scheduled, so skip directly to the current tick.
+      tick = target;
+    }
+    return expired;
+  }
+
+  /**
+   * Returns the number of scheduled items.
+   *
+   * @return The number of items waiting to expire.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Removes all scheduled items.
+   */
+  public synchronized void clear() {
+    for (int i = 0; i < slots.size(); i++) {
+      slots.set(i, null);
+    }
+    size = 0;
+  }
+
+  /**
+   * Adds a timeout to the slot for the number of ticks until it expires.
+   */
+  private void add(Timeout<T> timeout) {
+    if (timeout.tick <= tick) {
+      timeout.tick = tick + 1;
+    }
+    long ticks = Math.min(timeout.tick - tick, MAX_TICKS);
+    int level = 0;
+    while (level < LEVELS - 1 && ticks >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+    long slotTick = ticks == MAX_TICKS ? tick + MAX_TICKS : timeout.tick;
+    int index = level * SLOTS + (int) ((slotTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    List<Timeout<T>> slot = slots.get(index);
+    if (slot == null) {
+      slot = new ArrayList<>();
+      slots.set(index, slot);
+    }
+    slot.add(timeout);
+  }
+
+  /**
+   * Spreads the timeouts in a slot of a higher level over the lower levels.
+   */
+  private void cascade(int level, int index) {
+    List<Timeout<T>> slot = slots.set(level * SLOTS + index, null);
+    if (slot != null) {
+      Iterator<Timeout<T>> iterator = slot.iterator();
+      while (iterator.hasNext()) {
+        add(iterator.next());
+      }
+    }
+  }
+
+  /**
+   * A scheduled item.
+   */
+  private static class Timeout<T> {
+    private final T item;
+    private long tick;
+
+    private Timeout(T item, long tick) {
+      this.item = item;
+      this.tick = tick;
+    }
+  }
+
+}
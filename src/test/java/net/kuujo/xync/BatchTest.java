@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync;
+
+import static org.vertx.testtools.VertxAssert.assertEquals;
+import static org.vertx.testtools.VertxAssert.assertNull;
+import static org.vertx.testtools.VertxAssert.assertTrue;
+import static org.vertx.testtools.VertxAssert.testComplete;
+import net.kuujo.xync.util.Cluster;
+
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.testtools.TestVerticle;
+
+/**
+ * Batch data tests.
+ *
+ * @author Jordan Halterman
+ */
+public class BatchTest extends TestVerticle {
+
+  @Test
+  public void testBatch() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonArray operations = new JsonArray()
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch").putString("action", "put").putString("key", "foo").putString("value", "bar"))
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch").putString("action", "put").putString("key", "bar").putString("value", "baz"))
+            .addObject(new JsonObject().putString("type", "counter").putString("name", "test-batch").putString("action", "increment"))
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch").putString("action", "get").putString("key", "foo"))
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch").putString("action", "get").putString("key", "bar"));
+        JsonObject message = new JsonObject()
+            .putString("action", "batch")
+            .putArray("operations", operations);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonArray results = result.result().body().getArray("result");
+            assertEquals(5, results.size());
+            for (Object value : results) {
+              assertEquals("ok", ((JsonObject) value).getString("status"));
+            }
+            assertTrue(((JsonObject) results.get(2)).getInteger("result") == 1);
+            assertEquals("bar", ((JsonObject) results.get(3)).getString("result"));
+            assertEquals("baz", ((JsonObject) results.get(4)).getString("result"));
+            testComplete();
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testBatchGroupedReplies() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonArray operations = new JsonArray()
+            .addObject(new JsonObject().putString("type", "key").putString("name", "test-batch-key").putString("action", "set").putString("value", "foo"))
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch-group").putString("action", "put").putString("key", "foo").putString("value", "bar"))
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch-group").putString("action", "put").putString("key", "bar").putString("value", "baz"))
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch-group").putString("action", "put").putString("key", "foo").putString("value", "baz"))
+            .addObject(new JsonObject().putString("type", "key").putString("name", "test-batch-key").putString("action", "get"))
+            .addObject(new JsonObject().putString("type", "key").putString("name", "test-batch-none").putString("action", "get"));
+        JsonObject message = new JsonObject()
+            .putString("action", "batch")
+            .putArray("operations", operations);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            JsonArray results = result.result().body().getArray("result");
+            long version = ((JsonObject) results.get(0)).getLong("version");
+            assertNull(((JsonObject) results.get(1)).getValue("result"));
+            assertNull(((JsonObject) results.get(2)).getValue("result"));
+            assertEquals("bar", ((JsonObject) results.get(3)).getString("result"));
+            assertEquals("foo", ((JsonObject) results.get(4)).getString("result"));
+            assertEquals(version, (long) ((JsonObject) results.get(4)).getLong("version"));
+            assertNull(((JsonObject) results.get(5)).getValue("result"));
+            assertTrue(((JsonObject) results.get(5)).containsField("version"));
+            testComplete();
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testBatchStopOnError() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonArray operations = new JsonArray()
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch-error").putString("action", "put").putString("key", "foo").putString("value", "bar"))
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch-error").putString("action", "put").putString("key", "foo"))
+            .addObject(new JsonObject().putString("type", "map").putString("name", "test-batch-error").putString("action", "get").putString("key", "foo"));
+        JsonObject message = new JsonObject()
+            .putString("action", "batch")
+            .putArray("operations", operations)
+            .putBoolean("stopOnError", true);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonArray results = result.result().body().getArray("result");
+            assertEquals("ok", ((JsonObject) results.get(0)).getString("status"));
+            assertEquals("error", ((JsonObject) results.get(1)).getString("status"));
+            assertEquals("skipped", ((JsonObject) results.get(2)).getString("status"));
+            testComplete();
+          }
+        });
+      }
+    });
+  }
+
+}
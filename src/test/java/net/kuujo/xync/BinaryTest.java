@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync;
+
+import static org.vertx.testtools.VertxAssert.assertEquals;
+import static org.vertx.testtools.VertxAssert.assertTrue;
+import static org.vertx.testtools.VertxAssert.testComplete;
+import net.kuujo.xync.data.BinaryProtocol;
+import net.kuujo.xync.util.Cluster;
+
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.testtools.TestVerticle;
+
+/**
+ * Binary protocol tests.
+ *
+ * @author Jordan Halterman
+ */
+public class BinaryTest extends TestVerticle {
+
+  @Test
+  public void testBinaryMapPutGet() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        Buffer request = BinaryProtocol.createRequest(BinaryProtocol.MAP_PUT, "test-binary-map-put-get");
+        BinaryProtocol.writeShortString(request, "foo");
+        BinaryProtocol.writeValue(request, "bar");
+        vertx.eventBus().sendWithTimeout("test", request, 5000, new Handler<AsyncResult<Message<Buffer>>>() {
+          @Override
+          public void handle(AsyncResult<Message<Buffer>> result) {
+            assertTrue(result.succeeded());
+            BinaryProtocol.Reader reader = new BinaryProtocol.Reader(result.result().body());
+            assertEquals(BinaryProtocol.STATUS_OK, reader.readByte());
+            Buffer request = BinaryProtocol.createRequest(BinaryProtocol.MAP_GET, "test-binary-map-put-get");
+            BinaryProtocol.writeShortString(request, "foo");
+            vertx.eventBus().sendWithTimeout("test", request, 5000, new Handler<AsyncResult<Message<Buffer>>>() {
+              @Override
+              public void handle(AsyncResult<Message<Buffer>> result) {
+                assertTrue(result.succeeded());
+                BinaryProtocol.Reader reader = new BinaryProtocol.Reader(result.result().body());
+                assertEquals(BinaryProtocol.STATUS_OK, reader.readByte());
+                assertEquals("bar", reader.readValue());
+                JsonObject message = new JsonObject()
+                    .putString("type", "map")
+                    .putString("name", "test-binary-map-put-get")
+                    .putString("action", "get")
+                    .putString("key", "foo");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertEquals("bar", result.result().body().getString("result"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testBinaryCounterAdd() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        Buffer request = BinaryProtocol.createRequest(BinaryProtocol.COUNTER_ADD, "test-binary-counter-add").appendLong(10);
+        vertx.eventBus().sendWithTimeout("test", request, 5000, new Handler<AsyncResult<Message<Buffer>>>() {
+          @Override
+          public void handle(AsyncResult<Message<Buffer>> result) {
+            assertTrue(result.succeeded());
+            BinaryProtocol.Reader reader = new BinaryProtocol.Reader(result.result().body());
+            assertEquals(BinaryProtocol.STATUS_OK, reader.readByte());
+            assertEquals(10L, reader.readValue());
+            testComplete();
+          }
+        });
+      }
+    });
+  }
+
+}
@@ -118,4 +118,160 @@ public class CounterTest extends TestVerticle {
     });
   }
 
+  @Test
+  public void testCounterAdd() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "counter")
+            .putString("name", "test-counter-add")
+            .putString("action", "add")
+            .putNumber("delta", 10);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertTrue(result.result().body().getLong("result") == 10);
+            JsonObject message = new JsonObject()
+                .putString("type", "counter")
+                .putString("name", "test-counter-add")
+                .putString("action", "getAndAdd")
+                .putNumber("delta", 5);
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertTrue(result.result().body().getLong("result") == 10);
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testCounterBuffered() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "counter")
+            .putString("name", "test-counter-buffered")
+            .putString("action", "add")
+            .putNumber("delta", 10)
+            .putBoolean("buffered", true);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertTrue(result.result().body().getBoolean("buffered"));
+            JsonObject message = new JsonObject()
+                .putString("type", "counter")
+                .putString("name", "test-counter-buffered")
+                .putString("action", "get")
+                .putBoolean("buffered", true);
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertTrue(result.result().body().getBoolean("buffered"));
+                assertTrue(result.result().body().getLong("result") == 10);
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testCounterBufferedFlushOnUndeploy() {
+    Cluster.initialize();
+    JsonObject config = new JsonObject()
+        .putString("cluster", "test-flush")
+        .putString("executor", "worker")
+        .putNumber("counterFlushInterval", 60000);
+    container.deployWorkerVerticle(Xync.class.getName(), config, 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        final String deploymentID = result.result();
+        JsonObject message = new JsonObject()
+            .putString("type", "counter")
+            .putString("name", "test-counter-flush")
+            .putString("action", "add")
+            .putNumber("delta", 10)
+            .putBoolean("buffered", true);
+        vertx.eventBus().sendWithTimeout("test-flush", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            container.undeployVerticle(deploymentID, new Handler<AsyncResult<Void>>() {
+              @Override
+              public void handle(AsyncResult<Void> result) {
+                assertTrue(result.succeeded());
+                // The buffered delta must have been flushed before the verticle stopped.
+                assertEquals(10L, Cluster.getHazelcastInstance().getAtomicLong("test-flush.counters.test-counter-flush").get());
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testCounterCompareAndSet() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "counter")
+            .putString("name", "test-counter-compare-and-set")
+            .putString("action", "compareAndSet")
+            .putNumber("expect", 0)
+            .putNumber("update", 5);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertTrue(result.result().body().getBoolean("result"));
+            JsonObject message = new JsonObject()
+                .putString("type", "counter")
+                .putString("name", "test-counter-compare-and-set")
+                .putString("action", "compareAndSet")
+                .putNumber("expect", 0)
+                .putNumber("update", 10);
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertTrue(!result.result().body().getBoolean("result"));
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync;
+
+import static org.vertx.testtools.VertxAssert.assertEquals;
+import static org.vertx.testtools.VertxAssert.assertTrue;
+import static org.vertx.testtools.VertxAssert.testComplete;
+
+import java.util.concurrent.ConcurrentMap;
+
+import net.kuujo.xync.util.Cluster;
+
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.testtools.TestVerticle;
+
+/**
+ * Data message dispatch tests.
+ *
+ * @author Jordan Halterman
+ */
+public class DispatchTest extends TestVerticle {
+  private static final String REPLIES = "xync.test.replies";
+
+  /**
+   * Xync verticle that counts the replies to each data message by the
+   * message's <code>id</code>.
+   */
+  public static class CountingXync extends Xync {
+    @Override
+    protected void handleDataMessage(final JsonObject request, final Handler<JsonObject> replyHandler) {
+      final String id = request.getString("id");
+      super.handleDataMessage(request, new Handler<JsonObject>() {
+        @Override
+        public void handle(JsonObject reply) {
+          ConcurrentMap<String, Integer> replies = vertx.sharedData().getMap(REPLIES);
+          while (true) {
+            Integer count = replies.putIfAbsent(id, 1);
+            if (count == null || replies.replace(id, count, count + 1)) {
+              break;
+            }
+          }
+          replyHandler.handle(reply);
+        }
+      });
+    }
+  }
+
+  @Test
+  public void testKeyAndCounterSingleReply() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(CountingXync.class.getName(), new JsonObject().putString("cluster", "test"), 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        final JsonArray requests = new JsonArray()
+            .addObject(new JsonObject().putString("type", "key").putString("name", "test-dispatch").putString("action", "set").putString("value", "foo"))
+            .addObject(new JsonObject().putString("type", "key").putString("name", "test-dispatch").putString("action", "get"))
+            .addObject(new JsonObject().putString("type", "key").putString("name", "test-dispatch").putString("action", "delete"))
+            .addObject(new JsonObject().putString("type", "counter").putString("name", "test-dispatch").putString("action", "increment"))
+            .addObject(new JsonObject().putString("type", "counter").putString("name", "test-dispatch").putString("action", "decrement"))
+            .addObject(new JsonObject().putString("type", "counter").putString("name", "test-dispatch").putString("action", "add").putNumber("delta", 2))
+            .addObject(new JsonObject().putString("type", "counter").putString("name", "test-dispatch").putString("action", "get"));
+        send(requests, 0);
+      }
+    });
+  }
+
+  /**
+   * Sends each request in turn and checks the reply counts once the
+   * last request has been answered.
+   */
+  private void send(final JsonArray requests, final int index) {
+    if (index == requests.size()) {
+      // Wait for any further replies from handlers the request fell through to.
+      vertx.setTimer(500, new Handler<Long>() {
+        @Override
+        public void handle(Long timerID) {
+          ConcurrentMap<String, Integer> replies = vertx.sharedData().getMap(REPLIES);
+          for (int i = 0; i < requests.size(); i++) {
+            assertEquals(Integer.valueOf(1), replies.get(String.valueOf(i)));
+          }
+          testComplete();
+        }
+      });
+      return;
+    }
+
+    JsonObject request = requests.get(index);
+    request.putString("id", String.valueOf(index));
+    vertx.eventBus().sendWithTimeout("test", request, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+      @Override
+      public void handle(AsyncResult<Message<JsonObject>> result) {
+        assertTrue(result.succeeded());
+        assertEquals("ok", result.result().body().getString("status"));
+        send(requests, index + 1);
+      }
+    });
+  }
+
+}
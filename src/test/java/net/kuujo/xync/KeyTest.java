@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync;
+
+import static org.vertx.testtools.VertxAssert.assertEquals;
+import static org.vertx.testtools.VertxAssert.assertFalse;
+import static org.vertx.testtools.VertxAssert.assertNotNull;
+import static org.vertx.testtools.VertxAssert.assertTrue;
+import static org.vertx.testtools.VertxAssert.testComplete;
+import net.kuujo.xync.data.VersionedValue;
+import net.kuujo.xync.util.Cluster;
+
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.testtools.TestVerticle;
+
+import com.hazelcast.core.IMap;
+
+/**
+ * Key data tests.
+ *
+ * @author Jordan Halterman
+ */
+public class KeyTest extends TestVerticle {
+
+  @Test
+  public void testKeyCas() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "key")
+            .putString("name", "test-key-cas")
+            .putString("action", "set")
+            .putString("value", "foo");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            final long version = result.result().body().getLong("version");
+            JsonObject message = new JsonObject()
+                .putString("type", "key")
+                .putString("name", "test-key-cas")
+                .putString("action", "cas")
+                .putNumber("version", version + 1)
+                .putString("value", "bar");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertFalse(result.result().body().getBoolean("result"));
+                assertEquals(version, result.result().body().getLong("version").longValue());
+                JsonObject message = new JsonObject()
+                    .putString("type", "key")
+                    .putString("name", "test-key-cas")
+                    .putString("action", "cas")
+                    .putNumber("version", version)
+                    .putString("value", "bar");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertTrue(result.result().body().getBoolean("result"));
+                    final long update = result.result().body().getLong("version");
+                    assertFalse(update == version);
+                    JsonObject message = new JsonObject()
+                        .putString("type", "key")
+                        .putString("name", "test-key-cas")
+                        .putString("action", "get");
+                    vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                      @Override
+                      public void handle(AsyncResult<Message<JsonObject>> result) {
+                        assertTrue(result.succeeded());
+                        assertEquals("ok", result.result().body().getString("status"));
+                        assertEquals("bar", result.result().body().getString("result"));
+                        assertEquals(update, result.result().body().getLong("version").longValue());
+                        testComplete();
+                      }
+                    });
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testKeyStoredFormat() {
+    Cluster.initialize();
+    // Keys written without a version, as by earlier versions, read as version 1.
+    final IMap<String, Object> keys = Cluster.getHazelcastInstance().getMap("test.keys");
+    keys.put("test-key-legacy", "foo");
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "key")
+            .putString("name", "test-key-legacy")
+            .putString("action", "get");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("foo", result.result().body().getString("result"));
+            assertEquals(1, result.result().body().getLong("version").longValue());
+            JsonObject message = new JsonObject()
+                .putString("type", "key")
+                .putString("name", "test-key-format")
+                .putString("action", "set")
+                .putObject("value", new JsonObject().putString("foo", "bar"));
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                // Stored keys are plain strings rather than Xync classes.
+                Object stored = keys.get("test-key-format");
+                assertNotNull(stored);
+                assertTrue(stored instanceof String);
+                VersionedValue value = VersionedValue.decode(stored);
+                assertEquals("bar", ((JsonObject) value.value()).getString("foo"));
+                assertEquals(result.result().body().getLong("version").longValue(), value.version());
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+}
@@ -16,6 +16,7 @@
 package net.kuujo.xync;
 
 import static org.vertx.testtools.VertxAssert.assertEquals;
+import static org.vertx.testtools.VertxAssert.assertFalse;
 import static org.vertx.testtools.VertxAssert.assertNull;
 import static org.vertx.testtools.VertxAssert.assertTrue;
 import static org.vertx.testtools.VertxAssert.testComplete;
@@ -25,6 +26,7 @@ import org.junit.Test;
 import org.vertx.java.core.AsyncResult;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonArray;
 import org.vertx.java.core.json.JsonObject;
 import org.vertx.testtools.TestVerticle;
 
@@ -98,6 +100,110 @@ public class ListTest extends TestVerticle {
     });
   }
 
+  @Test
+  public void testIndexedListContains() {
+    Cluster.initialize();
+    JsonObject config = new JsonObject().putString("cluster", "test")
+        .putObject("lists", new JsonObject().putObject("test-list-indexed", new JsonObject().putBoolean("index", true)));
+    container.deployWorkerVerticle(Xync.class.getName(), config, 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "list")
+            .putString("name", "test-list-indexed")
+            .putString("action", "add")
+            .putString("value", "foo");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "list")
+                .putString("name", "test-list-indexed")
+                .putString("action", "remove")
+                .putString("value", "foo");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                JsonObject message = new JsonObject()
+                    .putString("type", "list")
+                    .putString("name", "test-list-indexed")
+                    .putString("action", "contains")
+                    .putString("value", "foo");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertFalse(result.result().body().getBoolean("result"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testListRange() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "list")
+            .putString("name", "test-list-range")
+            .putString("action", "add")
+            .putString("value", "foo");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "list")
+                .putString("name", "test-list-range")
+                .putString("action", "add")
+                .putString("value", "bar");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                JsonObject message = new JsonObject()
+                    .putString("type", "list")
+                    .putString("name", "test-list-range")
+                    .putString("action", "range")
+                    .putNumber("from", 0)
+                    .putNumber("to", 10);
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    JsonArray values = result.result().body().getArray("result");
+                    assertEquals(2, values.size());
+                    assertEquals("foo", values.get(0));
+                    assertEquals("bar", values.get(1));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
   @Test
   public void testListRemove() {
     Cluster.initialize();
@@ -16,28 +16,564 @@
 package net.kuujo.xync;
 
 import static org.vertx.testtools.VertxAssert.assertEquals;
+import static org.vertx.testtools.VertxAssert.assertFalse;
 import static org.vertx.testtools.VertxAssert.assertNotNull;
 import static org.vertx.testtools.VertxAssert.assertNull;
 import static org.vertx.testtools.VertxAssert.assertTrue;
 import static org.vertx.testtools.VertxAssert.testComplete;
+import java.util.Map;
+
+import net.kuujo.xync.data.ComputeProcessor;
 import net.kuujo.xync.util.Cluster;
 
-import org.junit.Test;
-import org.vertx.java.core.AsyncResult;
-import org.vertx.java.core.Handler;
-import org.vertx.java.core.eventbus.Message;
-import org.vertx.java.core.json.JsonObject;
-import org.vertx.testtools.TestVerticle;
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.testtools.TestVerticle;
+
+/**
+ * Map data tests.
+ *
+ * @author Jordan Halterman
+ */
+public class MapTest extends TestVerticle {
+
+  @Test
+  public void testMapPut() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-put")
+            .putString("action", "put")
+            .putString("key", "foo")
+            .putString("value", "bar");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertNull(result.result().body().getString("result"));
+            testComplete();
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapNearCache() {
+    Cluster.initialize();
+    JsonObject config = new JsonObject()
+        .putString("cluster", "test")
+        .putObject("nearCache", new JsonObject().putObject("test-map-near-cache", new JsonObject().putNumber("maxSize", 10)));
+    container.deployWorkerVerticle(Xync.class.getName(), config, 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-near-cache")
+            .putString("action", "put")
+            .putString("key", "foo")
+            .putString("value", "bar");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-near-cache")
+                .putString("action", "get")
+                .putString("key", "foo");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertEquals("bar", result.result().body().getString("result"));
+                vertx.eventBus().sendWithTimeout("test", new JsonObject().putString("action", "stats"), 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertNotNull(result.result().body().getObject("result").getObject("nearCaches").getObject("test-map-near-cache"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapOpen() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-open")
+            .putString("action", "open");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            final int handle = result.result().body().getInteger("result");
+            final String address = result.result().body().getString("address");
+            assertNotNull(address);
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putNumber("handle", handle)
+                .putString("action", "put")
+                .putString("key", "foo")
+                .putString("value", "bar");
+            vertx.eventBus().sendWithTimeout(address, message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                JsonObject message = new JsonObject()
+                    .putString("type", "map")
+                    .putString("name", "test-map-open")
+                    .putString("action", "get")
+                    .putString("key", "foo");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertEquals("bar", result.result().body().getString("result"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapForwardToOwner() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test").putBoolean("forwardToOwner", true), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        vertx.eventBus().sendWithTimeout("test", new JsonObject().putString("action", "stats"), 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            String node = result.result().body().getObject("result").getString("node");
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-forward")
+                .putString("action", "put")
+                .putString("key", "foo")
+                .putString("value", "bar");
+            vertx.eventBus().sendWithTimeout(String.format("test.%s", node), message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                JsonObject message = new JsonObject()
+                    .putString("type", "map")
+                    .putString("name", "test-map-forward")
+                    .putString("action", "get")
+                    .putString("key", "foo");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertEquals("bar", result.result().body().getString("result"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  public static class IncrementProcessor implements ComputeProcessor {
+    private static final long serialVersionUID = 1L;
+    @Override
+    public Object process(Map.Entry<Object, Object> entry, JsonObject args) {
+      long value = (entry.getValue() != null ? ((Number) entry.getValue()).longValue() : 0) + args.getLong("delta", 1);
+      entry.setValue(value);
+      return value;
+    }
+  }
+
+  @Test
+  public void testMapCompute() {
+    Cluster.initialize();
+    JsonObject config = new JsonObject().putString("cluster", "test")
+        .putObject("processors", new JsonObject().putString("increment", IncrementProcessor.class.getName()));
+    container.deployWorkerVerticle(Xync.class.getName(), config, 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-compute")
+            .putString("action", "compute")
+            .putString("processor", "increment")
+            .putString("key", "foo")
+            .putObject("args", new JsonObject().putNumber("delta", 2));
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertEquals(2, result.result().body().getLong("result").longValue());
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-compute")
+                .putString("action", "compute")
+                .putString("processor", "increment")
+                .putArray("keys", new JsonArray().add("foo").add("bar"));
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertEquals(3, result.result().body().getObject("result").getLong("foo").longValue());
+                assertEquals(1, result.result().body().getObject("result").getLong("bar").longValue());
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapPutTtl() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-put-ttl")
+            .putString("action", "put")
+            .putString("key", "foo")
+            .putString("value", "bar")
+            .putNumber("ttl", 500);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            vertx.setTimer(1500, new Handler<Long>() {
+              @Override
+              public void handle(Long timerID) {
+                JsonObject message = new JsonObject()
+                    .putString("type", "map")
+                    .putString("name", "test-map-put-ttl")
+                    .putString("action", "get")
+                    .putString("key", "foo");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertNull(result.result().body().getString("result"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapConfigure() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-configure")
+            .putString("action", "configure")
+            .putNumber("maxSize", 100)
+            .putString("eviction", "lfu");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertEquals(100, result.result().body().getObject("result").getInteger("maxSize").intValue());
+            assertEquals("lfu", result.result().body().getObject("result").getString("eviction"));
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-configure")
+                .putString("action", "configure")
+                .putNumber("maxSize", 100)
+                .putString("eviction", "foo");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("error", result.result().body().getString("status"));
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapEviction() {
+    Cluster.initialize();
+    JsonObject config = new JsonObject()
+        .putString("cluster", "test-evict")
+        .putObject("maps", new JsonObject().putObject("test-map-evict", new JsonObject().putNumber("maxSize", 10)));
+    container.deployWorkerVerticle(Xync.class.getName(), config, 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject entries = new JsonObject();
+        for (int i = 0; i < 50; i++) {
+          entries.putNumber(String.valueOf(i), i);
+        }
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-evict")
+            .putString("action", "putAll")
+            .putObject("entries", entries);
+        vertx.eventBus().sendWithTimeout("test-evict", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            checkEvictions(50, 40);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Checks that a bounded map has been evicted to its maximum size. Hazelcast
+   * evicts entries periodically, so the check is retried until it passes.
+   */
+  private void checkEvictions(final int count, final int attempts) {
+    JsonObject message = new JsonObject()
+        .putString("type", "map")
+        .putString("name", "test-map-evict")
+        .putString("action", "size");
+    vertx.eventBus().sendWithTimeout("test-evict", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+      @Override
+      public void handle(AsyncResult<Message<JsonObject>> result) {
+        assertTrue(result.succeeded());
+        assertEquals("ok", result.result().body().getString("status"));
+        final int size = result.result().body().getInteger("result");
+        vertx.eventBus().sendWithTimeout("test-evict", new JsonObject().putString("action", "stats"), 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject stats = result.result().body().getObject("result").getObject("maps").getObject("test-map-evict");
+            assertEquals(10, stats.getInteger("maxSize").intValue());
+            long evictions = stats.getLong("evictions");
+            if (size <= 10 && evictions == count - size) {
+              testComplete();
+            } else {
+              assertTrue(attempts > 0);
+              vertx.setTimer(500, new Handler<Long>() {
+                @Override
+                public void handle(Long timerID) {
+                  checkEvictions(count, attempts - 1);
+                }
+              });
+            }
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapWatch() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        vertx.eventBus().registerHandler("test-map-watch", new Handler<Message<JsonObject>>() {
+          @Override
+          public void handle(Message<JsonObject> message) {
+            assertEquals("ok", message.body().getString("status"));
+            JsonObject change = message.body().getArray("result").get(0);
+            assertEquals("put", change.getString("event"));
+            assertEquals("foo", change.getString("key"));
+            assertEquals("bar", change.getString("value"));
+            testComplete();
+          }
+        });
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-watch")
+            .putString("action", "watch")
+            .putString("key", "foo")
+            .putString("address", "test-map-watch")
+            .putNumber("window", 0);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertNotNull(result.result().body().getString("result"));
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-watch")
+                .putString("action", "put")
+                .putString("key", "foo")
+                .putString("value", "bar");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapWatchDropped() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-watch-dropped")
+            .putString("action", "watch")
+            .putString("key", "foo")
+            .putString("address", "test-map-watch-dropped")
+            .putNumber("window", 0);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            final String watch = result.result().body().getString("result");
+            final String address = result.result().body().getString("address");
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-watch-dropped")
+                .putString("action", "put")
+                .putString("key", "foo")
+                .putString("value", "bar");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                // No handler is registered at the watch address, so the
+                // watch is dropped once the change fails to be delivered.
+                vertx.setTimer(500, new Handler<Long>() {
+                  @Override
+                  public void handle(Long timerID) {
+                    JsonObject message = new JsonObject()
+                        .putString("type", "map")
+                        .putString("name", "test-map-watch-dropped")
+                        .putString("action", "unwatch")
+                        .putString("watch", watch);
+                    vertx.eventBus().sendWithTimeout(address, message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                      @Override
+                      public void handle(AsyncResult<Message<JsonObject>> result) {
+                        assertTrue(result.succeeded());
+                        assertEquals("error", result.result().body().getString("status"));
+                        testComplete();
+                      }
+                    });
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
 
-/**
- * Map data tests.
- *
- * @author Jordan Halterman
- */
-public class MapTest extends TestVerticle {
+  @Test
+  public void testMapPutIfAbsent() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-put-if-absent")
+            .putString("action", "putIfAbsent")
+            .putString("key", "foo")
+            .putString("value", "bar");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertNull(result.result().body().getString("result"));
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-put-if-absent")
+                .putString("action", "putIfAbsent")
+                .putString("key", "foo")
+                .putString("value", "baz");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertEquals("bar", result.result().body().getString("result"));
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
 
   @Test
-  public void testMapPut() {
+  public void testMapReplaceIfEquals() {
     Cluster.initialize();
     container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
       @Override
@@ -45,7 +581,7 @@ public class MapTest extends TestVerticle {
         assertTrue(result.succeeded());
         JsonObject message = new JsonObject()
             .putString("type", "map")
-            .putString("name", "test-map-put")
+            .putString("name", "test-map-replace-if-equals")
             .putString("action", "put")
             .putString("key", "foo")
             .putString("value", "bar");
@@ -54,8 +590,37 @@ public class MapTest extends TestVerticle {
           public void handle(AsyncResult<Message<JsonObject>> result) {
             assertTrue(result.succeeded());
             assertEquals("ok", result.result().body().getString("status"));
-            assertNull(result.result().body().getString("result"));
-            testComplete();
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-replace-if-equals")
+                .putString("action", "replaceIfEquals")
+                .putString("key", "foo")
+                .putString("expect", "baz")
+                .putString("value", "foo");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertFalse(result.result().body().getBoolean("result"));
+                JsonObject message = new JsonObject()
+                    .putString("type", "map")
+                    .putString("name", "test-map-replace-if-equals")
+                    .putString("action", "replaceIfEquals")
+                    .putString("key", "foo")
+                    .putString("expect", "bar")
+                    .putString("value", "baz");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertTrue(result.result().body().getBoolean("result"));
+                    testComplete();
+                  }
+                });
+              }
+            });
           }
         });
       }
@@ -352,4 +917,213 @@ public class MapTest extends TestVerticle {
     });
   }
 
+  @Test
+  public void testMapEntriesPaged() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-entries-paged")
+            .putString("action", "putAll")
+            .putObject("entries", new JsonObject().putString("foo", "bar").putString("bar", "baz").putString("baz", "foo"));
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-entries-paged")
+                .putString("action", "entries")
+                .putNumber("limit", 2);
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                final JsonObject first = result.result().body().getObject("result");
+                assertEquals(2, first.size());
+                assertNotNull(result.result().body().getString("cursor"));
+                JsonObject message = new JsonObject()
+                    .putString("type", "map")
+                    .putString("name", "test-map-entries-paged")
+                    .putString("action", "entries")
+                    .putString("cursor", result.result().body().getString("cursor"))
+                    .putNumber("limit", 2);
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    JsonObject second = result.result().body().getObject("result");
+                    assertEquals(1, second.size());
+                    assertNull(result.result().body().getString("cursor"));
+                    for (String key : second.getFieldNames()) {
+                      assertTrue(!first.containsField(key));
+                    }
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapStream() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-stream")
+            .putString("action", "putAll")
+            .putObject("entries", new JsonObject().putString("foo", "bar").putString("bar", "baz").putString("baz", "foo"));
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            final JsonArray keys = new JsonArray();
+            vertx.eventBus().registerHandler("test-map-stream", new Handler<Message<JsonObject>>() {
+              @Override
+              public void handle(Message<JsonObject> message) {
+                if (message.body().getString("status").equals("end")) {
+                  assertEquals(3, keys.size());
+                  testComplete();
+                } else {
+                  assertEquals("ok", message.body().getString("status"));
+                  assertTrue(message.body().getArray("result").size() <= 2);
+                  for (Object key : message.body().getArray("result")) {
+                    keys.add(key);
+                  }
+                  message.reply(new JsonObject().putNumber("credits", 1));
+                }
+              }
+            }, new Handler<AsyncResult<Void>>() {
+              @Override
+              public void handle(AsyncResult<Void> result) {
+                assertTrue(result.succeeded());
+                JsonObject message = new JsonObject()
+                    .putString("type", "map")
+                    .putString("name", "test-map-stream")
+                    .putString("action", "stream")
+                    .putString("read", "keys")
+                    .putString("address", "test-map-stream")
+                    .putNumber("chunkSize", 2);
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapPutAllGetAll() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-put-all-get-all")
+            .putString("action", "putAll")
+            .putObject("entries", new JsonObject().putString("foo", "bar").putString("bar", "baz"));
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-put-all-get-all")
+                .putString("action", "getAll")
+                .putArray("keys", new JsonArray().addString("foo").addString("bar").addString("baz"));
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                JsonObject entries = result.result().body().getObject("result");
+                assertEquals("bar", entries.getString("foo"));
+                assertEquals("baz", entries.getString("bar"));
+                assertTrue(!entries.containsField("baz"));
+                testComplete();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testMapRemoveAllContainsAll() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "map")
+            .putString("name", "test-map-remove-all-contains-all")
+            .putString("action", "putAll")
+            .putObject("entries", new JsonObject().putString("foo", "bar").putString("bar", "baz"));
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "map")
+                .putString("name", "test-map-remove-all-contains-all")
+                .putString("action", "removeAll")
+                .putArray("keys", new JsonArray().addString("foo"));
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertEquals("bar", result.result().body().getObject("result").getString("foo"));
+                JsonObject message = new JsonObject()
+                    .putString("type", "map")
+                    .putString("name", "test-map-remove-all-contains-all")
+                    .putString("action", "containsAll")
+                    .putArray("keys", new JsonArray().addString("foo").addString("bar"));
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    JsonObject entries = result.result().body().getObject("result");
+                    assertTrue(!entries.getBoolean("foo"));
+                    assertTrue(entries.getBoolean("bar"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
 }
@@ -0,0 +1,586 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync;
+
+import static org.vertx.testtools.VertxAssert.assertEquals;
+import static org.vertx.testtools.VertxAssert.assertFalse;
+import static org.vertx.testtools.VertxAssert.assertNull;
+import static org.vertx.testtools.VertxAssert.assertTrue;
+import static org.vertx.testtools.VertxAssert.testComplete;
+import net.kuujo.xync.util.Cluster;
+
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Future;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.testtools.TestVerticle;
+
+import com.hazelcast.core.IMap;
+
+/**
+ * Queue data tests.
+ *
+ * @author Jordan Halterman
+ */
+public class QueueTest extends TestVerticle {
+
+  /**
+   * Xync verticle whose node leave handling can be triggered over the event bus.
+   */
+  public static class LeaveXync extends Xync {
+    @Override
+    public void start(Future<Void> future) {
+      vertx.eventBus().registerHandler("test-leave", new Handler<Message<String>>() {
+        @Override
+        public void handle(Message<String> message) {
+          handleNodeLeave(message.body());
+          message.reply();
+        }
+      });
+      super.start(future);
+    }
+  }
+
+  @Test
+  public void testQueueTake() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-take")
+            .putString("action", "take")
+            .putNumber("timeout", 5000);
+        vertx.eventBus().sendWithTimeout("test", message, 10000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertEquals("foo", result.result().body().getString("result"));
+            testComplete();
+          }
+        });
+        vertx.setTimer(500, new Handler<Long>() {
+          @Override
+          public void handle(Long timerID) {
+            JsonObject message = new JsonObject()
+                .putString("type", "queue")
+                .putString("name", "test-queue-take")
+                .putString("action", "offer")
+                .putString("value", "foo");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueTakeTimeout() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-take-timeout")
+            .putString("action", "take")
+            .putNumber("timeout", 500);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertNull(result.result().body().getString("result"));
+            testComplete();
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueTakeAfterUndeploy() {
+    Cluster.initialize();
+    // The first verticle registers the queue listener and is then undeployed,
+    // so a later consumer must still be woken when an item is offered.
+    JsonObject config = new JsonObject().putString("cluster", "test-undeploy-first").putString("executor", "worker");
+    container.deployWorkerVerticle(Xync.class.getName(), config, 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        final String deploymentID = result.result();
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-take-undeploy")
+            .putString("action", "take")
+            .putNumber("timeout", 100);
+        vertx.eventBus().sendWithTimeout("test-undeploy-first", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertNull(result.result().body().getString("result"));
+            container.undeployVerticle(deploymentID, new Handler<AsyncResult<Void>>() {
+              @Override
+              public void handle(AsyncResult<Void> result) {
+                assertTrue(result.succeeded());
+                takeAfterUndeploy();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Takes from the queue through a second verticle and offers an item.
+   */
+  private void takeAfterUndeploy() {
+    JsonObject config = new JsonObject().putString("cluster", "test-undeploy-second").putString("executor", "worker");
+    container.deployWorkerVerticle(Xync.class.getName(), config, 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-take-undeploy")
+            .putString("action", "take")
+            .putNumber("timeout", 5000);
+        vertx.eventBus().sendWithTimeout("test-undeploy-second", message, 10000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertEquals("foo", result.result().body().getString("result"));
+            testComplete();
+          }
+        });
+        vertx.setTimer(500, new Handler<Long>() {
+          @Override
+          public void handle(Long timerID) {
+            JsonObject message = new JsonObject()
+                .putString("type", "queue")
+                .putString("name", "test-queue-take-undeploy")
+                .putString("action", "offer")
+                .putString("value", "foo");
+            vertx.eventBus().sendWithTimeout("test-undeploy-second", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueOfferAllDrain() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-drain")
+            .putString("action", "offerAll")
+            .putArray("values", new JsonArray().add("foo").add("bar").add("baz"));
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertTrue(result.result().body().getBoolean("result"));
+            JsonObject message = new JsonObject()
+                .putString("type", "queue")
+                .putString("name", "test-queue-drain")
+                .putString("action", "drain")
+                .putNumber("max", 2);
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                JsonArray values = result.result().body().getArray("result");
+                assertEquals(2, values.size());
+                assertEquals("foo", values.get(0));
+                assertEquals("bar", values.get(1));
+                JsonObject message = new JsonObject()
+                    .putString("type", "queue")
+                    .putString("name", "test-queue-drain")
+                    .putString("action", "poll");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertEquals("baz", result.result().body().getString("result"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueDrainAcrossRings() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonArray values = new JsonArray();
+        for (int i = 0; i < 1000; i++) {
+          values.add("value" + i);
+        }
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-drain-rings")
+            .putString("action", "offerAll")
+            .putArray("values", values);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "queue")
+                .putString("name", "test-queue-drain-rings")
+                .putString("action", "remove")
+                .putString("value", "value500");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                assertTrue(result.result().body().getBoolean("result"));
+                JsonObject message = new JsonObject()
+                    .putString("type", "queue")
+                    .putString("name", "test-queue-drain-rings")
+                    .putString("action", "drain")
+                    .putNumber("max", 1000);
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    JsonArray values = result.result().body().getArray("result");
+                    assertEquals(999, values.size());
+                    for (int i = 0, j = 0; i < 1000; i++) {
+                      if (i != 500) {
+                        assertEquals("value" + i, values.get(j++));
+                      }
+                    }
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueDrainTimeout() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-drain-timeout")
+            .putString("action", "drain")
+            .putNumber("timeout", 500);
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            assertEquals(0, result.result().body().getArray("result").size());
+            testComplete();
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueSubscribe() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        final JsonArray received = new JsonArray();
+        vertx.eventBus().registerHandler("test-subscriber", new Handler<Message<JsonObject>>() {
+          @Override
+          public void handle(Message<JsonObject> message) {
+            assertEquals("ok", message.body().getString("status"));
+            JsonArray items = message.body().getArray("result");
+            assertTrue(items.size() <= 2);
+            for (Object item : items) {
+              received.add(item);
+            }
+            message.reply(new JsonObject().putString("status", "ok"));
+            if (received.size() == 5) {
+              assertEquals("a", received.get(0));
+              assertEquals("e", received.get(4));
+              JsonObject unsubscribe = new JsonObject()
+                  .putString("type", "queue")
+                  .putString("action", "unsubscribe")
+                  .putString("subscription", message.body().getString("subscription"));
+              vertx.eventBus().sendWithTimeout("test", unsubscribe, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                @Override
+                public void handle(AsyncResult<Message<JsonObject>> result) {
+                  assertTrue(result.succeeded());
+                  assertEquals("ok", result.result().body().getString("status"));
+                  testComplete();
+                }
+              });
+            }
+          }
+        });
+
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-subscribe")
+            .putString("action", "offerAll")
+            .putArray("values", new JsonArray().add("a").add("b").add("c").add("d").add("e"));
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "queue")
+                .putString("name", "test-queue-subscribe")
+                .putString("action", "subscribe")
+                .putString("address", "test-subscriber")
+                .putNumber("credits", 4)
+                .putNumber("batch", 2);
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueSubscribeTakeover() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(LeaveXync.class.getName(), new JsonObject().putString("cluster", "test"), 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        // Records of subscriptions owned by a node that has failed. The
+        // first consumer gave no node, so it must be taken over. The second
+        // consumer was on the failed node, so it must be dropped.
+        final IMap<String, String> records = Cluster.getHazelcastInstance().getMap("test.__subscriptions");
+        JsonObject record = new JsonObject()
+            .putString("queue", "test-queue-takeover")
+            .putNumber("credits", 10)
+            .putNumber("batch", 10)
+            .putNumber("timeout", 5000)
+            .putString("owner", "test-dead-owner")
+            .putString("ownerNode", "test-dead-node");
+        records.put("test-takeover", record.copy().putString("id", "test-takeover").putString("address", "test-takeover-subscriber").encode());
+        records.put("test-takeover-dropped", record.copy().putString("id", "test-takeover-dropped")
+            .putString("address", "test-takeover-dropped").putString("node", "test-dead-node").encode());
+
+        vertx.eventBus().registerHandler("test-takeover-subscriber", new Handler<Message<JsonObject>>() {
+          @Override
+          public void handle(Message<JsonObject> message) {
+            assertEquals("test-takeover", message.body().getString("subscription"));
+            assertEquals("foo", message.body().getArray("result").get(0));
+            message.reply(new JsonObject().putString("status", "ok"));
+            assertNull(records.get("test-takeover-dropped"));
+            assertTrue(records.get("test-takeover").contains(message.body().getString("address")));
+            testComplete();
+          }
+        });
+
+        vertx.eventBus().sendWithTimeout("test-leave", "test-dead-node", 5000, new Handler<AsyncResult<Message<Object>>>() {
+          @Override
+          public void handle(AsyncResult<Message<Object>> result) {
+            assertTrue(result.succeeded());
+            JsonObject message = new JsonObject()
+                .putString("type", "queue")
+                .putString("name", "test-queue-takeover")
+                .putString("action", "offer")
+                .putString("value", "foo");
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueSubscribeAfterUndeploy() {
+    Cluster.initialize();
+    // The first verticle pushes an item and is undeployed before the consumer
+    // replies, so the item must be pushed again by the next verticle.
+    final JsonObject config = new JsonObject().putString("cluster", "test-release");
+    container.deployWorkerVerticle(Xync.class.getName(), config, 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        final String deploymentID = result.result();
+        final JsonArray received = new JsonArray();
+        vertx.eventBus().registerHandler("test-release-subscriber", new Handler<Message<JsonObject>>() {
+          @Override
+          public void handle(Message<JsonObject> message) {
+            assertEquals("foo", message.body().getArray("result").get(0));
+            received.add(message.body().getString("address"));
+            if (received.size() == 1) {
+              container.undeployVerticle(deploymentID, new Handler<AsyncResult<Void>>() {
+                @Override
+                public void handle(AsyncResult<Void> result) {
+                  assertTrue(result.succeeded());
+                  container.deployWorkerVerticle(Xync.class.getName(), config, 1, false, new Handler<AsyncResult<String>>() {
+                    @Override
+                    public void handle(AsyncResult<String> result) {
+                      assertTrue(result.succeeded());
+                    }
+                  });
+                }
+              });
+            } else {
+              assertFalse(received.get(0).equals(received.get(1)));
+              message.reply(new JsonObject().putString("status", "ok"));
+              testComplete();
+            }
+          }
+        });
+
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-subscribe-undeploy")
+            .putString("action", "subscribe")
+            .putString("address", "test-release-subscriber")
+            .putNumber("timeout", 30000);
+        vertx.eventBus().sendWithTimeout("test-release", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "queue")
+                .putString("name", "test-queue-subscribe-undeploy")
+                .putString("action", "offer")
+                .putString("value", "foo");
+            vertx.eventBus().sendWithTimeout("test-release", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testQueueSlice() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 3, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "queue")
+            .putString("name", "test-queue-slice")
+            .putString("action", "offerAll")
+            .putArray("values", new JsonArray().add("foo").add("bar").add("baz"));
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("ok", result.result().body().getString("status"));
+            JsonObject message = new JsonObject()
+                .putString("type", "queue")
+                .putString("name", "test-queue-slice")
+                .putString("action", "slice")
+                .putNumber("offset", 1)
+                .putNumber("limit", 5);
+            vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+              @Override
+              public void handle(AsyncResult<Message<JsonObject>> result) {
+                assertTrue(result.succeeded());
+                assertEquals("ok", result.result().body().getString("status"));
+                JsonArray values = result.result().body().getArray("result");
+                assertEquals(2, values.size());
+                assertEquals("bar", values.get(0));
+                assertEquals("baz", values.get(1));
+                JsonObject message = new JsonObject()
+                    .putString("type", "queue")
+                    .putString("name", "test-queue-slice")
+                    .putString("action", "peek");
+                vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+                  @Override
+                  public void handle(AsyncResult<Message<JsonObject>> result) {
+                    assertTrue(result.succeeded());
+                    assertEquals("ok", result.result().body().getString("status"));
+                    assertEquals("foo", result.result().body().getString("result"));
+                    testComplete();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+}
@@ -286,4 +286,28 @@ public class SetTest extends TestVerticle {
     });
   }
 
+  @Test
+  public void testSetStreamRejected() {
+    Cluster.initialize();
+    container.deployWorkerVerticle(Xync.class.getName(), new JsonObject().putString("cluster", "test"), 1, false, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        assertTrue(result.succeeded());
+        JsonObject message = new JsonObject()
+            .putString("type", "set")
+            .putString("name", "test-set-stream")
+            .putString("action", "stream")
+            .putString("address", "test-set-stream");
+        vertx.eventBus().sendWithTimeout("test", message, 5000, new Handler<AsyncResult<Message<JsonObject>>>() {
+          @Override
+          public void handle(AsyncResult<Message<JsonObject>> result) {
+            assertTrue(result.succeeded());
+            assertEquals("error", result.result().body().getString("status"));
+            testComplete();
+          }
+        });
+      }
+    });
+  }
+
 }
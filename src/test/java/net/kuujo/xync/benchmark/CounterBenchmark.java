@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.kuujo.xync.cluster.impl.SharedDataCounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.shareddata.SharedData;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IAtomicLong;
+
+/**
+ * Counter contention benchmark.<p>
+ *
+ * Compares the get-then-put counter update against atomic counter
+ * updates with several threads incrementing the same counter. Note
+ * that the get-then-put benchmarks also lose updates under contention.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CounterBenchmark {
+  private static final String NAME = "benchmark";
+  private HazelcastInstance hazelcast;
+  private Map<Object, Long> hazelcastCounters;
+  private IAtomicLong hazelcastCounter;
+  private Map<Object, Long> sharedCounters;
+  private SharedDataCounter sharedCounter;
+
+  @Setup
+  public void setUp() {
+    Config config = new Config();
+    config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+    hazelcast = Hazelcast.newHazelcastInstance(config);
+    hazelcastCounters = hazelcast.getMap("counters");
+    hazelcastCounter = hazelcast.getAtomicLong(NAME);
+    sharedCounters = new SharedData().getMap("counters");
+    sharedCounter = new SharedDataCounter();
+  }
+
+  @TearDown
+  public void tearDown() {
+    hazelcast.shutdown();
+  }
+
+  @Benchmark
+  public long hazelcastGetPut() {
+    return increment(hazelcastCounters);
+  }
+
+  @Benchmark
+  public long hazelcastAtomic() {
+    return hazelcastCounter.addAndGet(1);
+  }
+
+  @Benchmark
+  public long sharedDataGetPut() {
+    return increment(sharedCounters);
+  }
+
+  @Benchmark
+  public long sharedDataAtomic() {
+    return sharedCounter.addAndGet(1);
+  }
+
+  /**
+   * Increments a counter the way counters were updated prior to atomic counters.
+   */
+  private long increment(Map<Object, Long> counters) {
+    Long value = counters.get(NAME);
+    if (value == null) {
+      value = 0L;
+    }
+    value++;
+    counters.put(NAME, value);
+    return value;
+  }
+
+}
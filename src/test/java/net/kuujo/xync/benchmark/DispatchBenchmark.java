@@ -0,0 +1,300 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.kuujo.xync.data.DataHandler;
+import net.kuujo.xync.data.DataRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Data message dispatch benchmark.<p>
+ *
+ * Compares the baseline nested switch dispatch with dispatch through the
+ * data registry, over the data actions that the baseline supported. Both
+ * cases invoke the resolved handlers and build their replies. The baseline
+ * <code>key</code> and <code>counter</code> cases fall through to the next
+ * type, and every data message is also answered with an invalid action
+ * error once the switch completes, so a single message may run several
+ * handlers and send several replies. The number of replies per message is
+ * reported with {@link #baselineReplies()} and {@link #registryReplies()}.
+ * Run with <code>-prof gc</code> to compare allocation per message.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DispatchBenchmark {
+  private static final String[][] ACTIONS = {
+      {"key", "get"},
+      {"key", "set"},
+      {"key", "delete"},
+      {"counter", "increment"},
+      {"counter", "decrement"},
+      {"counter", "get"},
+      {"map", "put"},
+      {"map", "get"},
+      {"map", "remove"},
+      {"map", "contains"},
+      {"map", "keys"},
+      {"map", "values"},
+      {"map", "empty"},
+      {"map", "clear"},
+      {"map", "size"},
+      {"list", "add"},
+      {"list", "get"},
+      {"list", "remove"},
+      {"list", "contains"},
+      {"list", "size"},
+      {"list", "empty"},
+      {"list", "clear"},
+      {"set", "add"},
+      {"set", "remove"},
+      {"set", "contains"},
+      {"set", "size"},
+      {"set", "empty"},
+      {"set", "clear"},
+      {"queue", "add"},
+      {"queue", "remove"},
+      {"queue", "contains"},
+      {"queue", "empty"},
+      {"queue", "size"},
+      {"queue", "clear"},
+      {"queue", "offer"},
+      {"queue", "element"},
+      {"queue", "poll"},
+      {"queue", "peek"}
+  };
+
+  private final DataRegistry registry = new DataRegistry();
+  private final ReplyCounter replies = new ReplyCounter();
+  private final DataHandler handler = new DataHandler() {
+    @Override
+    public void handle(JsonObject request, Handler<JsonObject> replyHandler) {
+      replyHandler.handle(new JsonObject().putString("status", "ok").putValue("result", request.getString("name")));
+    }
+  };
+  private JsonObject[] requests;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    requests = new JsonObject[ACTIONS.length];
+    for (int i = 0; i < ACTIONS.length; i++) {
+      registry.register(ACTIONS[i][0], ACTIONS[i][1], handler);
+      requests[i] = new JsonObject().putString("type", ACTIONS[i][0]).putString("action", ACTIONS[i][1]).putString("name", "test");
+    }
+  }
+
+  @Benchmark
+  public void baselineDispatch(Blackhole blackhole) {
+    replies.blackhole = blackhole;
+    baseline(next(), replies);
+  }
+
+  @Benchmark
+  public void registryDispatch(Blackhole blackhole) {
+    replies.blackhole = blackhole;
+    registry(next(), replies);
+  }
+
+  /**
+   * Returns the average number of replies per message sent by the baseline dispatch.
+   */
+  public double baselineReplies() {
+    replies.count = 0;
+    for (JsonObject request : requests) {
+      baseline(request, replies);
+    }
+    return (double) replies.count / requests.length;
+  }
+
+  /**
+   * Returns the average number of replies per message sent by the registry dispatch.
+   */
+  public double registryReplies() {
+    replies.count = 0;
+    for (JsonObject request : requests) {
+      registry(request, replies);
+    }
+    return (double) replies.count / requests.length;
+  }
+
+  private JsonObject next() {
+    JsonObject request = requests[index];
+    index = (index + 1) % requests.length;
+    return request;
+  }
+
+  /**
+   * Dispatches a message through the data registry as Xync does now.
+   */
+  private void registry(JsonObject request, Handler<JsonObject> replyHandler) {
+    String action = request.getString("action");
+    String type = request.getString("type");
+    DataHandler handler = registry.lookup(type, action);
+    if (handler != null) {
+      handler.handle(request, replyHandler);
+    } else if (registry.hasType(type)) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+    } else {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid data type " + type));
+    }
+  }
+
+  /**
+   * Dispatches a message with the data message switch of the baseline
+   * cluster message handler, including its missing <code>break</code>
+   * statements and the trailing error reply.
+   */
+  private void baseline(JsonObject request, Handler<JsonObject> replyHandler) {
+    String action = request.getString("action");
+    String type = request.getString("type");
+    if (type == null) {
+      replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "No data type specified."));
+      return;
+    }
+
+    switch (type) {
+      case "key":
+        switch (action) {
+          case "get":
+          case "set":
+          case "delete":
+            handler.handle(request, replyHandler);
+            break;
+          default:
+            replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+            break;
+        }
+      case "counter":
+        switch (action) {
+          case "increment":
+          case "decrement":
+          case "get":
+            handler.handle(request, replyHandler);
+            break;
+          default:
+            replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+            break;
+        }
+      case "map":
+        switch (action) {
+          case "put":
+          case "get":
+          case "remove":
+          case "contains":
+          case "keys":
+          case "values":
+          case "empty":
+          case "clear":
+          case "size":
+            handler.handle(request, replyHandler);
+            break;
+          default:
+            replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+            break;
+        }
+        break;
+      case "list":
+        switch (action) {
+          case "add":
+          case "get":
+          case "remove":
+          case "contains":
+          case "size":
+          case "empty":
+          case "clear":
+            handler.handle(request, replyHandler);
+            break;
+          default:
+            replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+            break;
+        }
+        break;
+      case "set":
+        switch (action) {
+          case "add":
+          case "remove":
+          case "contains":
+          case "size":
+          case "empty":
+          case "clear":
+            handler.handle(request, replyHandler);
+            break;
+          default:
+            replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+            break;
+        }
+        break;
+      case "queue":
+        switch (action) {
+          case "add":
+          case "remove":
+          case "contains":
+          case "empty":
+          case "size":
+          case "clear":
+          case "offer":
+          case "element":
+          case "poll":
+          case "peek":
+            handler.handle(request, replyHandler);
+            break;
+          default:
+            replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+            break;
+        }
+        break;
+    }
+    replyHandler.handle(new JsonObject().putString("status", "error").putString("message", "Invalid action " + action));
+  }
+
+  /**
+   * Reply handler that counts replies and hands them to the blackhole.
+   */
+  private static class ReplyCounter implements Handler<JsonObject> {
+    private Blackhole blackhole;
+    private long count;
+
+    @Override
+    public void handle(JsonObject reply) {
+      count++;
+      if (blackhole != null) {
+        blackhole.consume(reply);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.kuujo.xync.cluster.impl.SharedDataList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.shareddata.SharedData;
+
+/**
+ * Shared data list benchmark.<p>
+ *
+ * Measures appends, inserts and removes at the head and middle of the
+ * list, and random reads, at several list sizes. Each insert is paired
+ * with a remove so the list size stays fixed for the whole run.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ListBenchmark {
+  @Param({"1000", "10000", "100000", "1000000"})
+  private int size;
+  private SharedDataList<Integer> list;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    list = new SharedDataList<>(new SharedData().<Integer, Object>getMap("benchmark"));
+    for (int i = 0; i < size; i++) {
+      list.add(i);
+    }
+  }
+
+  @Benchmark
+  public Integer addRemoveTail() {
+    list.add(size);
+    return list.remove(size);
+  }
+
+  @Benchmark
+  public Integer addRemoveHead() {
+    list.add(0, size);
+    return list.remove(0);
+  }
+
+  @Benchmark
+  public Integer addRemoveMiddle() {
+    list.add(size / 2, size);
+    return list.remove(size / 2);
+  }
+
+  @Benchmark
+  public Integer get() {
+    index = (index + 7919) % size;
+    return list.get(index);
+  }
+
+}
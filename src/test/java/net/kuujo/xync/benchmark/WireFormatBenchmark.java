@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.kuujo.xync.data.BinaryProtocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.buffer.Buffer;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Wire format benchmark.<p>
+ *
+ * Measures single-core throughput of a complete map put and map get
+ * round trip through each wire format: encoding the request, decoding
+ * it on the node, encoding the reply and decoding the reply, as when
+ * messages are sent between clustered event buses. Data operations are
+ * excluded so that only the cost of the format is measured.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class WireFormatBenchmark {
+  private static final String NAME = "benchmark";
+  private static final String KEY = "feature.enabled";
+  private static final String VALUE = "some moderately sized value";
+
+  @Benchmark
+  public Object jsonPut() {
+    String request = new JsonObject()
+        .putString("type", "map")
+        .putString("name", NAME)
+        .putString("action", "put")
+        .putString("key", KEY)
+        .putString("value", VALUE).encode();
+    JsonObject decoded = new JsonObject(request);
+    decoded.getString("action");
+    decoded.getString("type");
+    decoded.getString("name");
+    decoded.getString("key");
+    Object value = decoded.getValue("value");
+    String reply = new JsonObject().putString("status", "ok").putValue("result", value).encode();
+    return new JsonObject(reply).getValue("result");
+  }
+
+  @Benchmark
+  public Object jsonGet() {
+    String request = new JsonObject()
+        .putString("type", "map")
+        .putString("name", NAME)
+        .putString("action", "get")
+        .putString("key", KEY).encode();
+    JsonObject decoded = new JsonObject(request);
+    decoded.getString("action");
+    decoded.getString("type");
+    decoded.getString("name");
+    decoded.getString("key");
+    String reply = new JsonObject().putString("status", "ok").putValue("result", VALUE).encode();
+    return new JsonObject(reply).getValue("result");
+  }
+
+  @Benchmark
+  public Object binaryPut() {
+    Buffer request = BinaryProtocol.createRequest(BinaryProtocol.MAP_PUT, NAME);
+    BinaryProtocol.writeShortString(request, KEY);
+    BinaryProtocol.writeValue(request, VALUE);
+    BinaryProtocol.Reader decoded = new BinaryProtocol.Reader(new Buffer(request.getBytes()));
+    decoded.readByte();
+    decoded.readShortString();
+    decoded.readShortString();
+    Object value = decoded.readValue();
+    Buffer reply = BinaryProtocol.createReply(value);
+    BinaryProtocol.Reader reader = new BinaryProtocol.Reader(new Buffer(reply.getBytes()));
+    reader.readByte();
+    return reader.readValue();
+  }
+
+  @Benchmark
+  public Object binaryGet() {
+    Buffer request = BinaryProtocol.createRequest(BinaryProtocol.MAP_GET, NAME);
+    BinaryProtocol.writeShortString(request, KEY);
+    BinaryProtocol.Reader decoded = new BinaryProtocol.Reader(new Buffer(request.getBytes()));
+    decoded.readByte();
+    decoded.readShortString();
+    decoded.readShortString();
+    Buffer reply = BinaryProtocol.createReply(VALUE);
+    BinaryProtocol.Reader reader = new BinaryProtocol.Reader(new Buffer(reply.getBytes()));
+    reader.readByte();
+    return reader.readValue();
+  }
+
+}
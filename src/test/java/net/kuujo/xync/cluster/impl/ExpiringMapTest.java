@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.vertx.java.core.Context;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Expiring map tests.
+ *
+ * @author Jordan Halterman
+ */
+public class ExpiringMapTest {
+  private static Vertx vertx;
+
+  @BeforeClass
+  public static void setUp() {
+    vertx = VertxFactory.newVertx();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    vertx.stop();
+  }
+
+  @Test
+  public void testExpireAfterOwnerReleased() throws Exception {
+    ExpiringMap.Expirer expirer = new ExpiringMap.Expirer(vertx);
+    Context first = createContext();
+    Context second = createContext();
+    expirer.acquire(first);
+    expirer.acquire(second);
+
+    ConcurrentMap<String, Object> entries = new ConcurrentHashMap<>();
+    ExpiringMap<String, String> map = new ExpiringMap<>(entries, expirer);
+    map.put("foo", "bar", 200, 0);
+    assertTrue(entries.containsKey("foo"));
+
+    // The timer runs on the first context, so releasing it must move the
+    // timer to the second context rather than stop expiring entries.
+    expirer.release(first);
+    Thread.sleep(1000);
+    assertFalse(entries.containsKey("foo"));
+    expirer.release(second);
+  }
+
+  @Test
+  public void testExpireAfterAcquire() throws Exception {
+    ExpiringMap.Expirer expirer = new ExpiringMap.Expirer(vertx);
+    ConcurrentMap<String, Object> entries = new ConcurrentHashMap<>();
+    ExpiringMap<String, String> map = new ExpiringMap<>(entries, expirer);
+    map.put("foo", "bar", 200, 0);
+
+    Context context = createContext();
+    expirer.acquire(context);
+    Thread.sleep(1000);
+    assertFalse(entries.containsKey("foo"));
+    expirer.release(context);
+  }
+
+  @Test
+  public void testCopyExpiringValues() {
+    ExpiringMap.Expirer expirer = new ExpiringMap.Expirer(vertx);
+    ExpiringMap<String, Object> map = new ExpiringMap<>(new ConcurrentHashMap<String, Object>(), expirer);
+    JsonObject value = new JsonObject().putString("foo", "bar");
+    map.put("foo", value, 60000, 0);
+    value.putString("foo", "baz");
+    ((JsonObject) map.get("foo")).putString("foo", "baz");
+    assertEquals("bar", ((JsonObject) map.get("foo")).getString("foo"));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidExpiringValue() {
+    ExpiringMap.Expirer expirer = new ExpiringMap.Expirer(vertx);
+    ExpiringMap<String, Object> map = new ExpiringMap<>(new ConcurrentHashMap<String, Object>(), expirer);
+    map.put("foo", new Object(), 60000, 0);
+  }
+
+  /**
+   * Creates a new event loop context.
+   */
+  private static Context createContext() throws Exception {
+    final AtomicReference<Context> context = new AtomicReference<>();
+    final CountDownLatch latch = new CountDownLatch(1);
+    vertx.runOnContext(new Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        context.set(vertx.currentContext());
+        latch.countDown();
+      }
+    });
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    return context.get();
+  }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import static net.kuujo.xync.cluster.impl.SharedDataList.CHUNK_SIZE;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Shared data list tests.
+ *
+ * @author Jordan Halterman
+ */
+public class SharedDataListTest {
+
+  @Test
+  public void testAppendToFullChunk() {
+    SharedDataList<Integer> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    List<Integer> expected = fill(list, CHUNK_SIZE);
+    assertChunks(list, CHUNK_SIZE);
+    list.add(CHUNK_SIZE, -1);
+    expected.add(CHUNK_SIZE, -1);
+    assertChunks(list, CHUNK_SIZE, 1);
+    assertContents(expected, list);
+  }
+
+  @Test
+  public void testInsertBelowHalfOfFullChunk() {
+    testInsertIntoFullChunk(10, CHUNK_SIZE / 2 + 1, CHUNK_SIZE / 2);
+  }
+
+  @Test
+  public void testInsertAtHalfOfFullChunk() {
+    testInsertIntoFullChunk(CHUNK_SIZE / 2, CHUNK_SIZE / 2 + 1, CHUNK_SIZE / 2);
+  }
+
+  @Test
+  public void testInsertAboveHalfOfFullChunk() {
+    testInsertIntoFullChunk(CHUNK_SIZE / 2 + 10, CHUNK_SIZE / 2, CHUNK_SIZE / 2 + 1);
+  }
+
+  /**
+   * Inserts an element into a full chunk and checks how the chunk was split.
+   */
+  private void testInsertIntoFullChunk(int index, int... sizes) {
+    SharedDataList<Integer> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    List<Integer> expected = fill(list, CHUNK_SIZE);
+    list.add(index, -1);
+    expected.add(index, -1);
+    assertChunks(list, sizes);
+    assertContents(expected, list);
+    assertEquals(index, list.indexOf(-1));
+  }
+
+  @Test
+  public void testRemoveEmptiesChunk() {
+    SharedDataList<Integer> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    List<Integer> expected = fill(list, CHUNK_SIZE * 2 + 1);
+    assertChunks(list, CHUNK_SIZE, CHUNK_SIZE, 1);
+    assertEquals(Integer.valueOf(CHUNK_SIZE * 2), list.remove(CHUNK_SIZE * 2));
+    expected.remove(CHUNK_SIZE * 2);
+    assertChunks(list, CHUNK_SIZE, CHUNK_SIZE);
+    assertContents(expected, list);
+  }
+
+  @Test
+  public void testMergeWithNextChunk() {
+    SharedDataList<Integer> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    List<Integer> expected = fill(list, CHUNK_SIZE * 3);
+
+    // Shrink the last chunk, then remove from the middle chunk until the
+    // two fit in half a chunk.
+    int last = 50;
+    for (int i = 0; i < CHUNK_SIZE - last; i++) {
+      list.remove(list.size() - 1);
+      expected.remove(expected.size() - 1);
+    }
+    assertChunks(list, CHUNK_SIZE, CHUNK_SIZE, last);
+    for (int i = 0; i < CHUNK_SIZE - (CHUNK_SIZE / 2 - last) - 1; i++) {
+      list.remove(CHUNK_SIZE);
+      expected.remove(CHUNK_SIZE);
+    }
+    assertChunks(list, CHUNK_SIZE, CHUNK_SIZE / 2 - last + 1, last);
+    list.remove(CHUNK_SIZE);
+    expected.remove(CHUNK_SIZE);
+    assertChunks(list, CHUNK_SIZE, CHUNK_SIZE / 2);
+    assertContents(expected, list);
+  }
+
+  @Test
+  public void testMergeWithPreviousChunk() {
+    SharedDataList<Integer> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    List<Integer> expected = fill(list, CHUNK_SIZE * 3);
+
+    // Shrink the first chunk, then remove from the middle chunk, which cannot
+    // merge with the full last chunk, until it fits with the first chunk.
+    int first = 50;
+    for (int i = 0; i < CHUNK_SIZE - first; i++) {
+      list.remove(0);
+      expected.remove(0);
+    }
+    assertChunks(list, first, CHUNK_SIZE, CHUNK_SIZE);
+    for (int i = 0; i < CHUNK_SIZE - (CHUNK_SIZE / 2 - first) - 1; i++) {
+      list.remove(first);
+      expected.remove(first);
+    }
+    assertChunks(list, first, CHUNK_SIZE / 2 - first + 1, CHUNK_SIZE);
+    list.remove(first);
+    expected.remove(first);
+    assertChunks(list, CHUNK_SIZE / 2, CHUNK_SIZE);
+    assertContents(expected, list);
+  }
+
+  @Test
+  public void testChunkBoundaries() {
+    SharedDataList<Integer> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    List<Integer> expected = fill(list, CHUNK_SIZE * 2 + 1);
+    for (int index : new int[]{0, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, CHUNK_SIZE * 2 - 1, CHUNK_SIZE * 2}) {
+      assertEquals(Integer.valueOf(index), list.get(index));
+    }
+
+    // Split the second chunk and check every boundary of the new layout.
+    list.add(CHUNK_SIZE, -1);
+    expected.add(CHUNK_SIZE, -1);
+    assertChunks(list, CHUNK_SIZE, CHUNK_SIZE / 2 + 1, CHUNK_SIZE / 2, 1);
+    int offset = 0;
+    for (int i = 0; i < list.chunkCount(); i++) {
+      int size = list.chunkSize(i);
+      assertEquals(expected.get(offset), list.get(offset));
+      assertEquals(expected.get(offset + size - 1), list.get(offset + size - 1));
+      assertEquals(expected.subList(offset, offset + size), list.range(offset, offset + size));
+      offset += size;
+    }
+
+    assertEquals(Integer.valueOf(CHUNK_SIZE - 1), list.set(CHUNK_SIZE - 1, -2));
+    expected.set(CHUNK_SIZE - 1, -2);
+    assertEquals(Integer.valueOf(-1), list.remove(CHUNK_SIZE));
+    expected.remove(CHUNK_SIZE);
+    assertContents(expected, list);
+    assertEquals(expected.subList(CHUNK_SIZE - 2, CHUNK_SIZE + 2), list.range(CHUNK_SIZE - 2, CHUNK_SIZE + 2));
+  }
+
+  @Test
+  public void testSharedMap() {
+    Map<Integer, Object> map = new ConcurrentHashMap<>();
+    SharedDataList<Integer> first = new SharedDataList<>(map);
+    SharedDataList<Integer> second = new SharedDataList<>(map);
+    List<Integer> expected = fill(first, CHUNK_SIZE + 10);
+    assertContents(expected, second);
+
+    second.add(5, -1);
+    expected.add(5, -1);
+    assertContents(expected, first);
+    assertEquals(5, first.indexOf(-1));
+
+    first.remove(CHUNK_SIZE);
+    expected.remove(CHUNK_SIZE);
+    assertContents(expected, second);
+
+    // A list created after the others were modified sees the same contents.
+    assertContents(expected, new SharedDataList<Integer>(map));
+
+    second.clear();
+    assertEquals(0, first.size());
+    assertEquals(0, first.chunkCount());
+    first.add(1);
+    assertEquals(Arrays.asList(1), Arrays.asList(second.toArray()));
+  }
+
+  @Test
+  public void testRandomOperations() {
+    SharedDataList<Integer> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    List<Integer> expected = new ArrayList<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 20000; i++) {
+      int operation = random.nextInt(10);
+      if (operation < 6 || expected.isEmpty()) {
+        int index = random.nextInt(expected.size() + 1);
+        list.add(index, i);
+        expected.add(index, i);
+      } else if (operation < 9) {
+        int index = random.nextInt(expected.size());
+        assertEquals(expected.remove(index), list.remove(index));
+      } else {
+        int index = random.nextInt(expected.size());
+        assertEquals(expected.get(index), list.get(index));
+      }
+    }
+    assertContents(expected, list);
+    for (int i = 0; i < list.chunkCount(); i++) {
+      int size = list.chunkSize(i);
+      assertEquals(true, size > 0 && size <= CHUNK_SIZE);
+    }
+  }
+
+  @Test
+  public void testCopyMutableValues() {
+    SharedDataList<Object> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    JsonObject json = new JsonObject().putString("foo", "bar");
+    list.add(json);
+    json.putString("foo", "baz");
+    assertEquals("bar", ((JsonObject) list.get(0)).getString("foo"));
+    ((JsonObject) list.get(0)).putString("foo", "baz");
+    assertEquals("bar", ((JsonObject) list.get(0)).getString("foo"));
+    ((JsonObject) list.toArray()[0]).putString("foo", "baz");
+    assertEquals("bar", ((JsonObject) list.range(0, 1).get(0)).getString("foo"));
+
+    byte[] bytes = new byte[]{1, 2, 3};
+    list.set(0, bytes);
+    bytes[0] = 4;
+    assertEquals(1, ((byte[]) list.get(0))[0]);
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidType() {
+    SharedDataList<Object> list = new SharedDataList<>(new ConcurrentHashMap<Integer, Object>());
+    list.add(new Object());
+  }
+
+  /**
+   * Appends the given number of elements to the list.
+   */
+  private static List<Integer> fill(SharedDataList<Integer> list, int count) {
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      list.add(i);
+      expected.add(i);
+    }
+    return expected;
+  }
+
+  /**
+   * Checks the number of elements in each chunk of the list.
+   */
+  private static void assertChunks(SharedDataList<?> list, int... sizes) {
+    int[] actual = new int[list.chunkCount()];
+    for (int i = 0; i < actual.length; i++) {
+      actual[i] = list.chunkSize(i);
+    }
+    assertEquals(Arrays.toString(sizes), Arrays.toString(actual));
+  }
+
+  /**
+   * Checks the contents of the list both by index and as a snapshot.
+   */
+  private static void assertContents(List<Integer> expected, SharedDataList<Integer> list) {
+    assertEquals(expected.size(), list.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i), list.get(i));
+    }
+    assertEquals(expected, Arrays.asList(list.toArray()));
+  }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.xync.cluster.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * Shared data queue tests.
+ *
+ * @author Jordan Halterman
+ */
+public class SharedDataQueueTest {
+  private static Vertx vertx;
+
+  @BeforeClass
+  public static void setUp() {
+    vertx = VertxFactory.newVertx();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    vertx.stop();
+  }
+
+  @Test
+  public void testWrapAround() {
+    SharedDataQueue<Integer> queue = new SharedDataQueue<>(vertx);
+    int next = 0;
+    for (int i = 0; i < 10000; i++) {
+      queue.offer(i);
+      queue.offer(i);
+      assertEquals(Integer.valueOf(next++ / 2), queue.poll());
+    }
+    assertEquals(10000, queue.size());
+    while (!queue.isEmpty()) {
+      assertEquals(Integer.valueOf(next++ / 2), queue.poll());
+    }
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testGrowth() {
+    SharedDataQueue<Integer> queue = new SharedDataQueue<>(vertx);
+    for (int i = 0; i < 100000; i++) {
+      queue.offer(i);
+    }
+    assertEquals(100000, queue.size());
+    for (int i = 0; i < 100000; i++) {
+      assertEquals(Integer.valueOf(i), queue.poll());
+    }
+    assertEquals(0, queue.size());
+    assertNull(queue.peek());
+  }
+
+  @Test
+  public void testAddAllDrainToAcrossRings() {
+    SharedDataQueue<Integer> queue = new SharedDataQueue<>(vertx);
+    for (int i = 0; i < 200; i++) {
+      queue.offer(i);
+    }
+    List<Integer> values = new ArrayList<>();
+    for (int i = 200; i < 1000; i++) {
+      values.add(i);
+    }
+    assertTrue(queue.addAll(values));
+    assertEquals(1000, queue.size());
+    assertEquals(values.subList(0, 10), queue.range(200, 210));
+
+    List<Integer> drained = new ArrayList<>();
+    assertEquals(700, queue.drainTo(drained, 700));
+    assertEquals(1000, queue.drainTo(drained, 1000) + 700);
+    assertEquals(1000, drained.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(Integer.valueOf(i), drained.get(i));
+    }
+    assertEquals(0, queue.drainTo(drained, 10));
+  }
+
+  @Test
+  public void testRemove() {
+    SharedDataQueue<Integer> queue = new SharedDataQueue<>(vertx);
+    for (int i = 0; i < 600; i++) {
+      queue.offer(i);
+    }
+    assertTrue(queue.remove(0));
+    assertTrue(queue.remove(300));
+    assertTrue(queue.remove(599));
+    assertFalse(queue.remove(300));
+    assertFalse(queue.contains(300));
+    assertEquals(597, queue.size());
+    assertEquals(Integer.valueOf(1), queue.peek());
+
+    List<Integer> drained = new ArrayList<>();
+    queue.drainTo(drained, 1000);
+    assertEquals(597, drained.size());
+    for (int i = 1, j = 0; i < 599; i++) {
+      if (i != 300) {
+        assertEquals(Integer.valueOf(i), drained.get(j++));
+      }
+    }
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testRequeue() {
+    SharedDataQueue<Integer> queue = new SharedDataQueue<>(vertx);
+    for (int i = 0; i < 10; i++) {
+      queue.offer(i);
+    }
+    List<Integer> drained = new ArrayList<>();
+    queue.drainTo(drained, 4);
+    queue.requeue(drained.subList(2, 4));
+    assertEquals(8, queue.size());
+    assertEquals(Integer.valueOf(2), queue.peek());
+    assertTrue(queue.contains(3));
+    assertEquals(Arrays.asList(3, 4, 5), queue.range(1, 4));
+
+    assertTrue(queue.remove(3));
+    assertFalse(queue.contains(3));
+    drained.clear();
+    queue.drainTo(drained, 100);
+    assertEquals(Arrays.asList(2, 4, 5, 6, 7, 8, 9), drained);
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testCopyMutableValues() {
+    SharedDataQueue<Object> queue = new SharedDataQueue<>(vertx);
+    JsonObject json = new JsonObject().putString("foo", "bar");
+    queue.offer(json);
+    json.putString("foo", "baz");
+    ((JsonObject) queue.peek()).putString("foo", "baz");
+    ((JsonObject) queue.range(0, 1).get(0)).putString("foo", "baz");
+    ((JsonObject) queue.toArray()[0]).putString("foo", "baz");
+    assertEquals("bar", ((JsonObject) queue.poll()).getString("foo"));
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidType() {
+    SharedDataQueue<Object> queue = new SharedDataQueue<>(vertx);
+    queue.offer(new Object());
+  }
+
+  @Test
+  public void testConcurrentProducersAndConsumers() throws Exception {
+    final SharedDataQueue<Long> queue = new SharedDataQueue<>(vertx);
+    final int producers = 4;
+    final int consumers = 4;
+    final int count = 100000;
+    final ConcurrentHashMap<Long, Boolean> received = new ConcurrentHashMap<>();
+    final AtomicInteger total = new AtomicInteger();
+    final AtomicReference<String> failure = new AtomicReference<>();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < producers; i++) {
+      final long producer = (long) i << 32;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < count;) {
+            if (j % 3 == 0) {
+              List<Long> batch = new ArrayList<>();
+              for (int k = 0; k < 5 && j < count; k++, j++) {
+                batch.add(producer + j);
+              }
+              queue.addAll(batch);
+            } else {
+              queue.offer(producer + j++);
+            }
+          }
+        }
+      });
+    }
+    for (int i = 0; i < consumers; i++) {
+      final boolean drain = i % 2 == 0;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          long[] last = new long[producers];
+          for (int j = 0; j < producers; j++) {
+            last[j] = -1;
+          }
+          List<Long> values = new ArrayList<>();
+          while (total.get() < producers * count && failure.get() == null) {
+            values.clear();
+            if (drain) {
+              queue.drainTo(values, 17);
+            } else {
+              Long value = queue.poll();
+              if (value != null) {
+                values.add(value);
+              }
+            }
+            for (Long value : values) {
+              int producer = (int) (value >>> 32);
+              long sequence = value & 0xffffffffL;
+              if (sequence <= last[producer]) {
+                failure.compareAndSet(null, "Out of order value " + sequence + " after " + last[producer]);
+              }
+              last[producer] = sequence;
+              if (received.put(value, Boolean.TRUE) != null) {
+                failure.compareAndSet(null, "Duplicate value " + value);
+              }
+              total.incrementAndGet();
+            }
+          }
+        }
+      });
+    }
+
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join(60000);
+    }
+    assertNull(failure.get());
+    assertEquals(producers * count, total.get());
+    assertEquals(producers * count, received.size());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testTakeOrderWithExpiredWaiters() throws Exception {
+    final SharedDataQueue<Integer> queue = new SharedDataQueue<>(vertx);
+    final int count = 20000;
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicReference<String> failure = new AtomicReference<>();
+
+    vertx.runOnContext(new Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        take();
+      }
+
+      private void take() {
+        // Waiters time out constantly, so values are regularly polled while
+        // the only waiter is expiring.
+        queue.take(1, new Handler<AsyncResult<Integer>>() {
+          @Override
+          public void handle(AsyncResult<Integer> result) {
+            Integer value = result.result();
+            if (value != null && value != next.getAndIncrement()) {
+              failure.set("Expected " + (next.get() - 1) + " but received " + value);
+              latch.countDown();
+            } else if (next.get() == count) {
+              latch.countDown();
+            } else {
+              take();
+            }
+          }
+        });
+      }
+    });
+
+    for (int i = 0; i < count; i++) {
+      queue.offer(i);
+      if (i % 100 == 0) {
+        Thread.sleep(1);
+      }
+    }
+    assertTrue(latch.await(60, TimeUnit.SECONDS));
+    assertNull(failure.get());
+    assertEquals(0, queue.size());
+  }
+
+}